@@ -7,6 +7,7 @@
 package com.pld.agile.controller;
 
 import com.pld.agile.model.tour.Request;
+import com.pld.agile.model.tour.Stop;
 import com.pld.agile.model.tour.TourData;
 import com.pld.agile.utils.exception.PathException;
 import com.pld.agile.view.ButtonEventType;
@@ -16,6 +17,8 @@ import javafx.scene.Cursor;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 
+import java.util.List;
+
 /**
  * Command continuing the construction of the new request with a delivery positioned at the closest intersection of the given position.
  * The new request is then added to the tour.
@@ -42,6 +45,10 @@ public class AddRequestCommand implements Command {
      * Whether the request needs to be reconstructed or not
      */
     private boolean reconstructRequest;
+    /**
+     * The stops of the tour in order of visit before the request was added.
+     */
+    private List<Stop> tourStops;
 
     /**
      * Constructor for AddRequestPickupCommand.
@@ -68,6 +75,7 @@ public class AddRequestCommand implements Command {
             tourData.getStopsList().add(request.getDelivery());
             reconstructRequest = false;
         }
+        tourStops = tourData.getTourStops();
         try {
             tourData.addLatestRequest();
         } catch (PathException e) {
@@ -89,11 +97,13 @@ public class AddRequestCommand implements Command {
     }
 
     /**
-     * Remove the added request, Go back to the adding request state, reconstruct the request with just the pickup.
+     * Remove the added request, restoring the order of the tour before the addition (the local search run by
+     * the addition may have reordered the other stops), Go back to the adding request state, reconstruct the request
+     * with just the pickup.
      */
     @Override
     public void undoCommand() {
-        tourData.deleteRequest(request);
+        tourData.deleteRequest(request, tourStops);
         reconstructRequest = true;
     }
 
@@ -107,6 +107,16 @@ public class ComputedTourState implements State {
         w.updateUndoRedo(loc.canUndo(), loc.canRedo());
     }
 
+    /**
+     * Selects the courier whose tour is edited.
+     * @param w the application window
+     * @param courier the courier whose tour is selected
+     */
+    @Override
+    public void doSelectCourier(Window w, int courier) {
+        w.getTourData().selectCourier(courier);
+    }
+
     /**
      * Starts adding a request to the tour by entering the adding request state.
      * @param c the controller
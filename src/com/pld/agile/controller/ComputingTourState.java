@@ -12,14 +12,25 @@ import com.pld.agile.view.Window;
 public class ComputingTourState implements State {
 
     /**
-     * Stops computing the tour and sets the buttons for the new states.
+     * Stops computing the tour and sets the buttons for the new states: back to the loaded requests
+     * if no tour has been found yet.
      * @param c the controller
      * @param w the application window
      */
     @Override
     public void doStopComputingTour(Controller c, Window w, ListOfCommands loc) {
         TourData tourData = w.getTourData();
-        tourData.stopComputingTour();
+        if (!tourData.stopComputingTour()) {
+            w.toggleMenuItem(0, 0, true);
+            w.toggleMenuItem(0, 1, true);
+            w.toggleMenuItem(0, 2, true);
+            w.setMainSceneButton(
+                    "Compute tour",
+                    new ButtonListener(c, ButtonEventType.COMPUTE_TOUR)
+            );
+            c.setCurrState(c.loadedRequestsState);
+            return;
+        }
         w.toggleMenuItem(0, 0, true);
         w.toggleMenuItem(0, 1, true);
         w.toggleMenuItem(0, 2, false);
@@ -170,6 +170,13 @@ public class Controller {
     public void shiftStopOrderDown(Stop stop) {
         currState.doShiftStopOrderDown(this, window, listOfCommands, stop);
     }
+    /**
+     * Calls method selectCourier() of the current state.
+     * @param courier the courier whose tour is selected.
+     */
+    public void selectCourier(int courier) {
+        currState.doSelectCourier(window, courier);
+    }
     /**
      * Calls method changeStopDuration() of the current state.
      * @param stop the stop to edit.
@@ -7,7 +7,13 @@
 package com.pld.agile.controller;
 
 import com.pld.agile.model.tour.Request;
+import com.pld.agile.model.tour.Stop;
 import com.pld.agile.model.tour.TourData;
+import com.pld.agile.utils.exception.PathException;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+
+import java.util.List;
 
 /**
  * Command deleting a request from the tour.
@@ -22,6 +28,14 @@ public class DeleteRequestCommand implements Command {
      * The request to be deleted from the tour.
      */
     private Request request;
+    /**
+     * The stops of the tour in order of visit before the request was deleted.
+     */
+    private List<Stop> tourStops;
+    /**
+     * The courier whose tour contained the request, in the courier tours.
+     */
+    private int courier;
 
     /**
      * Constructor for AddRequestCommand.
@@ -38,20 +52,34 @@ public class DeleteRequestCommand implements Command {
      */
     @Override
     public void doCommand() {
+        courier = tourData.getCourierOf(request.getPickup());
+        tourData.selectCourier(courier);
+        tourStops = tourData.getTourStops();
         tourData.deleteRequest(request);
     }
 
     /**
-     * Adds the request back to the tour (at the right position)
+     * Adds the request back to the tour of its courier, restoring the order of the tour before the deletion
+     * (the local search run by the deletion may have reordered the other stops)
      */
     @Override
     public void undoCommand() {
-       tourData.getStopsList().add(request.getPickup());
-       tourData.getStopsList().add(request.getDelivery());
-       tourData.recomputeStopIDs();
+        tourData.getStopsList().add(request.getPickup());
+        tourData.getStopsList().add(request.getDelivery());
+        tourData.recomputeStopIDs();
+        // Another courier may have been selected since the deletion
+        tourData.selectCourier(courier);
         try {
-          tourData.addLatestRequest(request.getPickup().getStopNumber(), request.getDelivery().getStopNumber());
-        } catch (Exception e) { }
+            tourData.addLatestRequest(tourStops);
+        } catch (PathException e) {
+            tourData.getStopsList().remove(request.getPickup());
+            tourData.getStopsList().remove(request.getDelivery());
+            tourData.recomputeStopIDs();
+            Alert alert = new Alert(Alert.AlertType.ERROR, e.getMessage(), ButtonType.OK);
+            alert.setTitle("Error"); // force english
+            alert.setHeaderText("Computing path error");
+            alert.showAndWait();
+        }
     }
 
 }
@@ -76,8 +76,11 @@ public class LoadedRequestsState implements State {
                 alert.setHeaderText("Computing path error");
                 alert.showAndWait();
             }
+            // The computation may have been stopped by the user in the meantime
             Platform.runLater(() -> {
-                c.computingTourState.doStopComputingTour(c, w, loc);
+                if (c.getCurrState() == c.computingTourState) {
+                    c.computingTourState.doStopComputingTour(c, w, loc);
+                }
             });
         });
         tourData.setTourComputingThread(computingThread);
@@ -36,6 +36,7 @@ public interface State {
 
         if (mapFile != null) {
 
+            // The contraction hierarchy is built by the routing thread, on the first tour computation
             MapLoader mapLoader = new MapLoader(mapFile.getPath(), w.getMapData());
             try {
                 mapLoader.load();
@@ -151,6 +152,14 @@ public interface State {
     default void doShiftStopOrderDown(Controller c, Window w, ListOfCommands loc, Stop stop) {
     }
 
+    /**
+     * Fires when the user clicks on the tour of a courier which is not selected.
+     * @param w the application window
+     * @param courier the courier whose tour is selected.
+     */
+    default void doSelectCourier(Window w, int courier) {
+    }
+
     /**
      * Fires when the user clicks on the "Add request" button.
      * @param c the controller
@@ -8,6 +8,8 @@ package com.pld.agile.model.map;
 
 import com.pld.agile.utils.observer.Observable;
 import com.pld.agile.utils.observer.UpdateType;
+import com.pld.agile.utils.routing.ContractionHierarchy;
+import com.pld.agile.utils.routing.Landmarks;
 import com.pld.agile.utils.view.ViewUtilities;
 
 import java.util.ArrayList;
@@ -33,6 +35,21 @@ public class MapData extends Observable {
      */
     private List<Segment> segments;
 
+    /**
+     * Compressed adjacency of the road network used by routing, built from intersections and segments.
+     */
+    private RoadGraph roadGraph;
+
+    /**
+     * Landmarks of the road graph, giving lower bounds of the distances for ALT routing.
+     */
+    private Landmarks landmarks;
+
+    /**
+     * Contraction hierarchy of the road graph, for contraction hierarchy routing.
+     */
+    private ContractionHierarchy contractionHierarchy;
+
     /**
      * Maximum latitude of the map
      */
@@ -127,6 +144,7 @@ public class MapData extends Observable {
      */
     public void setIntersections(List<Intersection> intersections) {
         this.intersections = intersections;
+        this.roadGraph = null;
     }
 
     // SETTERS
@@ -144,9 +162,61 @@ public class MapData extends Observable {
      */
     public void setSegments(List<Segment> segments) {
         this.segments = segments;
+        this.roadGraph = null;
         notifyObservers(UpdateType.MAP);
     }
 
+    /**
+     * Builds the road graph from the current intersections and segments.
+     * Must be called again whenever the intersections or segments are replaced.
+     */
+    public void buildRoadGraph() {
+        roadGraph = new RoadGraph(intersections, segments);
+    }
+
+    /**
+     * Getter for attribute roadGraph, builds it if it has not been built yet.
+     * @return the compressed adjacency of the road network
+     */
+    public RoadGraph getRoadGraph() {
+        if (roadGraph == null) {
+            buildRoadGraph();
+        }
+        return roadGraph;
+    }
+
+    /**
+     * Getter for attribute landmarks, selects Landmarks.DEFAULT_COUNT landmarks if none were
+     * set for the current road graph.
+     * @return the landmarks of the road graph
+     */
+    public Landmarks getLandmarks() {
+        if (landmarks == null || landmarks.getGraph() != getRoadGraph()) {
+            landmarks = Landmarks.select(getRoadGraph(), Landmarks.DEFAULT_COUNT);
+        }
+        return landmarks;
+    }
+
+    /**
+     * Setter for attribute landmarks.
+     * @param landmarks the landmarks of the road graph
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * Getter for attribute contractionHierarchy, contracts the road graph if it has not been
+     * contracted yet. Synchronized, as the routing threads may ask for it at the same time.
+     * @return the contraction hierarchy of the road graph
+     */
+    public synchronized ContractionHierarchy getContractionHierarchy() {
+        if (contractionHierarchy == null || contractionHierarchy.getGraph() != getRoadGraph()) {
+            contractionHierarchy = new ContractionHierarchy(getRoadGraph());
+        }
+        return contractionHierarchy;
+    }
+
     /**
      * Getter for attribute maxLat.
      * @return maxLat
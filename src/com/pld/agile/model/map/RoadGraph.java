@@ -0,0 +1,252 @@
+/*
+ * RoadGraph
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.model.map;
+
+import java.util.List;
+
+/**
+ * Immutable compressed-sparse-row (CSR) adjacency of the road network of a MapData.
+ * Nodes are the intersection IDs, edges are the segments: the edges leaving node n are the
+ * indexes e in [getFirstEdge(n), getEndEdge(n)), and each edge is described by primitive
+ * arrays (target node, length, index of the Segment in MapData.getSegments()).
+ * The reversed adjacency is stored the same way: the edges entering node n are
+ * getIncomingEdge(i) for i in [getFirstIncoming(n), getEndIncoming(n)).
+ */
+public class RoadGraph {
+
+    /**
+     * Number of nodes (intersections) of the graph.
+     */
+    private final int nbNodes;
+    /**
+     * Latitude of each node (index = node id).
+     */
+    private final double[] latitudes;
+    /**
+     * Longitude of each node (index = node id).
+     */
+    private final double[] longitudes;
+    /**
+     * First edge of each node (index = node id), offsets[nbNodes] is the number of edges.
+     */
+    private final int[] offsets;
+    /**
+     * Origin node of each edge.
+     */
+    private final int[] origins;
+    /**
+     * Destination node of each edge.
+     */
+    private final int[] targets;
+    /**
+     * Length of each edge.
+     */
+    private final double[] lengths;
+    /**
+     * Index of the Segment represented by each edge in the list of segments of the map.
+     */
+    private final int[] segmentIndex;
+    /**
+     * First entry of each node in incomingEdges (index = node id), reverseOffsets[nbNodes] is the number of edges.
+     */
+    private final int[] reverseOffsets;
+    /**
+     * Edges entering each node, grouped by destination node.
+     */
+    private final int[] incomingEdges;
+
+    /**
+     * Builds the CSR adjacency of a road network.
+     * The ID of every intersection must be its index in the intersections list.
+     * @param intersections list of all intersections
+     * @param segments list of all segments
+     */
+    public RoadGraph(List<Intersection> intersections, List<Segment> segments) {
+        nbNodes = intersections.size();
+        int nbEdges = segments.size();
+        offsets = new int[nbNodes + 1];
+        origins = new int[nbEdges];
+        targets = new int[nbEdges];
+        lengths = new double[nbEdges];
+        segmentIndex = new int[nbEdges];
+        latitudes = new double[nbNodes];
+        longitudes = new double[nbNodes];
+        for (Intersection intersection : intersections) {
+            latitudes[intersection.getId()] = intersection.getLatitude();
+            longitudes[intersection.getId()] = intersection.getLongitude();
+        }
+
+        // Count the edges leaving each node, then turn counts into offsets
+        for (Segment segment : segments) {
+            offsets[segment.getOrigin().getId() + 1]++;
+        }
+        for (int n = 0; n < nbNodes; n++) {
+            offsets[n + 1] += offsets[n];
+        }
+
+        // Place each edge in its node's slice, keeping the order of the segments list
+        int[] next = new int[nbNodes];
+        System.arraycopy(offsets, 0, next, 0, nbNodes);
+        for (int s = 0; s < nbEdges; s++) {
+            Segment segment = segments.get(s);
+            int e = next[segment.getOrigin().getId()]++;
+            origins[e] = segment.getOrigin().getId();
+            targets[e] = segment.getDestination().getId();
+            lengths[e] = segment.getLength();
+            segmentIndex[e] = s;
+        }
+
+        // Same counting sort on the destination nodes for the reversed adjacency
+        reverseOffsets = new int[nbNodes + 1];
+        incomingEdges = new int[nbEdges];
+        for (int e = 0; e < nbEdges; e++) {
+            reverseOffsets[targets[e] + 1]++;
+        }
+        for (int n = 0; n < nbNodes; n++) {
+            reverseOffsets[n + 1] += reverseOffsets[n];
+        }
+        System.arraycopy(reverseOffsets, 0, next, 0, nbNodes);
+        for (int e = 0; e < nbEdges; e++) {
+            incomingEdges[next[targets[e]]++] = e;
+        }
+    }
+
+    /**
+     * Getter for the number of nodes.
+     * @return the number of nodes (intersections) of the graph
+     */
+    public int getNbNodes() {
+        return nbNodes;
+    }
+
+    /**
+     * Getter for the number of edges.
+     * @return the number of edges (segments) of the graph
+     */
+    public int getNbEdges() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the latitude of a node.
+     * @param node the node id
+     * @return the latitude of the intersection
+     */
+    public double getLatitude(int node) {
+        return latitudes[node];
+    }
+
+    /**
+     * Returns the longitude of a node.
+     * @param node the node id
+     * @return the longitude of the intersection
+     */
+    public double getLongitude(int node) {
+        return longitudes[node];
+    }
+
+    /**
+     * Returns the first edge leaving a node.
+     * @param node the node id
+     * @return the index of the first edge leaving the node
+     */
+    public int getFirstEdge(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * Returns the end (exclusive) of the edges leaving a node.
+     * @param node the node id
+     * @return the index following the last edge leaving the node
+     */
+    public int getEndEdge(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * Returns the first entry of the edges entering a node.
+     * @param node the node id
+     * @return the index of the first incoming entry of the node
+     */
+    public int getFirstIncoming(int node) {
+        return reverseOffsets[node];
+    }
+
+    /**
+     * Returns the end (exclusive) of the entries of the edges entering a node.
+     * @param node the node id
+     * @return the index following the last incoming entry of the node
+     */
+    public int getEndIncoming(int node) {
+        return reverseOffsets[node + 1];
+    }
+
+    /**
+     * Returns the edge of an incoming entry.
+     * @param entry the index of the incoming entry
+     * @return the index of the edge
+     */
+    public int getIncomingEdge(int entry) {
+        return incomingEdges[entry];
+    }
+
+    /**
+     * Returns the origin node of an edge.
+     * @param edge the edge index
+     * @return the origin node id
+     */
+    public int getOrigin(int edge) {
+        return origins[edge];
+    }
+
+    /**
+     * Returns the destination node of an edge.
+     * @param edge the edge index
+     * @return the destination node id
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Returns the length of an edge.
+     * @param edge the edge index
+     * @return the length of the edge
+     */
+    public double getLength(int edge) {
+        return lengths[edge];
+    }
+
+    /**
+     * Returns the index of the Segment represented by an edge.
+     * @param edge the edge index
+     * @return the index of the segment in the list of segments of the map
+     */
+    public int getSegmentIndex(int edge) {
+        return segmentIndex[edge];
+    }
+
+    /**
+     * Finds the edge going from a node to another.
+     * @param origin the origin node id
+     * @param destination the destination node id
+     * @return the index of the linking edge, -1 if there is none
+     */
+    public int findEdge(int origin, int destination) {
+        for (int e = offsets[origin]; e < offsets[origin + 1]; e++) {
+            if (targets[e] == destination) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "RoadGraph{" + "nbNodes=" + nbNodes + ", nbEdges=" + targets.length + '}';
+    }
+}
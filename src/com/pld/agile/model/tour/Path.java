@@ -9,6 +9,7 @@ package com.pld.agile.model.tour;
 import com.pld.agile.model.map.Segment;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 public class Path {
 
@@ -17,6 +18,12 @@ public class Path {
      */
     private List<Segment> segments;
 
+    /**
+     * Builds the segments the first time they are requested, null once they are built
+     * or if they were set directly.
+     */
+    private Supplier<List<Segment>> segmentsSupplier;
+
     /**
      * Length of path as calculated by dijkstra.
      */
@@ -47,6 +54,10 @@ public class Path {
      * @return segments
      */
     public List<Segment> getSegments() {
+        if (segmentsSupplier != null) {
+            segments = segmentsSupplier.get();
+            segmentsSupplier = null;
+        }
         return segments;
     }
 
@@ -56,6 +67,17 @@ public class Path {
      */
     public void setSegments(List<Segment> segments) {
         this.segments = segments;
+        this.segmentsSupplier = null;
+    }
+
+    /**
+     * Sets how the segments are built, which is only done the first time they are requested:
+     * most of the paths between stops are never displayed nor part of the tour.
+     * @param segmentsSupplier builds the list of segments
+     */
+    public void setLazySegments(Supplier<List<Segment>> segmentsSupplier) {
+        this.segments = null;
+        this.segmentsSupplier = segmentsSupplier;
     }
 
     /**
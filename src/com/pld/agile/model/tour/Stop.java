@@ -53,6 +53,14 @@ public class Stop extends Observable {
      * The stop is visited in stopNumber position
      */
     private int stopNumber;
+    /**
+     * The earliest time at which the stop can be served, null if there is none
+     */
+    private LocalTime earliestTime;
+    /**
+     * The latest time at which the stop can be served, null if there is none
+     */
+    private LocalTime latestTime;
 
     /**
      * Stop constructor.
@@ -170,6 +178,54 @@ public class Stop extends Observable {
      */
     public void setStopNumber(int stopNumber) { this.stopNumber = stopNumber; }
 
+    /**
+     * Getter for attribute earliestTime.
+     * @return earliestTime
+     */
+    public LocalTime getEarliestTime() { return earliestTime; }
+
+    /**
+     * Setter for attribute earliestTime.
+     * @param earliestTime the earliest time at which the stop can be served, null if there is none
+     */
+    public void setEarliestTime(LocalTime earliestTime) { this.earliestTime = earliestTime; }
+
+    /**
+     * Getter for attribute latestTime.
+     * @return latestTime
+     */
+    public LocalTime getLatestTime() { return latestTime; }
+
+    /**
+     * Setter for attribute latestTime.
+     * @param latestTime the latest time at which the stop can be served, null if there is none
+     */
+    public void setLatestTime(LocalTime latestTime) { this.latestTime = latestTime; }
+
+    /**
+     * @return whether the stop has an earliest or a latest time
+     */
+    public boolean hasTimeWindow() {
+        return earliestTime != null || latestTime != null;
+    }
+
+    /**
+     * @return the time at which the stop is served, after waiting for its earliest time if it is reached before
+     */
+    public LocalTime getServiceTime() {
+        if (arrivalTime == null || earliestTime == null || !arrivalTime.isBefore(earliestTime)) {
+            return arrivalTime;
+        }
+        return earliestTime;
+    }
+
+    /**
+     * @return whether the stop is served after its latest time
+     */
+    public boolean isLate() {
+        return latestTime != null && arrivalTime != null && getServiceTime().isAfter(latestTime);
+    }
+
     /**
      * Getter for attribute request.
      * @return request
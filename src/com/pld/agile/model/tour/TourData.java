@@ -8,33 +8,44 @@ package com.pld.agile.model.tour;
 
 import com.pld.agile.model.map.Intersection;
 import com.pld.agile.model.map.MapData;
-import com.pld.agile.model.map.Segment;
 import com.pld.agile.utils.exception.PathException;
 import com.pld.agile.utils.observer.Observable;
 import com.pld.agile.utils.observer.Observer;
 import com.pld.agile.utils.observer.UpdateType;
+import com.pld.agile.utils.routing.RoutingMode;
+import com.pld.agile.utils.routing.StopsGraphBuilder;
+import com.pld.agile.utils.tsp.CancellationToken;
 import com.pld.agile.utils.tsp.CompleteGraph;
+import com.pld.agile.utils.tsp.FleetSolver;
+import com.pld.agile.utils.tsp.LocalSearch;
 import com.pld.agile.utils.tsp.Graph;
-import com.pld.agile.utils.tsp.TemplateTSP;
+import com.pld.agile.utils.tsp.SolutionPublisher;
+import com.pld.agile.utils.tsp.SolverPortfolio;
+import com.pld.agile.utils.tsp.SubGraph;
 import com.pld.agile.utils.tsp.TSP;
 //import com.pld.agile.utils.tsp.TSP1;
 //import com.pld.agile.utils.tsp.TSP2;
-import com.pld.agile.utils.tsp.TSP3;
+import com.pld.agile.utils.tsp.TimeWindows;
 import javafx.application.Platform;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
 
 /**
  * Stores the data of a loaded requests list.
+ * With several couriers, the requests are split between their tours (see FleetSolver), all sharing the same
+ * stopsGraph: tourPaths is then the tour of the selected courier, the one which is edited.
  */
 public class TourData extends Observable implements Observer {
 
+    /**
+     * Speed of the bike, in meters per second.
+     */
+    private static final double SPEED = 15 / 3.6;
+
     /**
      * List of stops composing the tour.
      */
@@ -64,6 +75,60 @@ public class TourData extends Observable implements Observer {
      * The thread computing the tour (both dijkstra and tsp).
      */
     private Thread tourComputingThread;
+    /**
+     * The token cancelling the computation of the tour, a new one being created for each computing thread.
+     */
+    private volatile CancellationToken tourCancellation;
+    /**
+     * The largest number of intermediary tours displayed per second while the tour is computed.
+     */
+    private double intermediaryTourRate;
+    /**
+     * The number of shortest path searches run in parallel when computing the stopsGraph.
+     */
+    private int routingParallelism;
+    /**
+     * The number of threads searching the tour at the same time (by the branch and bound, or by racing solvers).
+     */
+    private int tspParallelism;
+    /**
+     * The time limit of the search of the tour in milliseconds, from which its solvers are chosen.
+     */
+    private int tspTimeLimit;
+    /**
+     * The builder computing the stopsGraph on the associated map.
+     */
+    private StopsGraphBuilder stopsGraphBuilder;
+    /**
+     * The algorithm finding the paths between two stops when a stop is moved
+     * (and filling the stopsGraph, in CONTRACTION_HIERARCHY mode).
+     */
+    private RoutingMode routingMode;
+    /**
+     * The moved stops whose Paths to and from the other stops in the stopsGraph have not been updated yet
+     * (only the Paths to and from their neighbours in the tour are).
+     */
+    private List<Stop> outdatedStops;
+    /**
+     * The number of couriers sharing the requests, each one doing its own tour.
+     */
+    private int nbCouriers;
+    /**
+     * The largest number of requests of a courier, 0 if there is none.
+     */
+    private int courierCapacity;
+    /**
+     * The time at which the couriers must be back at the warehouse, null if there is none.
+     */
+    private LocalTime shiftEndTime;
+    /**
+     * The tour of each courier, null if the tour has been computed for a single courier.
+     */
+    private List<List<Path>> courierTours;
+    /**
+     * The courier whose tour is tourPaths.
+     */
+    private int selectedCourier;
 
     /**
      * TourData constructor.
@@ -75,6 +140,14 @@ public class TourData extends Observable implements Observer {
         associatedMap = null;
         departureTime = null;
         warehouse = null;
+        routingParallelism = Runtime.getRuntime().availableProcessors();
+        tspParallelism = Runtime.getRuntime().availableProcessors();
+        tspTimeLimit = 120000;
+        tourCancellation = new CancellationToken();
+        intermediaryTourRate = SolutionPublisher.DEFAULT_MAX_RATE;
+        routingMode = RoutingMode.CONTRACTION_HIERARCHY;
+        outdatedStops = new ArrayList<>();
+        nbCouriers = 1;
     }
 
     /**
@@ -92,6 +165,190 @@ public class TourData extends Observable implements Observer {
         this.associatedMap = associatedMap;
     }
 
+    /**
+     * Getter for attribute tspParallelism.
+     * @return tspParallelism
+     */
+    public int getTspParallelism() {
+        return tspParallelism;
+    }
+    /**
+     * Setter for attribute tspParallelism.
+     * @param tspParallelism the number of threads searching the tour at the same time (at least 1)
+     */
+    public void setTspParallelism(int tspParallelism) {
+        this.tspParallelism = Math.max(1, tspParallelism);
+    }
+
+    /**
+     * Getter for attribute tspTimeLimit.
+     * @return tspTimeLimit
+     */
+    public int getTspTimeLimit() {
+        return tspTimeLimit;
+    }
+    /**
+     * Setter for attribute tspTimeLimit.
+     * @param tspTimeLimit the time limit of the search of the tour in milliseconds (at least 1)
+     */
+    public void setTspTimeLimit(int tspTimeLimit) {
+        this.tspTimeLimit = Math.max(1, tspTimeLimit);
+    }
+
+    /**
+     * Getter for attribute intermediaryTourRate.
+     * @return intermediaryTourRate
+     */
+    public double getIntermediaryTourRate() {
+        return intermediaryTourRate;
+    }
+    /**
+     * Setter for attribute intermediaryTourRate.
+     * @param intermediaryTourRate the largest number of intermediary tours displayed per second, 0 if there is none
+     */
+    public void setIntermediaryTourRate(double intermediaryTourRate) {
+        this.intermediaryTourRate = Math.max(0, intermediaryTourRate);
+    }
+
+    /**
+     * Getter for attribute nbCouriers.
+     * @return nbCouriers
+     */
+    public int getNbCouriers() {
+        return nbCouriers;
+    }
+    /**
+     * Setter for attribute nbCouriers.
+     * @param nbCouriers the number of couriers sharing the requests (at least 1)
+     */
+    public void setNbCouriers(int nbCouriers) {
+        this.nbCouriers = Math.max(1, nbCouriers);
+    }
+
+    /**
+     * Getter for attribute courierCapacity.
+     * @return courierCapacity
+     */
+    public int getCourierCapacity() {
+        return courierCapacity;
+    }
+    /**
+     * Setter for attribute courierCapacity.
+     * @param courierCapacity the largest number of requests of a courier, 0 if there is none
+     */
+    public void setCourierCapacity(int courierCapacity) {
+        this.courierCapacity = Math.max(0, courierCapacity);
+    }
+
+    /**
+     * Getter for attribute shiftEndTime.
+     * @return shiftEndTime
+     */
+    public LocalTime getShiftEndTime() {
+        return shiftEndTime;
+    }
+    /**
+     * Setter for attribute shiftEndTime.
+     * @param shiftEndTime the time at which the couriers must be back at the warehouse, null if there is none
+     */
+    public void setShiftEndTime(LocalTime shiftEndTime) {
+        this.shiftEndTime = shiftEndTime;
+    }
+
+    /**
+     * Returns the tour of each courier, the tour of the selected courier being tourPaths.
+     * @return the tours of the couriers, only tourPaths if the tour has been computed for a single courier
+     */
+    public List<List<Path>> getCourierTours() {
+        return courierTours == null ? List.of(tourPaths) : courierTours;
+    }
+
+    /**
+     * Getter for attribute selectedCourier.
+     * @return selectedCourier
+     */
+    public int getSelectedCourier() {
+        return selectedCourier;
+    }
+
+    /**
+     * Selects the courier whose tour is edited, and notifies the view.
+     * @param courier the index of the courier in the courier tours
+     */
+    public void selectCourier(int courier) {
+        if (courierTours != null && courier >= 0 && courier < courierTours.size() && courier != selectedCourier) {
+            selectedCourier = courier;
+            tourPaths = courierTours.get(courier);
+            setStopsTimesAndNumbers();
+            notifyObservers(UpdateType.TOUR);
+        }
+    }
+
+    /**
+     * Returns the courier visiting a stop.
+     * @param stop a stop of one of the courier tours
+     * @return the index of the courier in the courier tours, the selected one if no courier visits the stop
+     */
+    public int getCourierOf(Stop stop) {
+        if (courierTours != null) {
+            for (int courier = 0; courier < courierTours.size(); courier++) {
+                if (courierTours.get(courier).stream().anyMatch(path -> path.getDestination() == stop)) {
+                    return courier;
+                }
+            }
+        }
+        return selectedCourier;
+    }
+
+    /**
+     * Selects the courier visiting a stop, without notifying the view.
+     * @param stop a stop of one of the courier tours
+     */
+    private void selectCourierOf(Stop stop) {
+        if (courierTours != null) {
+            selectedCourier = getCourierOf(stop);
+            tourPaths = courierTours.get(selectedCourier);
+        }
+    }
+
+    /**
+     * Getter for attribute routingParallelism.
+     * @return routingParallelism
+     */
+    public int getRoutingParallelism() {
+        return routingParallelism;
+    }
+    /**
+     * Setter for attribute routingParallelism.
+     * @param routingParallelism the number of shortest path searches run in parallel (at least 1)
+     */
+    public void setRoutingParallelism(int routingParallelism) {
+        this.routingParallelism = Math.max(1, routingParallelism);
+        if (stopsGraphBuilder != null) {
+            stopsGraphBuilder.shutdown();
+            stopsGraphBuilder = null;
+        }
+    }
+
+    /**
+     * Getter for attribute routingMode.
+     * @return routingMode
+     */
+    public RoutingMode getRoutingMode() {
+        return routingMode;
+    }
+    /**
+     * Setter for attribute routingMode.
+     * @param routingMode the algorithm finding the paths between two stops when a stop is moved
+     */
+    public void setRoutingMode(RoutingMode routingMode) {
+        this.routingMode = routingMode;
+        if (stopsGraphBuilder != null) {
+            stopsGraphBuilder.shutdown();
+            stopsGraphBuilder = null;
+        }
+    }
+
     /**
      * Getter for attribute warehouse.
      * @return warehouse
@@ -128,6 +385,8 @@ public class TourData extends Observable implements Observer {
      */
     public void setTourPaths(List<Path> tourPaths) {
         this.tourPaths = tourPaths;
+        this.courierTours = null;
+        this.selectedCourier = 0;
     }
 
     /**
@@ -136,14 +395,17 @@ public class TourData extends Observable implements Observer {
      */
     public void setStopsGraph(Graph stopsGraph) {
         this.stopsGraph = stopsGraph;
+        this.outdatedStops.clear();
     }
 
     /**
-     * Setter for attribute tourComputingThread.
+     * Setter for attribute tourComputingThread, which starts a new computation of the tour
+     * (with its own cancellation token).
      * @param tourComputingThread tour' computingThread
      */
     public void setTourComputingThread(Thread tourComputingThread) {
         this.tourComputingThread = tourComputingThread;
+        this.tourCancellation = new CancellationToken();
     }
 
     /**
@@ -189,7 +451,8 @@ public class TourData extends Observable implements Observer {
     }
 
     /**
-     * Adds the latest request at the given order positions (by computing dijkstra again and repopulating the tourPaths list).
+     * Adds the latest request at the given order positions (by computing the paths from and to its stops
+     * and repopulating the tourPaths list).
      * @param pickupNumber The order position of the pickup
      * @param deliveryNumber The order position of the delivery
      * @throws PathException If computing dijkstra with the new request caused an exception.
@@ -199,7 +462,7 @@ public class TourData extends Observable implements Observer {
         Stop newPickup = stopsList.get(stopsList.size() - 2);
         Stop newDelivery = stopsList.get(stopsList.size() - 1);
 
-        dijkstra();
+        addLatestStopsToGraph(2);
 
         //Build a list of all the stops in the tour in order
         ArrayList<Stop> tourStops = new ArrayList<>();
@@ -211,27 +474,29 @@ public class TourData extends Observable implements Observer {
         tourStops.add(pickupNumber, newPickup);
         tourStops.add(deliveryNumber, newDelivery);
 
-        //Reconstruct tourPaths
-        tourPaths.clear();
-        int n = tourStops.size();
-        for (int i = 0; i < n; i++) {
-            int indexOrigin = tourStops.get(i).getId();
-            int indexDestination = tourStops.get((i + 1) % n).getId();
-            Path path = stopsGraph.getPath(indexOrigin, indexDestination);
-            tourPaths.add(path);
-        }
+        setTourStops(tourStops);
 
-        updateStopsTimesAndNumbers();
+    }
 
+    /**
+     * Adds the latest request to the tour, the tour then visiting the given stops in order
+     * (used to restore the tour saved by getTourStops before the request was deleted).
+     * @param tourStops The stops of the tour in order of visit from the warehouse, including the latest request's.
+     * @throws PathException If computing dijkstra with the new request caused an exception.
+     */
+    public void addLatestRequest(List<Stop> tourStops) throws PathException {
+        addLatestStopsToGraph(2);
+        setTourStops(tourStops);
     }
 
     /**
-     * Adds the latest request at the end of the tour (by computing dijkstra again and repopulating the tourPaths list).
+     * Adds the latest request at the end of the tour (by computing the paths from and to its stops
+     * and repopulating the tourPaths list).
      * @throws PathException If computing dijkstra with the new request caused an exception.
      */
     public void addLatestRequest() throws PathException {
 
-        dijkstra();
+        addLatestStopsToGraph(2);
 
         if (tourPaths.size() > 2) {
             tourPaths.remove(tourPaths.size() - 1);
@@ -252,6 +517,8 @@ public class TourData extends Observable implements Observer {
             tourPaths.add(deliveryToWarehouse);
         }
 
+        // The new request is only appended to the tour, the local search moves it to a better place
+        improveTour();
         updateStopsTimesAndNumbers();
 
     }
@@ -266,15 +533,45 @@ public class TourData extends Observable implements Observer {
     }
 
     /**
-     * Removes a request from the tour.
+     * Removes a request from the tour, the order of the remaining stops being then improved by a local search.
      * @param request The request to be removed.
      */
     public void deleteRequest(Request request) {
+        if (removeRequest(request)) {
+            improveTour();
+            updateStopsTimesAndNumbers();
+        } else {
+            notifyObservers(UpdateType.TOUR);
+        }
+    }
+
+    /**
+     * Removes a request from the tour, the tour then visiting the given stops in order
+     * (used to restore the tour saved by getTourStops before the request was added).
+     * @param request The request to be removed.
+     * @param tourStops The stops of the tour in order of visit from the warehouse, without the request's.
+     */
+    public void deleteRequest(Request request, List<Stop> tourStops) {
+        removeRequest(request);
+        setTourStops(tourStops);
+    }
+
+    /**
+     * Removes a request from the tour of its courier, from the stopsGraph and from the list of stops.
+     * @param request The request to be removed.
+     * @return Whether stops are left in the tour.
+     */
+    private boolean removeRequest(Request request) {
 
         Stop pickup = request.getPickup();
         Stop delivery = request.getDelivery();
         Stop currentOrigin = null;
         Stop currentDestination;
+        selectCourierOf(pickup);
+
+        // The paths to and from the deleted stops are not needed anymore
+        outdatedStops.remove(pickup);
+        outdatedStops.remove(delivery);
 
         for (int i = 0; i < tourPaths.size(); i++) {
             Path path = tourPaths.get(i);
@@ -296,7 +593,7 @@ public class TourData extends Observable implements Observer {
                 }
 
                 //Find new path
-                Path newPath = stopsGraph.getPath(currentOrigin.getId(), currentDestination.getId());
+                Path newPath = getStopsPath(currentOrigin, currentDestination);
 
                 //Insert in position i
                 tourPaths.add(i, newPath);
@@ -316,22 +613,53 @@ public class TourData extends Observable implements Observer {
 
         }
 
+        // Remove the stops' vertices from the stopsGraph, the remaining vertices keep matching the stop IDs
+        if (stopsGraph instanceof CompleteGraph graph && graph.getNbVertices() == stopsList.size()) {
+            stopsGraph = graph.withoutVertices(pickup.getId(), delivery.getId());
+        }
+
         // Remove from stops list, decrease Stop Id counter
         stopsList.removeIf(pickup::equals);
         stopsList.removeIf(delivery::equals);
         recomputeStopIDs();
 
         if (tourPaths.size() != 1 || tourPaths.get(0) != null) {
-            updateStopsTimesAndNumbers();
-        } else {
-            Path emptyPath = new Path(stopsList.get(0), stopsList.get(0));
-            emptyPath.setSegments(new ArrayList<>());
-            emptyPath.setLength(0);
-            tourPaths.add(emptyPath);
-            tourPaths.remove(tourPaths.get(0));
-            notifyObservers(UpdateType.TOUR);
+            return true;
         }
+        tourPaths.add(emptyTourPath());
+        tourPaths.remove(tourPaths.get(0));
+        return false;
+
+    }
 
+    /**
+     * Returns the stops of the tour in order of visit, to restore it later with setTourStops.
+     * @return the stops of the tour, starting with the warehouse
+     */
+    public List<Stop> getTourStops() {
+        List<Stop> tourStops = new ArrayList<>();
+        for (Path path : tourPaths) {
+            tourStops.add(path.getOrigin());
+        }
+        return tourStops;
+    }
+
+    /**
+     * Rebuilds the tour so that it visits the given stops in order, and notifies the view.
+     * @param tourStops the stops of the tour in order of visit, starting with the warehouse
+     */
+    public void setTourStops(List<Stop> tourStops) {
+        // Rebuilt in place, the list being the tour of its courier
+        tourPaths.clear();
+        int n = tourStops.size();
+        if (n == 1) {
+            tourPaths.add(emptyTourPath());
+        } else {
+            for (int i = 0; i < n; i++) {
+                tourPaths.add(getStopsPath(tourStops.get(i), tourStops.get((i + 1) % n)));
+            }
+        }
+        updateStopsTimesAndNumbers();
     }
 
     /**
@@ -383,6 +711,7 @@ public class TourData extends Observable implements Observer {
     public boolean shiftStopOrder(Stop stop, int dir) {
 
         int stopIndex = 0;
+        selectCourierOf(stop);
 
         //Build a list of all the stops in the tour in order
         ArrayList<Stop> tourStops = new ArrayList<>();
@@ -404,9 +733,7 @@ public class TourData extends Observable implements Observer {
             tourPaths.clear();
             int n = tourStops.size() - 1;
             for (int i = 0; i < n; i++) {
-                int indexOrigin = tourStops.get(i).getId();
-                int indexDestination = tourStops.get((i + 1) % n).getId();
-                Path path = stopsGraph.getPath(indexOrigin, indexDestination);
+                Path path = getStopsPath(tourStops.get(i), tourStops.get((i + 1) % n));
                 tourPaths.add(path);
             }
 
@@ -426,17 +753,41 @@ public class TourData extends Observable implements Observer {
      */
     public void moveStop(Stop stop, Intersection newIntersection) throws PathException {
 
+        Intersection oldIntersection = stop.getAddress();
         stop.setAddress(newIntersection);
-        dijkstra();
+        selectCourierOf(stop);
+
+        if (!(stopsGraph instanceof CompleteGraph graph) || graph.getNbVertices() != stopsList.size()) {
+            dijkstra();
+        } else if (tourPaths.stream().noneMatch(path -> path.getDestination() == stop)) {
+            // Without neighbours in the tour, the whole row and column are needed to check the stop is reachable
+            getStopsGraphBuilder().update(graph, stopsList, stop.getId());
+        } else if (!outdatedStops.contains(stop)) {
+            outdatedStops.add(stop);
+        }
 
         for (int i = 0; i < tourPaths.size(); i++) {
             if (tourPaths.get(i).getDestination() == stop) {
-                int stopIdBefore = tourPaths.get(i).getOrigin().getId();
-                int stopIdAfter = tourPaths.get(i + 1).getDestination().getId();
+                Stop stopBefore = tourPaths.get(i).getOrigin();
+                Stop stopAfter = tourPaths.get(i + 1).getDestination();
+
+                // Only the two paths of the tour are searched, the stopsGraph is completed when needed
+                Path pathBefore;
+                Path pathAfter;
+                try {
+                    pathBefore = getStopsGraphBuilder().findPath(stopBefore, stop);
+                    pathAfter = getStopsGraphBuilder().findPath(stop, stopAfter);
+                } catch (PathException e) {
+                    stop.setAddress(oldIntersection);
+                    throw e;
+                }
+                setStopsPath(pathBefore);
+                setStopsPath(pathAfter);
+
                 tourPaths.remove(tourPaths.get(i));
                 tourPaths.remove(tourPaths.get(i));
-                tourPaths.add(i, stopsGraph.getPath(stopIdBefore, stop.getId()));
-                tourPaths.add(i + 1, stopsGraph.getPath(stop.getId(), stopIdAfter));
+                tourPaths.add(i, pathBefore);
+                tourPaths.add(i + 1, pathAfter);
             }
         }
 
@@ -458,6 +809,10 @@ public class TourData extends Observable implements Observer {
      */
     public void setStopsList(List<Stop> stopsList) {
         this.stopsList = stopsList;
+        this.stopsGraph = null;
+        this.outdatedStops.clear();
+        this.courierTours = null;
+        this.selectedCourier = 0;
         notifyObservers(UpdateType.REQUESTS);
     }
 
@@ -471,22 +826,38 @@ public class TourData extends Observable implements Observer {
 
     /**
      * Computes a tour, by first computing the paths between all stops with dijkstra,
-     * then finding the best tour with tsp.
+     * then finding the best tour with tsp (or the tour of each courier, with several couriers).
+     * Returns early, without computing the tour, if the computation is cancelled by stopComputingTour.
      * @throws PathException If computing dijkstra caused an exception.
      */
     public void computeTour() throws PathException {
-        dijkstra();
-        tsp();
+        CancellationToken cancellation = tourCancellation;
+        try {
+            dijkstra(cancellation);
+        } catch (CancellationException e) {
+            return;
+        }
+        if (nbCouriers > 1) {
+            fleet(cancellation);
+        } else {
+            tsp(cancellation);
+        }
     }
 
     /**
-     * Stops the thread computing the tour, is only effective if tsp has returned an intermediary result
-     * (in which case, that result will become effective). Otherwise, the thread is not interrupted yet.
-     * @return Whether the thread has indeed been interrupted or not.
+     * Stops the thread computing the tour: the routing and the solvers check the cancellation token
+     * in their loops, so they return within milliseconds. If tsp has returned an intermediary result,
+     * that result becomes effective.
+     * @return Whether a tour has been kept or not.
      */
     public boolean stopComputingTour() {
-        if (tourPaths.size() > 0) {
+        tourCancellation.cancel();
+        if (tourComputingThread != null) {
             tourComputingThread.interrupt();
+        }
+        if (tourPaths.size() > 0) {
+            improveTour();
+            setStopsTimesAndNumbers();
             notifyObservers(UpdateType.TOUR);
             return true;
         }
@@ -494,157 +865,221 @@ public class TourData extends Observable implements Observer {
     }
 
     /**
-     * Executes the dijkstra algotihm on the list of stops and populates the stopGraph
-     * by constructing the Paths between each stop.
+     * Computes the shortest paths between each pair of stops and populates the stopsGraph
+     * with the Paths between them (one dijkstra search per stop run in parallel, or a single
+     * many-to-many query in CONTRACTION_HIERARCHY mode).
      * @throws PathException If one of the Paths could not be constructed from the dijkstra results.
      */
     private void dijkstra() throws PathException {
+        dijkstra(new CancellationToken());
+    }
 
-        ArrayList<Integer> stops = new ArrayList<>();
-        for (Stop s : stopsList) {
-            stops.add(s.getAddress().getId());
-        }
-
-        int nbIntersections = associatedMap.getIntersections().size();
-        int[][] predecessors = new int[stopsList.size()][nbIntersections];
-        stopsGraph = new CompleteGraph(stopsList.size());
+    /**
+     * Computes the shortest paths between each pair of stops and populates the stopsGraph,
+     * unless the computation is cancelled (the stopsGraph is then left as it was).
+     * @param cancellation the token cancelling the computation
+     * @throws PathException If one of the Paths could not be constructed from the dijkstra results.
+     * @throws CancellationException If the computation has been cancelled.
+     */
+    private void dijkstra(CancellationToken cancellation) throws PathException {
+        stopsGraph = getStopsGraphBuilder().build(stopsList, cancellation);
+        outdatedStops.clear();
+    }
 
-        int stopIndex = 0; // need index of currStop in the list stops to fill predecessors
+    /**
+     * Updates the stopsGraph after stops have been appended to the stops list, by only computing
+     * the Paths from and to the new stops. The whole graph is computed if the current one
+     * does not match the other stops.
+     * @param nbAddedStops the number of stops appended to the stops list
+     * @throws PathException If one of the Paths could not be constructed from the dijkstra results.
+     */
+    private void addLatestStopsToGraph(int nbAddedStops) throws PathException {
+        int n = stopsList.size();
+        if (stopsGraph instanceof CompleteGraph graph && graph.getNbVertices() == n - nbAddedStops) {
+            CompleteGraph newGraph = new CompleteGraph(graph, n);
+            // The moved stops are updated along with the new ones
+            int nbOutdatedStops = outdatedStops.size();
+            int[] changedStops = new int[nbOutdatedStops + nbAddedStops];
+            for (int i = 0; i < nbOutdatedStops; i++) {
+                changedStops[i] = outdatedStops.get(i).getId();
+            }
+            for (int i = 0; i < nbAddedStops; i++) {
+                changedStops[nbOutdatedStops + i] = n - nbAddedStops + i;
+            }
+            getStopsGraphBuilder().update(newGraph, stopsList, changedStops);
+            stopsGraph = newGraph;
+            outdatedStops.clear();
+        } else {
+            dijkstra();
+        }
+    }
 
-        for (int currStopId : stops) {
+    /**
+     * Stores a Path found by a point-to-point search in the stopsGraph.
+     * @param path the Path between two stops
+     */
+    private void setStopsPath(Path path) {
+        CompleteGraph graph = (CompleteGraph) stopsGraph;
+        graph.setPath(path.getOrigin().getId(), path.getDestination().getId(), path);
+        graph.setCost(path.getOrigin().getId(), path.getDestination().getId(), path.getLength());
+    }
 
-            // Current Stop Variables
-            double[] dist = new double[nbIntersections]; //index = intersection id in map data
-            int[] pi = new int[nbIntersections]; //index = intersection id in map data
-            Set<Integer> settled = new HashSet<>();
+    /**
+     * Returns the Path between two stops, from the stopsGraph or, if one of them has been moved since
+     * the stopsGraph was computed, from a single point-to-point search (stored in the stopsGraph).
+     * The moved stops are always reachable: a moved stop is reachable from its predecessor in the tour
+     * and reaches its successor, which were both linked to every other stop.
+     * @param origin the origin stop
+     * @param destination the destination stop
+     * @return the Path from origin to destination
+     */
+    private Path getStopsPath(Stop origin, Stop destination) {
+        if (!outdatedStops.contains(origin) && !outdatedStops.contains(destination)) {
+            return stopsGraph.getPath(origin.getId(), destination.getId());
+        }
+        try {
+            Path path = getStopsGraphBuilder().findPath(origin, destination);
+            setStopsPath(path);
+            return path;
+        } catch (PathException e) {
+            throw new IllegalStateException("Moved stop unreachable from the other stops", e);
+        }
+    }
 
-            PriorityQueue<Integer> pq = new PriorityQueue<>(
-                (o1, o2) -> {
-                    if (dist[o1] < dist[o2]) {
-                        return -1;
-                    }
-                    if (dist[o1] > dist[o2]) {
-                        return 1;
-                    }
-                    return 0;
-                }
-            );
+    /**
+     * Improves the order of the current tour with a LocalSearch on the costs of the stopsGraph,
+     * after the moved stops have been updated in it. Nothing is done if the stopsGraph does not match the stops.
+     * The tour of a courier is improved on the SubGraph of its stops.
+     */
+    private void improveTour() {
+        int n = stopsList.size();
+        int m = tourPaths.size();
+        if (!(stopsGraph instanceof CompleteGraph graph) || graph.getNbVertices() != n || m < 3 || m > n
+                || tourPaths.contains(null)) {
+            return;
+        }
+        if (!outdatedStops.isEmpty()) {
+            int[] changedStops = outdatedStops.stream().mapToInt(Stop::getId).toArray();
+            try {
+                getStopsGraphBuilder().update(graph, stopsList, changedStops);
+            } catch (PathException e) {
+                throw new IllegalStateException("Moved stop unreachable from the other stops", e);
+            }
+            outdatedStops.clear();
+        }
 
-            // Dist initialization
-            for (int i = 0; i < nbIntersections; i++) {
-                dist[i] = Double.MAX_VALUE;
+        // The stops of the tour by increasing ID, so that each pickup is followed by its delivery
+        int[] vertices = tourPaths.stream().mapToInt(path -> path.getOrigin().getId()).sorted().toArray();
+        int[] localVertices = new int[n];
+        for (int k = 0; k < m; k++) {
+            localVertices[vertices[k]] = k;
+        }
+        int[] tour = new int[m];
+        for (int i = 0; i < m; i++) {
+            tour[i] = localVertices[tourPaths.get(i).getOrigin().getId()];
+        }
+        TimeWindows timeWindows = getTimeWindows();
+        LocalSearch localSearch = new LocalSearch(new SubGraph(graph, vertices),
+                timeWindows == null ? null : timeWindows.restrictedTo(vertices));
+        if (tour[0] == 0 && vertices[0] == 0 && localSearch.improve(tour)) {
+            // Rebuilt in place, the list being the tour of its courier
+            tourPaths.clear();
+            for (int i = 0; i < m; i++) {
+                tourPaths.add(graph.getPath(vertices[tour[i]], vertices[tour[(i + 1) % m]]));
             }
-            dist[currStopId] = 0; // distance to current stop is 0
-
-            pi[currStopId] = currStopId; //null, starting stop won't have predecessors
-            pq.add(currStopId);
-
-            int nbStopCalculated = 0;
-
-            while (nbStopCalculated != stopsList.size()) {
-
-                    if (pq.isEmpty()) {
-                        break;
-                    }
-
-                    int node = pq.remove();
-
-                    for (Segment road : associatedMap.getIntersections().get(node).getOriginOf()) {
-                        int nextNode = road.getDestination().getId();
-                        if (!settled.contains(nextNode)) {
-                            double distance = dist[nextNode];
-                            if (distance > dist[node] + road.getLength()) {
-                                distance = dist[node] + road.getLength();
-                                dist[nextNode] = distance;
-                                pi[nextNode] = node;
-                            }
-                            if (!pq.contains(nextNode)) {
-                                pq.add(nextNode);
-                            } else {
-                                pq.remove(nextNode);
-                                pq.add(nextNode);
-                            }
-                        }
-                    }
-
-                    settled.add(node);
-
-                    if (stops.contains(node)) {
-                        nbStopCalculated++;
-                    }
+        }
+    }
+
+    /**
+     * Returns the builder computing the stopsGraph, creating it if the associated map,
+     * the parallelism level or the routing mode has changed since it was created.
+     * @return the StopsGraphBuilder of the associated map
+     */
+    private StopsGraphBuilder getStopsGraphBuilder() {
+        if (stopsGraphBuilder == null || stopsGraphBuilder.getMap() != associatedMap) {
+            if (stopsGraphBuilder != null) {
+                stopsGraphBuilder.shutdown();
             }
+            stopsGraphBuilder = new StopsGraphBuilder(associatedMap, routingParallelism, routingMode);
+        }
+        return stopsGraphBuilder;
+    }
 
+    /**
+     * Returns the time windows of the stops, in seconds since the departure time, with the vertex numbering
+     * of the stopsGraph (the index of the stops in the stops list), the end of the shift being the latest return.
+     * @return the TimeWindows of the stops, null if none of them has a time window and the shift has no end
+     */
+    public TimeWindows getTimeWindows() {
+        if (departureTime == null || (shiftEndTime == null && stopsList.stream().noneMatch(Stop::hasTimeWindow))) {
+            return null;
+        }
+        int n = stopsList.size();
+        long[] earliestTimes = new long[n];
+        long[] latestTimes = new long[n];
+        long[] durations = new long[n];
+        for (int i = 0; i < n; i++) {
+            Stop stop = stopsList.get(i);
+            earliestTimes[i] = stop.getEarliestTime() == null ? 0
+                    : stop.getEarliestTime().toSecondOfDay() - departureTime.toSecondOfDay();
+            latestTimes[i] = stop.getLatestTime() == null ? TimeWindows.NO_LATEST_TIME
+                    : stop.getLatestTime().toSecondOfDay() - departureTime.toSecondOfDay();
+            durations[i] = stop.getDuration();
+        }
+        // The latest time of the warehouse is the latest return
+        if (shiftEndTime != null && n > 0) {
+            latestTimes[0] = shiftEndTime.toSecondOfDay() - departureTime.toSecondOfDay();
+        }
+        return new TimeWindows(earliestTimes, latestTimes, durations, SPEED);
+    }
 
-            // Save computed data
-            for (int i = 0; i < nbIntersections; i++) {
-                predecessors[stopIndex][i] = pi[i];
-            }
+    /**
+     * Returns a path from the warehouse to itself, the tour of a courier without requests.
+     * @return the empty path
+     */
+    private Path emptyTourPath() {
+        Path emptyPath = new Path(stopsList.get(0), stopsList.get(0));
+        emptyPath.setSegments(new ArrayList<>());
+        emptyPath.setLength(0);
+        return emptyPath;
+    }
 
-            Stop currStop = stopsList.get(stopIndex);
-            for (int i = 0; i < stopsList.size(); i++) {
-
-                if (i != stopIndex) {
-
-                    List<Segment> pathSegments = new ArrayList<>();
-
-                    // Add initial segment
-                    Intersection initialIntersection = associatedMap.getIntersections().get(stops.get(i));
-                    int predecessor = predecessors[stopIndex][stops.get(i)];
-                    Intersection currIntersection = associatedMap.getIntersections().get(predecessor);
-                    Segment segmentTo = currIntersection.findSegmentTo(initialIntersection);
-                    if (!currIntersection.equals(initialIntersection) && segmentTo == null) {
-                        throw new PathException("Unable to compute paths for this request");
-                    }
-                    pathSegments.add(segmentTo);
-                    Stop nextStop = stopsList.get(i);
-                    Path path = new Path(currStop, nextStop);
-
-                    // Get intermediary segments
-                    while (predecessor != stops.get(stopIndex)) {
-                        predecessor = predecessors[stopIndex][predecessor];
-                        Intersection nextIntersection = associatedMap.getIntersections().get(predecessor);
-                        segmentTo = nextIntersection.findSegmentTo(currIntersection);
-                        if (!currIntersection.equals(nextIntersection) && segmentTo == null) {
-                            throw new PathException("Unable to compute paths for this request");
-                        }
-                        pathSegments.add(segmentTo);
-                        currIntersection = associatedMap.getIntersections().get(predecessor);
-                    }
-
-                    // Store info in path and save it
-                    Collections.reverse(pathSegments);
-                    path.setSegments(pathSegments);
-                    path.setLength(dist[stops.get(i)]);
-                    stopsGraph.setPath(stopIndex, i, path);
-                    stopsGraph.setCost(stopIndex, i, dist[stops.get(i)]);
+    /**
+     * Sets the stopNumber and departure / arrival time attributes of each Stop of the courier tours,
+     * the selected one last, as the warehouse is shared.
+     */
+    private void setStopsTimesAndNumbers() {
+        if (courierTours != null) {
+            for (List<Path> paths : courierTours) {
+                if (paths != tourPaths) {
+                    setStopsTimesAndNumbers(paths);
                 }
-
             }
-            stopIndex++;
-
         }
-
+        setStopsTimesAndNumbers(tourPaths);
     }
 
     /**
-     * Sets the stopNumber and departure / arrival time attributes of each Stop
+     * Sets the stopNumber and departure / arrival time attributes of each Stop of a tour
      * based on their order in the list, their duration, the departure time, and the bike's speed.
+     * A stop reached before its earliest time is served at its earliest time.
+     * @param paths the Paths composing the tour
      */
-    private void setStopsTimesAndNumbers() {
+    private void setStopsTimesAndNumbers(List<Path> paths) {
 
         LocalTime currentTime = departureTime;
-        for (int i = 0; i < tourPaths.size(); i++) {
-            Stop currentStop = tourPaths.get(i).getOrigin();
+        for (int i = 0; i < paths.size(); i++) {
+            Stop currentStop = paths.get(i).getOrigin();
             currentStop.setStopNumber(i);
             currentStop.setArrivalTime(currentTime);
-            currentTime = currentTime.plusSeconds(currentStop.getDuration());
+            currentTime = currentStop.getServiceTime().plusSeconds(currentStop.getDuration());
             currentStop.setDepartureTime(currentTime);
-            double d = tourPaths.get(i).getLength();
-            int t = (int) (d / (15 / 3.6)) + 1;
+            double d = paths.get(i).getLength();
+            int t = (int) (d / SPEED) + 1;
             currentTime = currentTime.plusSeconds(t);
         }
-        if (tourPaths.size() > 0) {
-            Stop currentStop = tourPaths.get(tourPaths.size() - 1).getDestination();
+        if (paths.size() > 0) {
+            Stop currentStop = paths.get(paths.size() - 1).getDestination();
             currentStop.setStopNumber(0);
             currentStop.setArrivalTime(currentTime);
         }
@@ -661,8 +1096,9 @@ public class TourData extends Observable implements Observer {
 
     /**
      * Executes the tsp algorithm on the graph of stops.
+     * @param cancellation the token cancelling the search
      */
-    private void tsp() {
+    private void tsp(CancellationToken cancellation) {
 
         /*
         Branch & Bound :
@@ -673,47 +1109,118 @@ public class TourData extends Observable implements Observer {
              Best Algo -> Limited Discrepancy Search (LDS)
          */
 
-        TSP tsp = new TSP3(this);
+        // The portfolio chooses the solvers from the number of stops and the time limit: dynamic programming
+        // for the small tours, the branch and bound for the tours with time windows, and a large neighbourhood
+        // search for the larger ones, raced against the branch and bound when several threads are available
+        SolverPortfolio tsp = new SolverPortfolio(this);
+        tsp.setTimeWindows(getTimeWindows());
+        tsp.setParallelism(tspParallelism);
+        tsp.setCancellationToken(cancellation);
+        tsp.getPublisher().setMaxRate(intermediaryTourRate);
         long startTime = System.currentTimeMillis();
-        tsp.searchSolution(120000, stopsGraph);
+        tsp.searchSolution(tspTimeLimit, stopsGraph);
         Platform.runLater(() -> {
-            if (tourComputingThread != null && !tourComputingThread.isInterrupted()) {
-                System.out.println("TSP solution found in " + (System.currentTimeMillis() - startTime) + "ms");
+            if (tourComputingThread != null && !cancellation.isCancelled()) {
+                System.out.println("TSP solution found in " + (System.currentTimeMillis() - startTime) + "ms by "
+                        + tsp.getStrategies() + (tsp.isSolutionOptimal() ? " (optimal)" : ""));
                 processTSPUpdate(tsp);
+                // The branch and bound may have been stopped by its time limit before finding the best tour
+                improveTour();
+                setStopsTimesAndNumbers();
             }
         });
 
     }
 
     /**
-     * Processes a TSP result (algorithm giving an intermediary or final result)
-     * by populating tourPaths with the appropriate Paths from the stopsGraph
+     * Splits the requests between the couriers and searches their tours on the shared graph of stops.
+     * @param cancellation the token cancelling the search
+     */
+    private void fleet(CancellationToken cancellation) {
+        FleetSolver solver = new FleetSolver(stopsGraph, nbCouriers);
+        solver.setCapacity(courierCapacity);
+        solver.setTimeWindows(getTimeWindows());
+        solver.setParallelism(tspParallelism);
+        solver.setCancellationToken(cancellation);
+        long startTime = System.currentTimeMillis();
+        solver.searchSolution(tspTimeLimit);
+        Platform.runLater(() -> {
+            if (tourComputingThread != null && !cancellation.isCancelled()) {
+                System.out.println("Fleet solution found in " + (System.currentTimeMillis() - startTime) + "ms");
+                processFleetSolution(solver);
+            }
+        });
+    }
+
+    /**
+     * Processes the tours of the couriers by populating the courier tours with the appropriate Paths
+     * from the stopsGraph, the first courier being selected, and setting the stop's times / order of passage.
+     * @param solver The FleetSolver holding the tours
+     */
+    public void processFleetSolution(FleetSolver solver) {
+        System.out.println("Solution cost: " + solver.getSolutionCost());
+        courierTours = new ArrayList<>();
+        for (int courier = 0; courier < solver.getNbTours(); courier++) {
+            int[] tour = solver.getTour(courier);
+            List<Path> paths = new ArrayList<>();
+            if (tour.length == 1) {
+                paths.add(emptyTourPath());
+            } else {
+                for (int i = 0; i < tour.length; i++) {
+                    paths.add(stopsGraph.getPath(tour[i], tour[(i + 1) % tour.length]));
+                }
+            }
+            courierTours.add(paths);
+        }
+        selectedCourier = 0;
+        tourPaths = courierTours.get(0);
+        setStopsTimesAndNumbers();
+    }
+
+    /**
+     * Processes the final TSP result by populating tourPaths with the appropriate Paths from the stopsGraph
      * and setting the stop's times / order of passage.
      * @param tsp The TSP instance holding the result
      */
     public void processTSPUpdate(TSP tsp) {
-        System.out.println("Solution cost: " + tsp.getSolutionCost());
+        int[] tour = new int[stopsGraph.getNbVertices()];
+        for (int i = 0; i < tour.length; i++) {
+            tour[i] = tsp.getSolution(i);
+        }
+        processTour(tour, tsp.getSolutionCost());
+    }
+
+    /**
+     * Processes a tour (intermediary or final result) by populating tourPaths with the appropriate Paths
+     * from the stopsGraph and setting the stop's times / order of passage.
+     * @param tour the vertices of the tour, in order of visit
+     * @param cost the cost of the tour
+     */
+    private void processTour(int[] tour, double cost) {
+        System.out.println("Solution cost: " + cost);
         tourPaths = new ArrayList<>();
-        int n = stopsGraph.getNbVertices();
-        for (int i = 0; i < n - 1; i++) {
-            tourPaths.add(stopsGraph.getPath(tsp.getSolution(i), tsp.getSolution(i + 1)));
+        courierTours = null;
+        selectedCourier = 0;
+        int n = tour.length;
+        for (int i = 0; i < n; i++) {
+            tourPaths.add(stopsGraph.getPath(tour[i], tour[(i + 1) % n]));
         }
-        tourPaths.add(stopsGraph.getPath(tsp.getSolution(n - 1), tsp.getSolution(0)));
         setStopsTimesAndNumbers();
     }
 
     /**
-     * Called when the TSP instance notifies TourData that an intermediary result
-     * has been found. If the computing thread is still going, processes that intermediary result and notifies the view
+     * Called when the SolutionPublisher of the TSP instance notifies TourData that an intermediary result
+     * has been found (at most intermediaryTourRate times per second, the latest result being kept).
+     * If the computing thread is still going, processes that intermediary result and notifies the view
      * (otherwise it's no use, the view has already been notified of the final result in stopComputingTour())
      * @param o The observable object who notified the view.
      * @param updateType The type of update that has been made.
      */
     @Override
     public void update(Observable o, UpdateType updateType) {
-        if (updateType == UpdateType.INTERMEDIARY_TSP && tourComputingThread != null && !tourComputingThread.isInterrupted()) {
-            TSP tsp = (TemplateTSP) o;
-            processTSPUpdate(tsp);
+        if (updateType == UpdateType.INTERMEDIARY_TSP && tourComputingThread != null && !tourCancellation.isCancelled()) {
+            SolutionPublisher publisher = (SolutionPublisher) o;
+            processTour(publisher.getTour(), publisher.getCost());
             notifyObservers(UpdateType.INTERMEDIARY_TOUR);
         }
     }
@@ -46,6 +46,13 @@ public class Observable {
         }
     }
 
+    /**
+     * @return whether at least one Observer is registered
+     */
+    public boolean hasObservers() {
+        return !obs.isEmpty();
+    }
+
     /**
      * To notify all registered Observers of an update of type updateType.
      * @param updateType UpdateType the type of update happening
@@ -10,6 +10,7 @@ import com.pld.agile.model.map.Intersection;
 import com.pld.agile.model.map.MapData;
 import com.pld.agile.model.map.Segment;
 import com.pld.agile.utils.exception.SyntaxException;
+import com.pld.agile.utils.routing.Landmarks;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
@@ -36,6 +37,14 @@ public class MapLoader {
      * The MapData model object to fill.
      */
     private MapData map;
+    /**
+     * Number of routing landmarks selected after loading, 0 to skip this preprocessing.
+     */
+    private int nbLandmarks;
+    /**
+     * Whether the contraction hierarchy of the map is built after loading.
+     */
+    private boolean buildContractionHierarchy;
 
     /**
      * @param mapFilePath the path to the xml file
@@ -71,31 +80,69 @@ public class MapLoader {
         return map;
     }
 
+    /**
+     * Getter for attribute nbLandmarks.
+     * @return nbLandmarks
+     */
+    public int getNbLandmarks() {
+        return nbLandmarks;
+    }
+
+    /**
+     * Setter for attribute nbLandmarks.
+     * @param nbLandmarks number of routing landmarks selected after loading, 0 to skip this preprocessing
+     */
+    public void setNbLandmarks(int nbLandmarks) {
+        this.nbLandmarks = nbLandmarks;
+    }
+
+    /**
+     * Getter for attribute buildContractionHierarchy.
+     * @return buildContractionHierarchy
+     */
+    public boolean isBuildContractionHierarchy() {
+        return buildContractionHierarchy;
+    }
+
+    /**
+     * Setter for attribute buildContractionHierarchy.
+     * @param buildContractionHierarchy whether the contraction hierarchy of the map is built after loading,
+     *                                  rather than on the first routing query needing it
+     */
+    public void setBuildContractionHierarchy(boolean buildContractionHierarchy) {
+        this.buildContractionHierarchy = buildContractionHierarchy;
+    }
+
+    /**
+     * Returns the key identifying the segment between two intersections.
+     * @param originId the ID of the origin intersection
+     * @param destinationId the ID of the destination intersection
+     * @return the key packing both IDs
+     */
+    private static long segmentKey(int originId, int destinationId) {
+        return ((long) originId << 32) | (destinationId & 0xFFFFFFFFL);
+    }
+
     /**
      * Adds a segment to the application model : Used to guarantee that there is only one segment of same origin & destination - makes up keep the shortest one in that case.
-     * @param segments liste of segment
+     * @param segmentsByEnds segments already added, in order, indexed by segmentKey of their origin and destination
      * @param s segment to add
      */
-    private void addSegmentIfNotRedundant(List<Segment> segments, Segment s) {
+    private void addSegmentIfNotRedundant(LinkedHashMap<Long, Segment> segmentsByEnds, Segment s) {
         boolean shouldAdd;
         // we don't add segments of same origin & dest, of length 0
         shouldAdd = !((s.getOrigin().equals(s.getDestination())) || (s.getLength() == 0));
-        Segment toBeRemoved = null;
-        for (Segment presentSegment : s.getOrigin().getOriginOf()) { // iterate over all segments with the same origin
-            if (presentSegment.getDestination().getId() == s.getDestination().getId() && presentSegment.getLength() <= s.getLength()) {
-                shouldAdd = false;
-            } else if (presentSegment.getDestination().getId() == s.getDestination().getId()) { // we delete the old segment of same origin & destination since the new one is better and we will add it
-                toBeRemoved = presentSegment;
-            }
-        }
-
-        if (toBeRemoved != null) {
-            segments.remove(toBeRemoved);
-            toBeRemoved.getOrigin().getOriginOf().remove(toBeRemoved);
+        long key = segmentKey(s.getOrigin().getId(), s.getDestination().getId());
+        Segment presentSegment = segmentsByEnds.get(key);
+        if (presentSegment != null && presentSegment.getLength() <= s.getLength()) {
+            shouldAdd = false;
+        } else if (presentSegment != null) { // we delete the old segment of same origin & destination since the new one is better and we will add it
+            segmentsByEnds.remove(key);
+            presentSegment.getOrigin().getOriginOf().remove(presentSegment);
         }
 
         if (shouldAdd) {
-            segments.add(s);
+            segmentsByEnds.put(key, s);
             s.getOrigin().getOriginOf().add(s);
         }
     }
@@ -168,7 +215,7 @@ public class MapLoader {
 
             Set<String> intersectionIdsInGraph = new TreeSet<>(); // to remove disconnected intersections
             List<Node> segmentNodes = mapXmlDocument.selectNodes("/map/segment");
-            List<Segment> segments = new ArrayList<>();
+            LinkedHashMap<Long, Segment> segmentsByEnds = new LinkedHashMap<>();
             for (Node segmentNode : segmentNodes) {
                 Element segmentElement = (Element) segmentNode;
                 String idOrigin = segmentElement.attributeValue("origin");
@@ -180,9 +227,10 @@ public class MapLoader {
                     intersectionIdsInGraph.add(idOrigin);
                     intersectionIdsInGraph.add(idDest);
                     Segment s = new Segment(name, length, intersectionsById.get(idOrigin), intersectionsById.get(idDest));
-                    addSegmentIfNotRedundant(segments, s);
+                    addSegmentIfNotRedundant(segmentsByEnds, s);
                 }
             }
+            List<Segment> segments = new ArrayList<>(segmentsByEnds.values());
 
             // remove intersections that are in no segment
             List<String> intersectionsToBeRemoved = new ArrayList<>();
@@ -217,6 +265,41 @@ public class MapLoader {
         if (map.getIntersections().size() == 0 || map.getSegments().size() == 0) {
             throw new SyntaxException("Invalid file syntax - couldn't use it to fill the map data.");
         }
+
+        map.buildRoadGraph();
+        if (nbLandmarks > 0) {
+            loadLandmarks();
+        }
+        if (buildContractionHierarchy) {
+            map.getContractionHierarchy();
+        }
+    }
+
+    /**
+     * Reads the routing landmarks stored next to the map file, or selects them and stores them
+     * if the file is missing or was computed on another version of the map.
+     * The landmarks are only kept in memory if the file cannot be written.
+     */
+    private void loadLandmarks() {
+        File landmarksFile = new File(mapFilePath + Landmarks.FILE_EXTENSION);
+        Landmarks landmarks = null;
+        if (landmarksFile.isFile()) {
+            try {
+                landmarks = Landmarks.read(landmarksFile, map.getRoadGraph());
+            } catch (IOException e) {
+                // invalid file, the landmarks are selected again
+                landmarks = null;
+            }
+        }
+        if (landmarks == null || landmarks.getNbLandmarks() != Math.min(nbLandmarks, map.getIntersections().size())) {
+            landmarks = Landmarks.select(map.getRoadGraph(), nbLandmarks);
+            try {
+                landmarks.write(landmarksFile);
+            } catch (IOException e) {
+                // read-only location, the landmarks will be selected again on next load
+            }
+        }
+        map.setLandmarks(landmarks);
     }
 
     /**
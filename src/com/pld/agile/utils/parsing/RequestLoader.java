@@ -27,6 +27,10 @@ import java.util.Map;
 
 /**
  * Loads requests model entities from an XML file.
+ * Each stop of a request may have a time window, given by the optional attributes pickupEarliestTime,
+ * pickupLatestTime, deliveryEarliestTime and deliveryLatestTime (in the format of the departure time).
+ * The depot may set the number of couriers sharing the requests, the largest number of requests of a courier
+ * and the time at which they must be back, with the optional attributes couriers, courierCapacity and shiftEndTime.
  */
 public class RequestLoader {
     /**
@@ -75,9 +79,9 @@ public class RequestLoader {
             Stop.resetIdCounter();
 
             Element warehouseElement = (Element) warehouseNode;
-            String[] time = warehouseElement.attributeValue("departureTime").split(":");
-            LocalTime departureTime = LocalTime.of(Integer.parseInt(time[0]), Integer.parseInt(time[1]), Integer.parseInt(time[2]));
+            LocalTime departureTime = parseTime(warehouseElement.attributeValue("departureTime"));
             tour.setDepartureTime(departureTime);
+            setFleet(warehouseElement);
             if (!intersectionsByOldId.containsKey(warehouseElement.attributeValue("address"))) {
                 // the warehouse isn't on the map
                 throw new SyntaxException("The warehouse is on an adress that doesn't exist on the loaded map.");
@@ -98,6 +102,8 @@ public class RequestLoader {
                     Request request = new Request();
                     Stop pickup = new Stop(request, pickupLocation, pickupDuration, StopType.PICKUP);
                     Stop delivery = new Stop(request, deliveryLocation, deliveryDuration, StopType.DELIVERY);
+                    setTimeWindow(pickup, requestElement, "pickup");
+                    setTimeWindow(delivery, requestElement, "delivery");
                     request.setPickup(pickup);
                     request.setDelivery(delivery);
                     stopList.add(pickup);
@@ -119,6 +125,52 @@ public class RequestLoader {
         }
     }
 
+    /**
+     * Sets the couriers of the tour from the optional attributes of the depot.
+     * @param warehouseElement the element of the depot
+     * @throws SyntaxException when there is no courier or a courier cannot take any request
+     */
+    private void setFleet(Element warehouseElement) throws SyntaxException {
+        String couriers = warehouseElement.attributeValue("couriers");
+        String courierCapacity = warehouseElement.attributeValue("courierCapacity");
+        String shiftEndTime = warehouseElement.attributeValue("shiftEndTime");
+        int nbCouriers = couriers == null ? 1 : Integer.parseInt(couriers);
+        int capacity = courierCapacity == null ? 0 : Integer.parseInt(courierCapacity);
+        if (nbCouriers < 1 || capacity < 0 || (courierCapacity != null && capacity == 0)) {
+            throw new SyntaxException("Invalid XML file : the depot needs couriers able to take requests.");
+        }
+        tour.setNbCouriers(nbCouriers);
+        tour.setCourierCapacity(capacity);
+        tour.setShiftEndTime(shiftEndTime == null ? null : parseTime(shiftEndTime));
+    }
+
+    /**
+     * Sets the time window of a stop from the optional attributes of its request.
+     * @param stop the stop
+     * @param requestElement the element of its request
+     * @param prefix the prefix of the attributes of the stop (pickup or delivery)
+     * @throws SyntaxException when the time window ends before it starts
+     */
+    private void setTimeWindow(Stop stop, Element requestElement, String prefix) throws SyntaxException {
+        String earliest = requestElement.attributeValue(prefix + "EarliestTime");
+        String latest = requestElement.attributeValue(prefix + "LatestTime");
+        stop.setEarliestTime(earliest == null ? null : parseTime(earliest));
+        stop.setLatestTime(latest == null ? null : parseTime(latest));
+        if (earliest != null && latest != null && stop.getLatestTime().isBefore(stop.getEarliestTime())) {
+            throw new SyntaxException("Invalid XML file : a time window ends before it starts.");
+        }
+    }
+
+    /**
+     * Parses a time attribute.
+     * @param value the time, as hours:minutes:seconds
+     * @return the parsed time
+     */
+    private static LocalTime parseTime(String value) {
+        String[] time = value.split(":");
+        return LocalTime.of(Integer.parseInt(time[0]), Integer.parseInt(time[1]), Integer.parseInt(time[2]));
+    }
+
     /**
      * Generates the DOM document from the file at the provided path.
      * @throws DocumentException when the file was invalid
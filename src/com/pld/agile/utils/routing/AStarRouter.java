@@ -0,0 +1,95 @@
+/*
+ * AStarRouter
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+/**
+ * Router running an A* search directed by the great-circle distance between the intersections
+ * (as in ViewUtilities.distanceLatLon, with the haversine formula), scaled down by the smallest ratio
+ * between a segment length and the great-circle distance of its ends. The bound thus never
+ * exceeds the length of any segment, which keeps it consistent and the routes found shortest.
+ */
+public class AStarRouter extends TemplateAStarRouter {
+
+    /**
+     * Radius of the earth in meters, the same as ViewUtilities.distanceLatLon.
+     */
+    private static final double EARTH_RADIUS = 6378137.0;
+
+    /**
+     * Latitude of each node, in radians.
+     */
+    private final double[] latitudes;
+    /**
+     * Longitude of each node, in radians.
+     */
+    private final double[] longitudes;
+    /**
+     * Cosine of the latitude of each node.
+     */
+    private final double[] cosLatitudes;
+    /**
+     * Factor applied to the great-circle distance so that it is a lower bound of the segment lengths.
+     */
+    private final double scale;
+
+    /**
+     * AStarRouter constructor.
+     * @param graph the graph the router searches
+     */
+    public AStarRouter(RoadGraph graph) {
+        super(graph);
+        int nbNodes = graph.getNbNodes();
+        latitudes = new double[nbNodes];
+        longitudes = new double[nbNodes];
+        cosLatitudes = new double[nbNodes];
+        for (int n = 0; n < nbNodes; n++) {
+            latitudes[n] = Math.toRadians(graph.getLatitude(n));
+            longitudes[n] = Math.toRadians(graph.getLongitude(n));
+            cosLatitudes[n] = Math.cos(latitudes[n]);
+        }
+
+        double minRatio = 1;
+        for (int e = 0; e < graph.getNbEdges(); e++) {
+            double distance = greatCircle(graph.getOrigin(e), graph.getTarget(e));
+            if (distance > 0) {
+                minRatio = Math.min(minRatio, graph.getLength(e) / distance);
+            }
+        }
+        // Keep a margin for the rounding errors of the trigonometric functions
+        scale = Math.max(0, minRatio * (1 - 1e-9));
+    }
+
+    /**
+     * Getter for attribute scale.
+     * @return the factor applied to the great-circle distance in the lower bound
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    protected double lowerBound(int node, int destination) {
+        return scale * greatCircle(node, destination);
+    }
+
+    /**
+     * Computes the great-circle distance between two nodes with the haversine formula,
+     * which stays accurate for the short distances found in a city.
+     * @param node1 the first node id
+     * @param node2 the second node id
+     * @return the distance between the intersections, in meters
+     */
+    private double greatCircle(int node1, int node2) {
+        double sinLat = Math.sin((latitudes[node2] - latitudes[node1]) / 2);
+        double sinLon = Math.sin((longitudes[node2] - longitudes[node1]) / 2);
+        double a = sinLat * sinLat + cosLatitudes[node1] * cosLatitudes[node2] * sinLon * sinLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+}
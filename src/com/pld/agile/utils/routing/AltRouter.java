@@ -0,0 +1,71 @@
+/*
+ * AltRouter
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+/**
+ * Router running an A* search directed by the lower bounds given by Landmarks
+ * and the triangle inequality (ALT).
+ */
+public class AltRouter extends TemplateAStarRouter {
+
+    /**
+     * The landmarks giving the lower bounds.
+     */
+    private final Landmarks landmarks;
+    /**
+     * Distance from each landmark to the destination of the current search.
+     */
+    private final double[] fromLandmarkToDestination;
+    /**
+     * Distance from the destination of the current search to each landmark.
+     */
+    private final double[] fromDestinationToLandmark;
+
+    /**
+     * AltRouter constructor.
+     * @param landmarks the landmarks of the graph the router searches
+     */
+    public AltRouter(Landmarks landmarks) {
+        super(landmarks.getGraph());
+        this.landmarks = landmarks;
+        fromLandmarkToDestination = new double[landmarks.getNbLandmarks()];
+        fromDestinationToLandmark = new double[landmarks.getNbLandmarks()];
+    }
+
+    /**
+     * Getter for attribute landmarks.
+     * @return the landmarks giving the lower bounds
+     */
+    public Landmarks getLandmarks() {
+        return landmarks;
+    }
+
+    @Override
+    protected void prepare(int destination) {
+        for (int i = 0; i < fromLandmarkToDestination.length; i++) {
+            fromLandmarkToDestination[i] = landmarks.getDistanceFrom(i, destination);
+            fromDestinationToLandmark[i] = landmarks.getDistanceTo(i, destination);
+        }
+    }
+
+    @Override
+    protected double lowerBound(int node, int destination) {
+        double bound = 0;
+        for (int i = 0; i < fromLandmarkToDestination.length; i++) {
+            double fromLandmark = landmarks.getDistanceFrom(i, node);
+            if (fromLandmark != Double.MAX_VALUE && fromLandmarkToDestination[i] != Double.MAX_VALUE) {
+                bound = Math.max(bound, fromLandmarkToDestination[i] - fromLandmark);
+            }
+            double toLandmark = landmarks.getDistanceTo(i, node);
+            if (toLandmark != Double.MAX_VALUE && fromDestinationToLandmark[i] != Double.MAX_VALUE) {
+                bound = Math.max(bound, toLandmark - fromDestinationToLandmark[i]);
+            }
+        }
+        return bound;
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * BidirectionalDijkstraRouter
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+import java.util.Arrays;
+
+/**
+ * Router running two Dijkstra searches at the same time: a forward one from the origin on the
+ * edges of the graph, and a backward one from the destination on the reversed edges.
+ * The search with the smallest queue head is advanced, and the best path found through a node
+ * reached by both is kept. The searches stop as soon as the sum of their queue heads reaches
+ * the length of that path, no shorter path being possible.
+ * As in DijkstraSearch, the arrays are not cleared between queries but stamped with the generation
+ * of the query, so that a query only costs the nodes it reaches.
+ */
+public class BidirectionalDijkstraRouter implements Router {
+
+    /**
+     * The graph the router searches.
+     */
+    private final RoadGraph graph;
+    /**
+     * Distance from the origin in the forward search (index = node id). Only meaningful for the nodes it reached.
+     */
+    private final double[] forwardDist;
+    /**
+     * Distance to the destination in the backward search (index = node id). Only meaningful for the nodes
+     * it reached.
+     */
+    private final double[] backwardDist;
+    /**
+     * Edge used to reach each node in the forward search (index = node id).
+     */
+    private final int[] forwardEdges;
+    /**
+     * Edge used to reach each node in the backward search (index = node id).
+     */
+    private final int[] backwardEdges;
+    /**
+     * Generation of the last query whose forward search reached each node (index = node id).
+     */
+    private final int[] forwardReached;
+    /**
+     * Generation of the last query whose backward search reached each node (index = node id).
+     */
+    private final int[] backwardReached;
+    /**
+     * Generation of the last query whose forward search settled each node (index = node id).
+     */
+    private final int[] forwardSettled;
+    /**
+     * Generation of the last query whose backward search settled each node (index = node id).
+     */
+    private final int[] backwardSettled;
+    /**
+     * Priority queue of the forward search.
+     */
+    private final IndexedHeap forwardHeap;
+    /**
+     * Priority queue of the backward search.
+     */
+    private final IndexedHeap backwardHeap;
+    /**
+     * Generation of the current query.
+     */
+    private int generation;
+    /**
+     * Length of the best path found by the current query.
+     */
+    private double bestLength;
+    /**
+     * Node of the best path reached by both searches, -1 if none yet.
+     */
+    private int meetingNode;
+    /**
+     * Number of nodes settled by the last query.
+     */
+    private int nbSettledNodes;
+
+    /**
+     * BidirectionalDijkstraRouter constructor.
+     * @param graph the graph the router searches
+     */
+    public BidirectionalDijkstraRouter(RoadGraph graph) {
+        this.graph = graph;
+        int nbNodes = graph.getNbNodes();
+        forwardDist = new double[nbNodes];
+        backwardDist = new double[nbNodes];
+        forwardEdges = new int[nbNodes];
+        backwardEdges = new int[nbNodes];
+        forwardReached = new int[nbNodes];
+        backwardReached = new int[nbNodes];
+        forwardSettled = new int[nbNodes];
+        backwardSettled = new int[nbNodes];
+        forwardHeap = new IndexedHeap(nbNodes);
+        backwardHeap = new IndexedHeap(nbNodes);
+    }
+
+    @Override
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public Route findRoute(int origin, int destination) {
+        nextGeneration();
+        forwardHeap.clear();
+        backwardHeap.clear();
+        forwardReached[origin] = generation;
+        forwardDist[origin] = 0;
+        backwardReached[destination] = generation;
+        backwardDist[destination] = 0;
+        forwardHeap.insert(origin, 0);
+        backwardHeap.insert(destination, 0);
+        bestLength = origin == destination ? 0 : Double.MAX_VALUE;
+        meetingNode = origin == destination ? origin : -1;
+        nbSettledNodes = 0;
+
+        while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+            double forwardHead = forwardHeap.getPriority(forwardHeap.peek());
+            double backwardHead = backwardHeap.getPriority(backwardHeap.peek());
+            if (forwardHead + backwardHead >= bestLength) {
+                break;
+            }
+            if (forwardHead <= backwardHead) {
+                settleForward();
+            } else {
+                settleBackward();
+            }
+        }
+
+        if (meetingNode < 0) {
+            return null;
+        }
+        int nbEdges = 0;
+        for (int node = meetingNode; node != origin; node = graph.getOrigin(forwardEdges[node])) {
+            nbEdges++;
+        }
+        int nbForwardEdges = nbEdges;
+        for (int node = meetingNode; node != destination; node = graph.getTarget(backwardEdges[node])) {
+            nbEdges++;
+        }
+        int[] edges = new int[nbEdges];
+        int position = nbForwardEdges;
+        for (int node = meetingNode; node != origin; node = graph.getOrigin(forwardEdges[node])) {
+            edges[--position] = forwardEdges[node];
+        }
+        position = nbForwardEdges;
+        for (int node = meetingNode; node != destination; node = graph.getTarget(backwardEdges[node])) {
+            edges[position++] = backwardEdges[node];
+        }
+        return new Route(bestLength, edges);
+    }
+
+    @Override
+    public int getNbSettledNodes() {
+        return nbSettledNodes;
+    }
+
+    /**
+     * Starts a new query generation, resetting the stamps when the counter wraps around.
+     */
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(forwardReached, 0);
+            Arrays.fill(backwardReached, 0);
+            Arrays.fill(forwardSettled, 0);
+            Arrays.fill(backwardSettled, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Settles the head of the forward queue and relaxes the edges leaving it.
+     */
+    private void settleForward() {
+        int node = forwardHeap.poll();
+        forwardSettled[node] = generation;
+        nbSettledNodes++;
+        for (int e = graph.getFirstEdge(node); e < graph.getEndEdge(node); e++) {
+            int next = graph.getTarget(e);
+            double distance = forwardDist[node] + graph.getLength(e);
+            if (forwardReached[next] != generation
+                    || forwardSettled[next] != generation && distance < forwardDist[next]) {
+                forwardReached[next] = generation;
+                forwardDist[next] = distance;
+                forwardEdges[next] = e;
+                forwardHeap.insertOrDecrease(next, distance);
+            }
+            if (backwardReached[next] == generation && distance + backwardDist[next] < bestLength) {
+                bestLength = distance + backwardDist[next];
+                meetingNode = next;
+            }
+        }
+    }
+
+    /**
+     * Settles the head of the backward queue and relaxes the edges entering it.
+     */
+    private void settleBackward() {
+        int node = backwardHeap.poll();
+        backwardSettled[node] = generation;
+        nbSettledNodes++;
+        for (int i = graph.getFirstIncoming(node); i < graph.getEndIncoming(node); i++) {
+            int e = graph.getIncomingEdge(i);
+            int next = graph.getOrigin(e);
+            double distance = backwardDist[node] + graph.getLength(e);
+            if (backwardReached[next] != generation
+                    || backwardSettled[next] != generation && distance < backwardDist[next]) {
+                backwardReached[next] = generation;
+                backwardDist[next] = distance;
+                backwardEdges[next] = e;
+                backwardHeap.insertOrDecrease(next, distance);
+            }
+            if (forwardReached[next] == generation && distance + forwardDist[next] < bestLength) {
+                bestLength = distance + forwardDist[next];
+                meetingNode = next;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * ChRouter
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+/**
+ * Router running a bidirectional upward search on a ContractionHierarchy.
+ */
+public class ChRouter implements Router {
+
+    /**
+     * The search structures of the router.
+     */
+    private final ChSearch search;
+
+    /**
+     * ChRouter constructor.
+     * @param hierarchy the contraction hierarchy of the graph the router searches
+     */
+    public ChRouter(ContractionHierarchy hierarchy) {
+        this.search = new ChSearch(hierarchy);
+    }
+
+    @Override
+    public RoadGraph getGraph() {
+        return search.getHierarchy().getGraph();
+    }
+
+    @Override
+    public Route findRoute(int origin, int destination) {
+        return search.manyToMany(new int[] {origin}, new int[] {destination})[0][0];
+    }
+
+    /**
+     * Finds the shortest routes from every origin to every destination with a single many-to-many query.
+     * @param origins the origin node ids
+     * @param destinations the destination node ids
+     * @return the route from origins[i] to destinations[j] at [i][j], null if the destination cannot be reached
+     */
+    public Route[][] findRoutes(int[] origins, int[] destinations) {
+        return search.manyToMany(origins, destinations);
+    }
+
+    @Override
+    public int getNbSettledNodes() {
+        return search.getNbSettledNodes();
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * ChSearch
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import java.util.Arrays;
+
+/**
+ * Shortest path queries on a ContractionHierarchy.
+ * Many-to-many queries use buckets: one backward upward search per target stores, in a bucket of
+ * each node it settles, its distance to the target. One forward upward search per source then
+ * scans the buckets of the nodes it settles, the best meeting node giving the shortest path.
+ * An instance holds the arrays of the searches and reuses them from one query to the next:
+ * it is not thread-safe, each thread must use its own instance.
+ */
+public class ChSearch {
+
+    /**
+     * The hierarchy the searches run on.
+     */
+    private final ContractionHierarchy hierarchy;
+    /**
+     * Distance from the root of the current search (index = node id).
+     */
+    private final double[] dist;
+    /**
+     * Edge used to reach each node in the current search (index = node id).
+     */
+    private final int[] parentEdges;
+    /**
+     * Whether each node has been reached by the current search (index = node id).
+     */
+    private final boolean[] reached;
+    /**
+     * Nodes reached by the current search, in the order they were reached.
+     */
+    private final int[] reachedNodes;
+    /**
+     * Number of nodes reached by the current search.
+     */
+    private int nbReached;
+    /**
+     * Priority queue of the current search.
+     */
+    private final IndexedHeap heap;
+    /**
+     * First bucket entry of each node, -1 if its bucket is empty (index = node id).
+     */
+    private final int[] bucketHeads;
+    /**
+     * Nodes whose bucket is not empty.
+     */
+    private final int[] bucketNodes;
+    /**
+     * Number of nodes whose bucket is not empty.
+     */
+    private int nbBucketNodes;
+    /**
+     * Target index of each bucket entry.
+     */
+    private int[] entryTargets;
+    /**
+     * Distance from the node to the target of each bucket entry.
+     */
+    private double[] entryDistances;
+    /**
+     * Edge leaving the node towards the target of each bucket entry, -1 at the target itself.
+     */
+    private int[] entryEdges;
+    /**
+     * Next entry of the same bucket, -1 for the last one.
+     */
+    private int[] entryNext;
+    /**
+     * Number of bucket entries.
+     */
+    private int nbEntries;
+    /**
+     * Number of nodes settled by the last query.
+     */
+    private int nbSettledNodes;
+
+    /**
+     * ChSearch constructor.
+     * @param hierarchy the hierarchy the searches run on
+     */
+    public ChSearch(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        int nbNodes = hierarchy.getGraph().getNbNodes();
+        dist = new double[nbNodes];
+        parentEdges = new int[nbNodes];
+        reached = new boolean[nbNodes];
+        reachedNodes = new int[nbNodes];
+        heap = new IndexedHeap(nbNodes);
+        bucketHeads = new int[nbNodes];
+        Arrays.fill(bucketHeads, -1);
+        bucketNodes = new int[nbNodes];
+        entryTargets = new int[64];
+        entryDistances = new double[64];
+        entryEdges = new int[64];
+        entryNext = new int[64];
+    }
+
+    /**
+     * Getter for attribute hierarchy.
+     * @return the hierarchy the searches run on
+     */
+    public ContractionHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Getter for the number of nodes settled by the last query.
+     * @return the number of nodes settled by the upward searches of the last query
+     */
+    public int getNbSettledNodes() {
+        return nbSettledNodes;
+    }
+
+    /**
+     * Computes the shortest routes from every source node to every target node.
+     * The edges of the routes are edges of the graph of the hierarchy.
+     * @param sources the source node ids
+     * @param targets the target node ids
+     * @return the route from sources[i] to targets[j] at [i][j], null if the target cannot be reached
+     */
+    public Route[][] manyToMany(int[] sources, int[] targets) {
+        nbSettledNodes = 0;
+        Route[][] routes = new Route[sources.length][targets.length];
+
+        // Backward searches, filling the buckets
+        for (int j = 0; j < targets.length; j++) {
+            upwardSearch(targets[j], true);
+            for (int k = 0; k < nbReached; k++) {
+                int node = reachedNodes[k];
+                addEntry(node, j, dist[node], parentEdges[node]);
+            }
+        }
+
+        // Forward searches, scanning the buckets
+        double[] best = new double[targets.length];
+        int[] meetingNodes = new int[targets.length];
+        for (int i = 0; i < sources.length; i++) {
+            upwardSearch(sources[i], false);
+            Arrays.fill(best, Double.MAX_VALUE);
+            Arrays.fill(meetingNodes, -1);
+            for (int k = 0; k < nbReached; k++) {
+                int node = reachedNodes[k];
+                for (int entry = bucketHeads[node]; entry >= 0; entry = entryNext[entry]) {
+                    double distance = dist[node] + entryDistances[entry];
+                    int j = entryTargets[entry];
+                    if (distance < best[j]) {
+                        best[j] = distance;
+                        meetingNodes[j] = node;
+                    }
+                }
+            }
+            for (int j = 0; j < targets.length; j++) {
+                if (meetingNodes[j] >= 0) {
+                    routes[i][j] = new Route(best[j], unpackRoute(sources[i], j, meetingNodes[j]));
+                }
+            }
+        }
+
+        clearBuckets();
+        return routes;
+    }
+
+    /**
+     * Runs a Dijkstra search from a node following only the edges towards more important nodes,
+     * until every node reachable this way is settled.
+     * @param root the node the search starts from
+     * @param backward whether the edges are followed in reverse (towards a target)
+     */
+    private void upwardSearch(int root, boolean backward) {
+        for (int k = 0; k < nbReached; k++) {
+            reached[reachedNodes[k]] = false;
+        }
+        nbReached = 0;
+        heap.clear();
+        reach(root, 0, -1);
+        heap.insert(root, 0);
+
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            nbSettledNodes++;
+            int first = backward ? hierarchy.getFirstDownward(node) : hierarchy.getFirstUpward(node);
+            int end = backward ? hierarchy.getEndDownward(node) : hierarchy.getEndUpward(node);
+            for (int entry = first; entry < end; entry++) {
+                int e = backward ? hierarchy.getDownwardEdge(entry) : hierarchy.getUpwardEdge(entry);
+                int next = backward ? hierarchy.getOrigin(e) : hierarchy.getTarget(e);
+                double distance = dist[node] + hierarchy.getLength(e);
+                if (!reached[next]) {
+                    reach(next, distance, e);
+                    heap.insert(next, distance);
+                } else if (distance < dist[next]) {
+                    dist[next] = distance;
+                    parentEdges[next] = e;
+                    heap.decreaseKey(next, distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that a node has been reached for the first time by the current search.
+     * @param node the node id
+     * @param distance its distance from the root
+     * @param edge the edge it was reached by
+     */
+    private void reach(int node, double distance, int edge) {
+        reached[node] = true;
+        reachedNodes[nbReached++] = node;
+        dist[node] = distance;
+        parentEdges[node] = edge;
+    }
+
+    /**
+     * Adds an entry to the bucket of a node.
+     * @param node the node id
+     * @param target the target index
+     * @param distance the distance from the node to the target
+     * @param edge the edge leaving the node towards the target
+     */
+    private void addEntry(int node, int target, double distance, int edge) {
+        if (nbEntries == entryTargets.length) {
+            int capacity = nbEntries * 2;
+            entryTargets = Arrays.copyOf(entryTargets, capacity);
+            entryDistances = Arrays.copyOf(entryDistances, capacity);
+            entryEdges = Arrays.copyOf(entryEdges, capacity);
+            entryNext = Arrays.copyOf(entryNext, capacity);
+        }
+        entryTargets[nbEntries] = target;
+        entryDistances[nbEntries] = distance;
+        entryEdges[nbEntries] = edge;
+        if (bucketHeads[node] < 0) {
+            bucketNodes[nbBucketNodes++] = node;
+        }
+        entryNext[nbEntries] = bucketHeads[node];
+        bucketHeads[node] = nbEntries++;
+    }
+
+    /**
+     * Finds the bucket entry of a node for a target.
+     * @param node the node id
+     * @param target the target index
+     * @return the entry index, -1 if the node was not reached by the backward search of the target
+     */
+    private int findEntry(int node, int target) {
+        for (int entry = bucketHeads[node]; entry >= 0; entry = entryNext[entry]) {
+            if (entryTargets[entry] == target) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Empties the buckets filled by a query.
+     */
+    private void clearBuckets() {
+        for (int k = 0; k < nbBucketNodes; k++) {
+            bucketHeads[bucketNodes[k]] = -1;
+        }
+        nbBucketNodes = 0;
+        nbEntries = 0;
+    }
+
+    /**
+     * Builds the edges of the graph composing the route from a source to a target through a meeting node,
+     * from the forward search of the source (the current one) and the bucket entries of the target.
+     * @param source the source node id
+     * @param target the target index
+     * @param meetingNode the node where the forward and backward searches meet
+     * @return the edges of the graph, in order
+     */
+    private int[] unpackRoute(int source, int target, int meetingNode) {
+        int upwardSize = 0;
+        for (int node = meetingNode; node != source; node = hierarchy.getOrigin(parentEdges[node])) {
+            upwardSize += hierarchy.getUnpackedSize(parentEdges[node]);
+        }
+        int downwardSize = 0;
+        for (int entry = findEntry(meetingNode, target); entryEdges[entry] >= 0;
+             entry = findEntry(hierarchy.getTarget(entryEdges[entry]), target)) {
+            downwardSize += hierarchy.getUnpackedSize(entryEdges[entry]);
+        }
+
+        int[] edges = new int[upwardSize + downwardSize];
+        // Upward part, walked from the meeting node back to the source and unpacked from the end
+        int position = upwardSize;
+        for (int node = meetingNode; node != source; node = hierarchy.getOrigin(parentEdges[node])) {
+            position -= hierarchy.getUnpackedSize(parentEdges[node]);
+            hierarchy.unpack(parentEdges[node], edges, position);
+        }
+        // Downward part, from the meeting node to the target
+        position = upwardSize;
+        for (int entry = findEntry(meetingNode, target); entryEdges[entry] >= 0;
+             entry = findEntry(hierarchy.getTarget(entryEdges[entry]), target)) {
+            position = hierarchy.unpack(entryEdges[entry], edges, position);
+        }
+        return edges;
+    }
+
+}
@@ -0,0 +1,540 @@
+/*
+ * ContractionHierarchy
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchy of a RoadGraph.
+ * The nodes are contracted one by one, from the least to the most important: contracting a node
+ * adds a shortcut edge between two of its neighbours whenever the shortest path between them
+ * goes through the node. A shortest path then always goes up the hierarchy and then down, so that
+ * queries only explore the edges leading to more important nodes (see ChSearch).
+ * The edges of the hierarchy are the edges of the RoadGraph (same indexes), followed by the
+ * shortcuts, each made of two edges that can be unpacked back to edges of the RoadGraph.
+ */
+public class ContractionHierarchy {
+
+    /**
+     * Maximum number of nodes settled by a witness search, above which a shortcut is added
+     * (an unneeded shortcut does not change the distances found).
+     */
+    private static final int WITNESS_SETTLED_LIMIT = 64;
+
+    /**
+     * The graph the hierarchy was built on.
+     */
+    private final RoadGraph graph;
+    /**
+     * Position of each node in the contraction order (index = node id).
+     */
+    private final int[] ranks;
+    /**
+     * Number of edges of the hierarchy (edges of the graph and shortcuts).
+     */
+    private int nbEdges;
+    /**
+     * Origin node of each edge.
+     */
+    private int[] origins;
+    /**
+     * Destination node of each edge.
+     */
+    private int[] targets;
+    /**
+     * Length of each edge.
+     */
+    private double[] lengths;
+    /**
+     * First of the two edges composing each shortcut, -1 for the edges of the graph.
+     */
+    private int[] firstChildren;
+    /**
+     * Second of the two edges composing each shortcut, -1 for the edges of the graph.
+     */
+    private int[] secondChildren;
+    /**
+     * First entry of each node in upwardEdges (index = node id).
+     */
+    private int[] upwardOffsets;
+    /**
+     * Edges leaving each node towards a more important node, grouped by origin.
+     */
+    private int[] upwardEdges;
+    /**
+     * First entry of each node in downwardEdges (index = node id).
+     */
+    private int[] downwardOffsets;
+    /**
+     * Edges entering each node from a more important node, grouped by destination.
+     */
+    private int[] downwardEdges;
+
+    /**
+     * ContractionHierarchy constructor, contracts every node of the graph.
+     * @param graph the graph
+     */
+    public ContractionHierarchy(RoadGraph graph) {
+        this.graph = graph;
+        int nbNodes = graph.getNbNodes();
+        ranks = new int[nbNodes];
+        int capacity = Math.max(16, graph.getNbEdges() * 2);
+        origins = new int[capacity];
+        targets = new int[capacity];
+        lengths = new double[capacity];
+        firstChildren = new int[capacity];
+        secondChildren = new int[capacity];
+        for (int e = 0; e < graph.getNbEdges(); e++) {
+            addEdge(graph.getOrigin(e), graph.getTarget(e), graph.getLength(e), -1, -1);
+        }
+
+        new Contractor().contractAll();
+        buildSearchGraphs();
+    }
+
+    /**
+     * Getter for attribute graph.
+     * @return the graph the hierarchy was built on
+     */
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the position of a node in the contraction order.
+     * @param node the node id
+     * @return the rank of the node, higher for more important nodes
+     */
+    public int getRank(int node) {
+        return ranks[node];
+    }
+
+    /**
+     * Getter for the number of edges.
+     * @return the number of edges of the hierarchy, shortcuts included
+     */
+    public int getNbEdges() {
+        return nbEdges;
+    }
+
+    /**
+     * Getter for the number of shortcuts.
+     * @return the number of shortcuts added by the contraction
+     */
+    public int getNbShortcuts() {
+        return nbEdges - graph.getNbEdges();
+    }
+
+    /**
+     * Returns the origin node of an edge.
+     * @param edge the edge index
+     * @return the origin node id
+     */
+    public int getOrigin(int edge) {
+        return origins[edge];
+    }
+
+    /**
+     * Returns the destination node of an edge.
+     * @param edge the edge index
+     * @return the destination node id
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Returns the length of an edge.
+     * @param edge the edge index
+     * @return the length of the edge
+     */
+    public double getLength(int edge) {
+        return lengths[edge];
+    }
+
+    /**
+     * Returns the first entry of the edges leaving a node towards more important nodes.
+     * @param node the node id
+     * @return the index of the first upward entry of the node
+     */
+    public int getFirstUpward(int node) {
+        return upwardOffsets[node];
+    }
+
+    /**
+     * Returns the end (exclusive) of the entries of the edges leaving a node towards more important nodes.
+     * @param node the node id
+     * @return the index following the last upward entry of the node
+     */
+    public int getEndUpward(int node) {
+        return upwardOffsets[node + 1];
+    }
+
+    /**
+     * Returns the edge of an upward entry.
+     * @param entry the index of the upward entry
+     * @return the index of the edge
+     */
+    public int getUpwardEdge(int entry) {
+        return upwardEdges[entry];
+    }
+
+    /**
+     * Returns the first entry of the edges entering a node from more important nodes.
+     * @param node the node id
+     * @return the index of the first downward entry of the node
+     */
+    public int getFirstDownward(int node) {
+        return downwardOffsets[node];
+    }
+
+    /**
+     * Returns the end (exclusive) of the entries of the edges entering a node from more important nodes.
+     * @param node the node id
+     * @return the index following the last downward entry of the node
+     */
+    public int getEndDownward(int node) {
+        return downwardOffsets[node + 1];
+    }
+
+    /**
+     * Returns the edge of a downward entry.
+     * @param entry the index of the downward entry
+     * @return the index of the edge
+     */
+    public int getDownwardEdge(int entry) {
+        return downwardEdges[entry];
+    }
+
+    /**
+     * Appends the edges of the graph composing an edge of the hierarchy to an array.
+     * @param edge the edge of the hierarchy
+     * @param edges the array receiving the edges of the graph, which must be large enough
+     * @param size the number of edges already in the array
+     * @return the number of edges in the array after the unpacking
+     */
+    public int unpack(int edge, int[] edges, int size) {
+        if (firstChildren[edge] < 0) {
+            edges[size] = edge;
+            return size + 1;
+        }
+        size = unpack(firstChildren[edge], edges, size);
+        return unpack(secondChildren[edge], edges, size);
+    }
+
+    /**
+     * Returns the number of edges of the graph composing an edge of the hierarchy.
+     * @param edge the edge of the hierarchy
+     * @return the number of edges of the graph it unpacks to
+     */
+    public int getUnpackedSize(int edge) {
+        if (firstChildren[edge] < 0) {
+            return 1;
+        }
+        return getUnpackedSize(firstChildren[edge]) + getUnpackedSize(secondChildren[edge]);
+    }
+
+    /**
+     * Adds an edge to the hierarchy.
+     * @param origin the origin node id
+     * @param target the destination node id
+     * @param length the length of the edge
+     * @param firstChild the first edge of the shortcut, -1 for an edge of the graph
+     * @param secondChild the second edge of the shortcut, -1 for an edge of the graph
+     * @return the index of the edge
+     */
+    private int addEdge(int origin, int target, double length, int firstChild, int secondChild) {
+        if (nbEdges == origins.length) {
+            int capacity = nbEdges * 2;
+            origins = Arrays.copyOf(origins, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            secondChildren = Arrays.copyOf(secondChildren, capacity);
+        }
+        origins[nbEdges] = origin;
+        targets[nbEdges] = target;
+        lengths[nbEdges] = length;
+        firstChildren[nbEdges] = firstChild;
+        secondChildren[nbEdges] = secondChild;
+        return nbEdges++;
+    }
+
+    /**
+     * Builds the CSR arrays of the upward and downward edges, once every node has been contracted.
+     */
+    private void buildSearchGraphs() {
+        int nbNodes = ranks.length;
+        upwardOffsets = new int[nbNodes + 1];
+        downwardOffsets = new int[nbNodes + 1];
+        for (int e = 0; e < nbEdges; e++) {
+            if (ranks[targets[e]] > ranks[origins[e]]) {
+                upwardOffsets[origins[e] + 1]++;
+            } else {
+                downwardOffsets[targets[e] + 1]++;
+            }
+        }
+        for (int n = 0; n < nbNodes; n++) {
+            upwardOffsets[n + 1] += upwardOffsets[n];
+            downwardOffsets[n + 1] += downwardOffsets[n];
+        }
+        upwardEdges = new int[upwardOffsets[nbNodes]];
+        downwardEdges = new int[downwardOffsets[nbNodes]];
+        int[] nextUpward = Arrays.copyOf(upwardOffsets, nbNodes);
+        int[] nextDownward = Arrays.copyOf(downwardOffsets, nbNodes);
+        for (int e = 0; e < nbEdges; e++) {
+            if (ranks[targets[e]] > ranks[origins[e]]) {
+                upwardEdges[nextUpward[origins[e]]++] = e;
+            } else {
+                downwardEdges[nextDownward[targets[e]]++] = e;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ContractionHierarchy{" + "nbNodes=" + ranks.length + ", nbShortcuts=" + getNbShortcuts() + '}';
+    }
+
+    /**
+     * State of the contraction: the edges of the remaining nodes and the witness search structures.
+     */
+    private class Contractor {
+
+        /**
+         * Edges leaving each node (index = node id), including edges to contracted nodes.
+         */
+        private final int[][] outgoing;
+        /**
+         * Number of edges leaving each node.
+         */
+        private final int[] nbOutgoing;
+        /**
+         * Edges entering each node (index = node id), including edges from contracted nodes.
+         */
+        private final int[][] incoming;
+        /**
+         * Number of edges entering each node.
+         */
+        private final int[] nbIncoming;
+        /**
+         * Whether each node has been contracted.
+         */
+        private final boolean[] contracted;
+        /**
+         * Number of contracted neighbours of each node, spreading the contraction over the map.
+         */
+        private final int[] contractedNeighbours;
+        /**
+         * Distance of each node in the current witness search.
+         */
+        private final double[] witnessDist;
+        /**
+         * Witness search in which witnessDist was last set for each node.
+         */
+        private final int[] witnessStamps;
+        /**
+         * Number of witness searches run.
+         */
+        private int witnessStamp;
+        /**
+         * Priority queue of the witness searches.
+         */
+        private final IndexedHeap witnessHeap;
+
+        /**
+         * Contractor constructor.
+         */
+        Contractor() {
+            int nbNodes = ranks.length;
+            outgoing = new int[nbNodes][4];
+            nbOutgoing = new int[nbNodes];
+            incoming = new int[nbNodes][4];
+            nbIncoming = new int[nbNodes];
+            contracted = new boolean[nbNodes];
+            contractedNeighbours = new int[nbNodes];
+            witnessDist = new double[nbNodes];
+            witnessStamps = new int[nbNodes];
+            witnessHeap = new IndexedHeap(nbNodes);
+            for (int e = 0; e < nbEdges; e++) {
+                link(e);
+            }
+        }
+
+        /**
+         * Contracts every node, the node with the smallest priority first.
+         * The priorities are updated lazily: a node whose priority has grown is put back in the queue.
+         */
+        void contractAll() {
+            int nbNodes = ranks.length;
+            IndexedHeap queue = new IndexedHeap(nbNodes);
+            for (int n = 0; n < nbNodes; n++) {
+                queue.insert(n, priority(n));
+            }
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                double priority = priority(node);
+                if (!queue.isEmpty() && priority > queue.getPriority(queue.peek())) {
+                    queue.insert(node, priority);
+                    continue;
+                }
+
+                contract(node, false);
+                contracted[node] = true;
+                ranks[node] = rank++;
+                for (int i = 0; i < nbOutgoing[node]; i++) {
+                    updateNeighbour(queue, targets[outgoing[node][i]]);
+                }
+                for (int i = 0; i < nbIncoming[node]; i++) {
+                    updateNeighbour(queue, origins[incoming[node][i]]);
+                }
+            }
+        }
+
+        /**
+         * Updates the priority of a neighbour of a contracted node.
+         * @param queue the queue of the nodes to contract
+         * @param neighbour the neighbour node id
+         */
+        private void updateNeighbour(IndexedHeap queue, int neighbour) {
+            if (!contracted[neighbour]) {
+                contractedNeighbours[neighbour]++;
+                queue.changePriority(neighbour, priority(neighbour));
+            }
+        }
+
+        /**
+         * Computes the priority of a node: its edge difference (shortcuts added minus edges removed
+         * by its contraction) plus its number of contracted neighbours.
+         * @param node the node id
+         * @return the priority of the node, the lowest being contracted first
+         */
+        private double priority(int node) {
+            int nbRemovedEdges = 0;
+            for (int i = 0; i < nbOutgoing[node]; i++) {
+                if (!contracted[targets[outgoing[node][i]]]) {
+                    nbRemovedEdges++;
+                }
+            }
+            for (int i = 0; i < nbIncoming[node]; i++) {
+                if (!contracted[origins[incoming[node][i]]]) {
+                    nbRemovedEdges++;
+                }
+            }
+            return 2 * (contract(node, true) - nbRemovedEdges) + contractedNeighbours[node];
+        }
+
+        /**
+         * Adds the shortcuts needed to contract a node, or only counts them.
+         * @param node the node id
+         * @param simulate whether the shortcuts are only counted
+         * @return the number of shortcuts needed
+         */
+        private int contract(int node, boolean simulate) {
+            int nbShortcuts = 0;
+            for (int i = 0; i < nbIncoming[node]; i++) {
+                int in = incoming[node][i];
+                int from = origins[in];
+                if (contracted[from]) {
+                    continue;
+                }
+                double maxLength = 0;
+                for (int j = 0; j < nbOutgoing[node]; j++) {
+                    int to = targets[outgoing[node][j]];
+                    if (!contracted[to] && to != from) {
+                        maxLength = Math.max(maxLength, lengths[in] + lengths[outgoing[node][j]]);
+                    }
+                }
+                if (maxLength == 0) {
+                    continue;
+                }
+
+                witnessSearch(from, node, maxLength);
+                // Iterate over a snapshot of the count, the shortcuts added are not contracted through
+                int nbOut = nbOutgoing[node];
+                for (int j = 0; j < nbOut; j++) {
+                    int out = outgoing[node][j];
+                    int to = targets[out];
+                    if (contracted[to] || to == from) {
+                        continue;
+                    }
+                    double length = lengths[in] + lengths[out];
+                    if (witnessStamps[to] != witnessStamp || witnessDist[to] > length) {
+                        nbShortcuts++;
+                        if (!simulate) {
+                            link(addEdge(from, to, length, in, out));
+                            // The shortcut is a witness for the next pairs
+                            witnessStamps[to] = witnessStamp;
+                            witnessDist[to] = length;
+                        }
+                    }
+                }
+            }
+            return nbShortcuts;
+        }
+
+        /**
+         * Runs a Dijkstra search from a node among the nodes not contracted yet, without going through
+         * the node being contracted, until the maximum length or the settled nodes limit is reached.
+         * @param source the source node id
+         * @param excluded the node being contracted
+         * @param maxLength the length above which no path is needed
+         */
+        private void witnessSearch(int source, int excluded, double maxLength) {
+            witnessStamp++;
+            witnessHeap.clear();
+            witnessDist[source] = 0;
+            witnessStamps[source] = witnessStamp;
+            witnessHeap.insert(source, 0);
+            int nbSettled = 0;
+            while (!witnessHeap.isEmpty() && nbSettled < WITNESS_SETTLED_LIMIT) {
+                int node = witnessHeap.poll();
+                nbSettled++;
+                if (witnessDist[node] > maxLength) {
+                    break;
+                }
+                for (int i = 0; i < nbOutgoing[node]; i++) {
+                    int e = outgoing[node][i];
+                    int next = targets[e];
+                    if (next == excluded || contracted[next]) {
+                        continue;
+                    }
+                    double distance = witnessDist[node] + lengths[e];
+                    if (witnessStamps[next] != witnessStamp) {
+                        witnessStamps[next] = witnessStamp;
+                        witnessDist[next] = distance;
+                        witnessHeap.insert(next, distance);
+                    } else if (distance < witnessDist[next]) {
+                        witnessDist[next] = distance;
+                        witnessHeap.decreaseKey(next, distance);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an edge to the adjacency lists of its ends.
+         * @param edge the edge index
+         */
+        private void link(int edge) {
+            int origin = origins[edge];
+            if (nbOutgoing[origin] == outgoing[origin].length) {
+                outgoing[origin] = Arrays.copyOf(outgoing[origin], nbOutgoing[origin] * 2);
+            }
+            outgoing[origin][nbOutgoing[origin]++] = edge;
+            int target = targets[edge];
+            if (nbIncoming[target] == incoming[target].length) {
+                incoming[target] = Arrays.copyOf(incoming[target], nbIncoming[target] * 2);
+            }
+            incoming[target][nbIncoming[target]++] = edge;
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * DijkstraRouter
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+/**
+ * Router running a Dijkstra search from the origin, stopped as soon as the destination is settled.
+ */
+public class DijkstraRouter implements Router {
+
+    /**
+     * The search structures of the router.
+     */
+    private final DijkstraSearch search;
+
+    /**
+     * DijkstraRouter constructor.
+     * @param graph the graph the router searches
+     */
+    public DijkstraRouter(RoadGraph graph) {
+        this.search = new DijkstraSearch(graph);
+    }
+
+    @Override
+    public RoadGraph getGraph() {
+        return search.getGraph();
+    }
+
+    @Override
+    public Route findRoute(int origin, int destination) {
+        search.run(origin, new int[] {destination});
+        double length = search.getDistance(destination);
+        if (length == Double.MAX_VALUE) {
+            return null;
+        }
+
+        // Count then walk the parent edges back from the destination to the origin
+        int nbEdges = 0;
+        for (int node = destination; node != origin; node = search.getPredecessor(node)) {
+            nbEdges++;
+        }
+        int[] edges = new int[nbEdges];
+        for (int node = destination; node != origin; node = search.getPredecessor(node)) {
+            edges[--nbEdges] = search.getParentEdge(node);
+        }
+        return new Route(length, edges);
+    }
+
+    @Override
+    public int getNbSettledNodes() {
+        return search.getNbSettledNodes();
+    }
+
+}
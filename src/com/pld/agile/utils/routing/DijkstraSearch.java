@@ -0,0 +1,342 @@
+/*
+ * DijkstraSearch
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+import java.util.Arrays;
+
+/**
+ * One-to-many Dijkstra search on a RoadGraph, either forward (from a source to many targets)
+ * or backward (to a target from many sources, following the edges in reverse).
+ * An instance holds the distance, predecessor and heap arrays of a search and reuses them
+ * from one search to the next: it is not thread-safe, each thread must use its own instance.
+ * The arrays are not cleared between searches: each search has its own generation number, and a
+ * node is only considered reached (or settled) by the current search if it is stamped with it.
+ * The cost of starting a search thus only depends on the part of the graph it explores.
+ */
+public class DijkstraSearch {
+
+    /**
+     * The graph the search runs on.
+     */
+    private final RoadGraph graph;
+    /**
+     * Distance from the source (or to the target, for a backward search) of the last search (index = node id),
+     * only meaningful for the nodes it reached.
+     */
+    private final double[] dist;
+    /**
+     * Edge linking each node to its parent in the tree of the last search (index = node id), -1 for the root:
+     * the edge entering the node on its path from the source, or the edge leaving it on its path
+     * to the target for a backward search. Only meaningful for the nodes it reached.
+     */
+    private final int[] parentEdges;
+    /**
+     * Generation of the last search that reached each node (index = node id).
+     */
+    private final int[] reachedStamps;
+    /**
+     * Generation of the last search that settled each node (index = node id).
+     */
+    private final int[] settledStamps;
+    /**
+     * Number of times each node appears in the goals of the current search, 0 for the other nodes
+     * (index = node id). Set at the start of a search and cleared at its end.
+     */
+    private final int[] goalCounts;
+    /**
+     * Number of the last SearchTree extraction that kept each node (index = node id).
+     */
+    private final int[] treeStamps;
+    /**
+     * Entry of each node in the SearchTree being built (index = node id).
+     */
+    private final int[] treeEntries;
+    /**
+     * Nodes of the path being added to the SearchTree being built.
+     */
+    private final int[] pathNodes;
+    /**
+     * Priority queue of the nodes to settle.
+     */
+    private final IndexedHeap heap;
+    /**
+     * Generation of the current search.
+     */
+    private int generation;
+    /**
+     * Number of the current SearchTree extraction.
+     */
+    private int treeGeneration;
+    /**
+     * Number of nodes settled by the last search.
+     */
+    private int nbSettledNodes;
+    /**
+     * The node the last search started from.
+     */
+    private int root;
+    /**
+     * Whether the last search followed the edges in reverse.
+     */
+    private boolean backward;
+
+    /**
+     * DijkstraSearch constructor.
+     * @param graph the graph the search runs on
+     */
+    public DijkstraSearch(RoadGraph graph) {
+        this.graph = graph;
+        int nbNodes = graph.getNbNodes();
+        dist = new double[nbNodes];
+        parentEdges = new int[nbNodes];
+        reachedStamps = new int[nbNodes];
+        settledStamps = new int[nbNodes];
+        goalCounts = new int[nbNodes];
+        treeStamps = new int[nbNodes];
+        treeEntries = new int[nbNodes];
+        pathNodes = new int[nbNodes];
+        heap = new IndexedHeap(nbNodes);
+        generation = 0;
+        treeGeneration = 0;
+    }
+
+    /**
+     * Getter for attribute graph.
+     * @return the graph the search runs on
+     */
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Computes the shortest paths from a source node, until all the target nodes are settled.
+     * @param source the source node id
+     * @param targets the target node ids
+     */
+    public void run(int source, int[] targets) {
+        search(source, targets, false);
+    }
+
+    /**
+     * Computes the shortest paths to a target node, until all the source nodes are settled.
+     * The edges are followed in reverse, so that a single search gives the distance
+     * from every source to the target.
+     * @param target the target node id
+     * @param sources the source node ids
+     */
+    public void runBackward(int target, int[] sources) {
+        search(target, sources, true);
+    }
+
+    /**
+     * Computes the shortest paths from a source node to every node of the graph.
+     * @param source the source node id
+     */
+    public void runAll(int source) {
+        search(source, null, false);
+    }
+
+    /**
+     * Computes the shortest paths from every node of the graph to a target node.
+     * @param target the target node id
+     */
+    public void runBackwardAll(int target) {
+        search(target, null, true);
+    }
+
+    /**
+     * Runs the search from a root node until all the given nodes are settled.
+     * The goals are marked in goalCounts, so that checking whether a settled node is one of them
+     * does not depend on their number; a node given several times is counted as many times.
+     * @param root the node the search starts from
+     * @param goals the nodes to settle, null to settle every reachable node
+     * @param backward whether the edges are followed in reverse
+     */
+    private void search(int root, int[] goals, boolean backward) {
+        nextGeneration();
+        heap.clear();
+        this.root = root;
+        this.backward = backward;
+        reach(root, 0, -1);
+        heap.insert(root, 0);
+        nbSettledNodes = 0;
+
+        int nbGoals = -1;
+        if (goals != null) {
+            nbGoals = goals.length;
+            for (int goal : goals) {
+                goalCounts[goal]++;
+            }
+        }
+        int nbGoalsSettled = 0;
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            settledStamps[node] = generation;
+            nbSettledNodes++;
+            nbGoalsSettled += goalCounts[node];
+            if (nbGoalsSettled == nbGoals) {
+                break;
+            }
+
+            if (backward) {
+                for (int i = graph.getFirstIncoming(node); i < graph.getEndIncoming(node); i++) {
+                    int e = graph.getIncomingEdge(i);
+                    relax(node, graph.getOrigin(e), e);
+                }
+            } else {
+                for (int e = graph.getFirstEdge(node); e < graph.getEndEdge(node); e++) {
+                    relax(node, graph.getTarget(e), e);
+                }
+            }
+        }
+
+        if (goals != null) {
+            for (int goal : goals) {
+                goalCounts[goal] = 0;
+            }
+        }
+    }
+
+    /**
+     * Starts a new search generation, resetting the stamps when the counter wraps around.
+     */
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamps, 0);
+            Arrays.fill(settledStamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Records the distance and parent edge of a node reached by the current search.
+     * @param node the node id
+     * @param distance its distance from the root
+     * @param edge the edge linking it to its parent
+     */
+    private void reach(int node, double distance, int edge) {
+        reachedStamps[node] = generation;
+        dist[node] = distance;
+        parentEdges[node] = edge;
+    }
+
+    /**
+     * Updates the distance of a neighbour of a settled node if the edge linking them gives a shorter path.
+     * @param node the settled node
+     * @param nextNode the neighbour node
+     * @param edge the edge linking them
+     */
+    private void relax(int node, int nextNode, int edge) {
+        double distance = dist[node] + graph.getLength(edge);
+        if (reachedStamps[nextNode] != generation) {
+            reach(nextNode, distance, edge);
+            heap.insert(nextNode, distance);
+        } else if (settledStamps[nextNode] != generation && distance < dist[nextNode]) {
+            reach(nextNode, distance, edge);
+            heap.decreaseKey(nextNode, distance);
+        }
+    }
+
+    /**
+     * Getter for the number of nodes settled by the last search.
+     * @return the number of nodes settled by the last search
+     */
+    public int getNbSettledNodes() {
+        return nbSettledNodes;
+    }
+
+    /**
+     * Returns the distance from the source of the last search to a node
+     * (from the node to the target, for a backward search).
+     * @param node the node id
+     * @return the distance, Double.MAX_VALUE if the node has not been reached
+     */
+    public double getDistance(int node) {
+        return reachedStamps[node] == generation ? dist[node] : Double.MAX_VALUE;
+    }
+
+    /**
+     * Returns the predecessor of a node on its shortest path from the source of the last search.
+     * Only meaningful for reached nodes, the predecessor of the source is the source itself.
+     * @param node the node id
+     * @return the predecessor node id
+     */
+    public int getPredecessor(int node) {
+        return parentEdges[node] < 0 ? node : graph.getOrigin(parentEdges[node]);
+    }
+
+    /**
+     * Returns the successor of a node on its shortest path to the target of the last backward search.
+     * Only meaningful for reached nodes, the successor of the target is the target itself.
+     * @param node the node id
+     * @return the successor node id
+     */
+    public int getSuccessor(int node) {
+        return parentEdges[node] < 0 ? node : graph.getTarget(parentEdges[node]);
+    }
+
+    /**
+     * Returns the edge linking a node to its parent in the tree of the last search: the edge entering it
+     * on its shortest path from the source, or the edge leaving it on its shortest path to the target
+     * for a backward search. Only meaningful for reached nodes.
+     * @param node the node id
+     * @return the edge index, -1 for the root of the search
+     */
+    public int getParentEdge(int node) {
+        return parentEdges[node];
+    }
+
+    /**
+     * Extracts the part of the shortest path tree of the last search leading to some of the nodes it
+     * reached, which stays valid when the search is run again. Only the nodes on these paths are kept,
+     * each path being walked until it joins one that is already kept.
+     * @param nodes the reached nodes whose route to (or from) the root is kept
+     * @return the tree of the last search, restricted to the given nodes
+     */
+    public SearchTree getTree(int[] nodes) {
+        treeGeneration++;
+        if (treeGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(treeStamps, 0);
+            treeGeneration = 1;
+        }
+        int[] nodeEntries = new int[nodes.length];
+        int[] entryParents = new int[16];
+        int[] entryEdges = new int[16];
+        int nbEntries = 0;
+        for (int k = 0; k < nodes.length; k++) {
+            // Collect the nodes between this one and the root or an already kept node
+            int nbPathNodes = 0;
+            int node = nodes[k];
+            while (node != root && treeStamps[node] != treeGeneration) {
+                pathNodes[nbPathNodes++] = node;
+                node = backward ? graph.getTarget(parentEdges[node]) : graph.getOrigin(parentEdges[node]);
+            }
+            int parentEntry = node == root ? -1 : treeEntries[node];
+            if (nbEntries + nbPathNodes > entryEdges.length) {
+                int capacity = Math.max(entryEdges.length * 2, nbEntries + nbPathNodes);
+                entryParents = Arrays.copyOf(entryParents, capacity);
+                entryEdges = Arrays.copyOf(entryEdges, capacity);
+            }
+            // Keep them from the closest to the root, so that each parent entry already exists
+            for (int p = nbPathNodes - 1; p >= 0; p--) {
+                int pathNode = pathNodes[p];
+                entryParents[nbEntries] = parentEntry;
+                entryEdges[nbEntries] = parentEdges[pathNode];
+                treeStamps[pathNode] = treeGeneration;
+                treeEntries[pathNode] = nbEntries;
+                parentEntry = nbEntries++;
+            }
+            nodeEntries[k] = parentEntry;
+        }
+        return new SearchTree(graph, backward, nodes.clone(), nodeEntries,
+                Arrays.copyOf(entryParents, nbEntries), Arrays.copyOf(entryEdges, nbEntries));
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * IndexedHeap
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed 4-ary min-heap of int keys in [0, capacity) ordered by double priorities.
+ * Unlike a PriorityQueue, the position of every key is tracked so that contains() is O(1)
+ * and a priority can be decreased in O(log n). The heap can be cleared and reused
+ * for several searches without reallocating its arrays.
+ */
+public class IndexedHeap {
+
+    /**
+     * Number of children of each node of the heap.
+     */
+    private static final int ARITY = 4;
+
+    /**
+     * Keys of the heap, in heap order (index = position in the heap).
+     */
+    private final int[] heap;
+    /**
+     * Position of each key in the heap (index = key), -1 if the key is not in the heap.
+     */
+    private final int[] positions;
+    /**
+     * Priority of each key (index = key), only meaningful for keys in the heap.
+     */
+    private final double[] priorities;
+    /**
+     * Number of keys currently in the heap.
+     */
+    private int size;
+
+    /**
+     * IndexedHeap constructor.
+     * @param capacity the number of distinct keys the heap can hold (keys are in [0, capacity))
+     */
+    public IndexedHeap(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        priorities = new double[capacity];
+        for (int i = 0; i < capacity; i++) {
+            positions[i] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Getter for the capacity of the heap.
+     * @return the number of distinct keys the heap can hold
+     */
+    public int getCapacity() {
+        return positions.length;
+    }
+
+    /**
+     * Getter for the size of the heap.
+     * @return the number of keys currently in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the heap is empty.
+     * @return true if there is no key in the heap
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether a key is in the heap.
+     * @param key the key
+     * @return true if the key is in the heap
+     */
+    public boolean contains(int key) {
+        return positions[key] >= 0;
+    }
+
+    /**
+     * Getter for the priority of a key that is in the heap.
+     * @param key the key
+     * @return the priority of the key
+     */
+    public double getPriority(int key) {
+        return priorities[key];
+    }
+
+    /**
+     * Inserts a key that is not yet in the heap.
+     * @param key the key to insert
+     * @param priority the priority of the key
+     * @throws IllegalArgumentException if the key is already in the heap
+     */
+    public void insert(int key, double priority) {
+        if (positions[key] >= 0) {
+            throw new IllegalArgumentException("Key " + key + " is already in the heap");
+        }
+        priorities[key] = priority;
+        heap[size] = key;
+        positions[key] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Decreases the priority of a key that is in the heap.
+     * Does nothing if the new priority is not smaller than the current one.
+     * @param key the key
+     * @param priority the new priority of the key
+     */
+    public void decreaseKey(int key, double priority) {
+        if (priority < priorities[key]) {
+            priorities[key] = priority;
+            siftUp(positions[key]);
+        }
+    }
+
+    /**
+     * Changes the priority of a key of the heap, whether it is lower or higher than the current one.
+     * @param key the key, which must be in the heap
+     * @param priority the new priority
+     */
+    public void changePriority(int key, double priority) {
+        double previous = priorities[key];
+        priorities[key] = priority;
+        if (priority < previous) {
+            siftUp(positions[key]);
+        } else if (priority > previous) {
+            siftDown(positions[key]);
+        }
+    }
+
+    /**
+     * Inserts a key, or decreases its priority if it is already in the heap.
+     * @param key the key
+     * @param priority the priority of the key
+     */
+    public void insertOrDecrease(int key, double priority) {
+        if (positions[key] >= 0) {
+            decreaseKey(key, priority);
+        } else {
+            insert(key, priority);
+        }
+    }
+
+    /**
+     * Returns the key of minimal priority without removing it.
+     * @return the key of minimal priority
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("The heap is empty");
+        }
+        return heap[0];
+    }
+
+    /**
+     * Removes the key of minimal priority from the heap.
+     * @return the removed key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("The heap is empty");
+        }
+        int min = heap[0];
+        positions[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all the keys from the heap, in O(size).
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves the key at the given position up until the heap order is restored.
+     * @param position the position of the key in the heap
+     */
+    private void siftUp(int position) {
+        int key = heap[position];
+        double priority = priorities[key];
+        while (position > 0) {
+            int parentPosition = (position - 1) / ARITY;
+            int parent = heap[parentPosition];
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = key;
+        positions[key] = position;
+    }
+
+    /**
+     * Moves the key at the given position down until the heap order is restored.
+     * @param position the position of the key in the heap
+     */
+    private void siftDown(int position) {
+        int key = heap[position];
+        double priority = priorities[key];
+        while (true) {
+            int firstChild = position * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + ARITY, size);
+            int minChildPosition = firstChild;
+            double minChildPriority = priorities[heap[firstChild]];
+            for (int c = firstChild + 1; c < lastChild; c++) {
+                double childPriority = priorities[heap[c]];
+                if (childPriority < minChildPriority) {
+                    minChildPriority = childPriority;
+                    minChildPosition = c;
+                }
+            }
+            if (minChildPriority >= priority) {
+                break;
+            }
+            int child = heap[minChildPosition];
+            heap[position] = child;
+            positions[child] = position;
+            position = minChildPosition;
+        }
+        heap[position] = key;
+        positions[key] = position;
+    }
+
+}
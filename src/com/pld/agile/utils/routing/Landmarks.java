@@ -0,0 +1,305 @@
+/*
+ * Landmarks
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Landmarks of a RoadGraph and the distances from and to each of them, used by ALT searches
+ * (A*, Landmarks, Triangle inequality): for a landmark L, the triangle inequality gives
+ * d(u, v) &gt;= d(L, v) - d(L, u) and d(u, v) &gt;= d(u, L) - d(v, L).
+ * The landmarks are selected with the farthest strategy: each new landmark is the node
+ * farthest (in round-trip distance) from the landmarks already selected.
+ */
+public class Landmarks {
+
+    /**
+     * Default number of landmarks selected for a map.
+     */
+    public static final int DEFAULT_COUNT = 16;
+    /**
+     * Extension of the file storing the landmarks next to the map file.
+     */
+    public static final String FILE_EXTENSION = ".landmarks";
+    /**
+     * First bytes of a landmarks file ("LMK1").
+     */
+    private static final int FILE_MAGIC = 0x4C4D4B31;
+
+    /**
+     * The graph the distances were computed on.
+     */
+    private final RoadGraph graph;
+    /**
+     * The node id of each landmark.
+     */
+    private final int[] nodes;
+    /**
+     * Distance from each landmark to each node, Double.MAX_VALUE if unreachable.
+     */
+    private final double[][] fromLandmark;
+    /**
+     * Distance from each node to each landmark, Double.MAX_VALUE if unreachable.
+     */
+    private final double[][] toLandmark;
+
+    /**
+     * Landmarks constructor.
+     * @param graph the graph the distances were computed on
+     * @param nodes the node id of each landmark
+     * @param fromLandmark the distances from each landmark to each node
+     * @param toLandmark the distances from each node to each landmark
+     */
+    private Landmarks(RoadGraph graph, int[] nodes, double[][] fromLandmark, double[][] toLandmark) {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Selects landmarks in a graph and computes their distances to and from every node,
+     * with one forward and one backward search per landmark.
+     * @param graph the graph
+     * @param nbLandmarks the number of landmarks to select (at most the number of nodes)
+     * @return the selected Landmarks
+     */
+    public static Landmarks select(RoadGraph graph, int nbLandmarks) {
+        int nbNodes = graph.getNbNodes();
+        nbLandmarks = Math.max(0, Math.min(nbLandmarks, nbNodes));
+        int[] nodes = new int[nbLandmarks];
+        double[][] fromLandmark = new double[nbLandmarks][];
+        double[][] toLandmark = new double[nbLandmarks][];
+        if (nbLandmarks == 0) {
+            return new Landmarks(graph, nodes, fromLandmark, toLandmark);
+        }
+
+        DijkstraSearch search = new DijkstraSearch(graph);
+        // The first landmark is the node farthest from node 0
+        search.runAll(0);
+        int landmark = 0;
+        for (int n = 1; n < nbNodes; n++) {
+            double distance = search.getDistance(n);
+            if (distance != Double.MAX_VALUE && distance > search.getDistance(landmark)) {
+                landmark = n;
+            }
+        }
+
+        // Round-trip distance of each node to its closest landmark
+        double[] closest = new double[nbNodes];
+        Arrays.fill(closest, Double.MAX_VALUE);
+        for (int i = 0; i < nbLandmarks; i++) {
+            nodes[i] = landmark;
+            fromLandmark[i] = distances(search, landmark, false);
+            toLandmark[i] = distances(search, landmark, true);
+            for (int n = 0; n < nbNodes; n++) {
+                if (fromLandmark[i][n] != Double.MAX_VALUE && toLandmark[i][n] != Double.MAX_VALUE) {
+                    closest[n] = Math.min(closest[n], fromLandmark[i][n] + toLandmark[i][n]);
+                }
+            }
+            closest[landmark] = -1;
+
+            // The next landmark is the farthest node, nodes out of reach of every landmark first
+            for (int n = 0; n < nbNodes; n++) {
+                if (closest[n] > closest[landmark]) {
+                    landmark = n;
+                }
+            }
+        }
+        return new Landmarks(graph, nodes, fromLandmark, toLandmark);
+    }
+
+    /**
+     * Runs a full search from or to a landmark and copies the distances found.
+     * @param search the search structures
+     * @param landmark the landmark node id
+     * @param backward whether the distances to the landmark are computed
+     * @return the distance of each node from or to the landmark
+     */
+    private static double[] distances(DijkstraSearch search, int landmark, boolean backward) {
+        if (backward) {
+            search.runBackwardAll(landmark);
+        } else {
+            search.runAll(landmark);
+        }
+        double[] distances = new double[search.getGraph().getNbNodes()];
+        for (int n = 0; n < distances.length; n++) {
+            distances[n] = search.getDistance(n);
+        }
+        return distances;
+    }
+
+    /**
+     * Getter for attribute graph.
+     * @return the graph the distances were computed on
+     */
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Getter for the number of landmarks.
+     * @return the number of landmarks
+     */
+    public int getNbLandmarks() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the node of a landmark.
+     * @param landmark the index of the landmark
+     * @return the node id of the landmark
+     */
+    public int getNode(int landmark) {
+        return nodes[landmark];
+    }
+
+    /**
+     * Returns the distance from a landmark to a node.
+     * @param landmark the index of the landmark
+     * @param node the node id
+     * @return the distance, Double.MAX_VALUE if the node cannot be reached
+     */
+    public double getDistanceFrom(int landmark, int node) {
+        return fromLandmark[landmark][node];
+    }
+
+    /**
+     * Returns the distance from a node to a landmark.
+     * @param landmark the index of the landmark
+     * @param node the node id
+     * @return the distance, Double.MAX_VALUE if the landmark cannot be reached
+     */
+    public double getDistanceTo(int landmark, int node) {
+        return toLandmark[landmark][node];
+    }
+
+    /**
+     * Computes a lower bound of the distance between two nodes with the triangle inequality.
+     * @param origin the origin node id
+     * @param destination the destination node id
+     * @return a distance never exceeding the length of a path from the origin to the destination
+     */
+    public double lowerBound(int origin, int destination) {
+        double bound = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            bound = Math.max(bound, lowerBound(i, origin, destination));
+        }
+        return bound;
+    }
+
+    /**
+     * Computes the lower bound given by one landmark of the distance between two nodes.
+     * The bounds involving an unreachable node are ignored.
+     * @param landmark the index of the landmark
+     * @param origin the origin node id
+     * @param destination the destination node id
+     * @return a distance never exceeding the length of a path from the origin to the destination
+     */
+    public double lowerBound(int landmark, int origin, int destination) {
+        double bound = 0;
+        double[] from = fromLandmark[landmark];
+        if (from[origin] != Double.MAX_VALUE && from[destination] != Double.MAX_VALUE) {
+            bound = from[destination] - from[origin];
+        }
+        double[] to = toLandmark[landmark];
+        if (to[origin] != Double.MAX_VALUE && to[destination] != Double.MAX_VALUE) {
+            bound = Math.max(bound, to[origin] - to[destination]);
+        }
+        return bound;
+    }
+
+    /**
+     * Computes a value identifying the nodes and edges of a graph, stored in the landmarks file
+     * to detect a file computed on another version of the map.
+     * @param graph the graph
+     * @return the signature of the graph
+     */
+    public static long signature(RoadGraph graph) {
+        long signature = graph.getNbNodes();
+        for (int e = 0; e < graph.getNbEdges(); e++) {
+            signature = 31 * signature + graph.getOrigin(e);
+            signature = 31 * signature + graph.getTarget(e);
+            signature = 31 * signature + Double.doubleToLongBits(graph.getLength(e));
+        }
+        return signature;
+    }
+
+    /**
+     * Writes the landmarks and their distances to a file.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeLong(signature(graph));
+            out.writeInt(graph.getNbNodes());
+            out.writeInt(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                out.writeInt(nodes[i]);
+                for (double distance : fromLandmark[i]) {
+                    out.writeDouble(distance);
+                }
+                for (double distance : toLandmark[i]) {
+                    out.writeDouble(distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads landmarks written by write(File).
+     * @param file the file to read
+     * @param graph the graph the landmarks must have been computed on
+     * @return the Landmarks read, null if the file was computed on another graph
+     * @throws IOException if the file cannot be read or is invalid
+     */
+    public static Landmarks read(File file, RoadGraph graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Invalid landmarks file.");
+            }
+            if (in.readLong() != signature(graph) || in.readInt() != graph.getNbNodes()) {
+                return null;
+            }
+            int nbLandmarks = in.readInt();
+            int nbNodes = graph.getNbNodes();
+            if (nbLandmarks < 0 || nbLandmarks > nbNodes) {
+                throw new IOException("Invalid landmarks file.");
+            }
+            int[] nodes = new int[nbLandmarks];
+            double[][] fromLandmark = new double[nbLandmarks][nbNodes];
+            double[][] toLandmark = new double[nbLandmarks][nbNodes];
+            for (int i = 0; i < nbLandmarks; i++) {
+                nodes[i] = in.readInt();
+                for (int n = 0; n < nbNodes; n++) {
+                    fromLandmark[i][n] = in.readDouble();
+                }
+                for (int n = 0; n < nbNodes; n++) {
+                    toLandmark[i][n] = in.readDouble();
+                }
+            }
+            return new Landmarks(graph, nodes, fromLandmark, toLandmark);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Landmarks{" + "nbLandmarks=" + nodes.length + ", graph=" + graph + '}';
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Route
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+/**
+ * Result of a point-to-point search: the edges of a shortest path in a RoadGraph and its length.
+ */
+public class Route {
+
+    /**
+     * The length of the route.
+     */
+    private final double length;
+    /**
+     * The edges of the route, in order from the origin to the destination.
+     */
+    private final int[] edges;
+
+    /**
+     * Route constructor.
+     * @param length the length of the route
+     * @param edges the edges of the route, in order
+     */
+    public Route(double length, int[] edges) {
+        this.length = length;
+        this.edges = edges;
+    }
+
+    /**
+     * Getter for attribute length.
+     * @return the length of the route
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Getter for attribute edges.
+     * @return the edges of the route, in order from the origin to the destination
+     */
+    public int[] getEdges() {
+        return edges;
+    }
+
+    @Override
+    public String toString() {
+        return "Route{" + "length=" + length + ", nbEdges=" + edges.length + '}';
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Router
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+/**
+ * Point-to-point shortest path search on a RoadGraph.
+ * Implementations reuse their search arrays from one query to the next and are not thread-safe.
+ */
+public interface Router {
+
+    /**
+     * Getter for the graph the router searches.
+     * @return the graph the router searches
+     */
+    RoadGraph getGraph();
+
+    /**
+     * Finds a shortest path between two nodes.
+     * @param origin the origin node id
+     * @param destination the destination node id
+     * @return the shortest route, null if the destination cannot be reached
+     */
+    Route findRoute(int origin, int destination);
+
+    /**
+     * Getter for the number of nodes settled by the last search, to compare routing modes.
+     * @return the number of nodes settled by the last call to findRoute
+     */
+    int getNbSettledNodes();
+
+}
@@ -0,0 +1,51 @@
+/*
+ * RoutingMode
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.MapData;
+
+/**
+ * The algorithms available for point-to-point routing.
+ */
+public enum RoutingMode {
+    /**
+     * Plain Dijkstra search, expanding in every direction.
+     */
+    DIJKSTRA,
+    /**
+     * Dijkstra searches from both ends at once, meeting around the middle of the route.
+     */
+    BIDIRECTIONAL_DIJKSTRA,
+    /**
+     * A* search, directed towards the destination by a great-circle lower bound.
+     */
+    A_STAR,
+    /**
+     * A* search, directed towards the destination by the landmarks of the map.
+     */
+    ALT,
+    /**
+     * Upward searches on the contraction hierarchy of the map, which also fill
+     * the stops graph with many-to-many queries.
+     */
+    CONTRACTION_HIERARCHY;
+
+    /**
+     * Creates a router of this mode.
+     * @param map the map whose road graph the router searches
+     * @return a new Router
+     */
+    public Router createRouter(MapData map) {
+        return switch (this) {
+            case DIJKSTRA -> new DijkstraRouter(map.getRoadGraph());
+            case BIDIRECTIONAL_DIJKSTRA -> new BidirectionalDijkstraRouter(map.getRoadGraph());
+            case A_STAR -> new AStarRouter(map.getRoadGraph());
+            case ALT -> new AltRouter(map.getLandmarks());
+            case CONTRACTION_HIERARCHY -> new ChRouter(map.getContractionHierarchy());
+        };
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * SearchTree
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+/**
+ * Part of the shortest path tree of a finished DijkstraSearch, kept so that the routes between its root
+ * and some of the nodes it reached can be rebuilt later without running the search again.
+ * Only the nodes on these routes are kept, each one as an entry holding the edge linking it to its parent
+ * and the entry of that parent: building a route walks these entries from the node to the root,
+ * which is only done for the routes that are actually needed.
+ */
+public class SearchTree {
+
+    /**
+     * The graph the search ran on.
+     */
+    private final RoadGraph graph;
+    /**
+     * Whether the search followed the edges in reverse.
+     */
+    private final boolean backward;
+    /**
+     * The nodes whose route is kept.
+     */
+    private final int[] nodes;
+    /**
+     * Entry of each kept node (index = index in nodes), -1 for the root.
+     */
+    private final int[] nodeEntries;
+    /**
+     * Entry of the parent of each entry, -1 if the parent is the root.
+     */
+    private final int[] entryParents;
+    /**
+     * Edge linking the node of each entry to its parent: the edge entering it for a forward search,
+     * the edge leaving it for a backward search.
+     */
+    private final int[] entryEdges;
+
+    /**
+     * SearchTree constructor.
+     * @param graph the graph the search ran on
+     * @param backward whether the search followed the edges in reverse
+     * @param nodes the nodes whose route is kept
+     * @param nodeEntries the entry of each kept node, -1 for the root
+     * @param entryParents the entry of the parent of each entry, -1 if the parent is the root
+     * @param entryEdges the edge linking the node of each entry to its parent
+     */
+    public SearchTree(RoadGraph graph, boolean backward, int[] nodes, int[] nodeEntries,
+                      int[] entryParents, int[] entryEdges) {
+        this.graph = graph;
+        this.backward = backward;
+        this.nodes = nodes;
+        this.nodeEntries = nodeEntries;
+        this.entryParents = entryParents;
+        this.entryEdges = entryEdges;
+    }
+
+    /**
+     * Getter for attribute graph.
+     * @return the graph the search ran on
+     */
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Getter for attribute backward.
+     * @return whether the search followed the edges in reverse
+     */
+    public boolean isBackward() {
+        return backward;
+    }
+
+    /**
+     * Getter for the number of entries of the tree.
+     * @return the number of nodes kept on the routes, root excluded
+     */
+    public int getNbEntries() {
+        return entryEdges.length;
+    }
+
+    /**
+     * Builds the route between the root and a kept node: from the root to the node for a forward
+     * search, from the node to the root for a backward one.
+     * @param node the kept node id
+     * @return the edges of the route, in order
+     * @throws IllegalArgumentException if the route of the node was not kept
+     */
+    public int[] getEdges(int node) {
+        int k = 0;
+        while (k < nodes.length && nodes[k] != node) {
+            k++;
+        }
+        if (k == nodes.length) {
+            throw new IllegalArgumentException("The route of node " + node + " was not kept");
+        }
+
+        int nbEdges = 0;
+        for (int entry = nodeEntries[k]; entry >= 0; entry = entryParents[entry]) {
+            nbEdges++;
+        }
+        int[] edges = new int[nbEdges];
+        int position = backward ? 0 : nbEdges;
+        for (int entry = nodeEntries[k]; entry >= 0; entry = entryParents[entry]) {
+            if (backward) {
+                edges[position++] = entryEdges[entry];
+            } else {
+                edges[--position] = entryEdges[entry];
+            }
+        }
+        return edges;
+    }
+
+}
@@ -0,0 +1,549 @@
+/*
+ * StopsGraphBuilder
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.MapData;
+import com.pld.agile.model.map.RoadGraph;
+import com.pld.agile.model.map.Segment;
+import com.pld.agile.model.tour.Path;
+import com.pld.agile.model.tour.Stop;
+import com.pld.agile.utils.exception.PathException;
+import com.pld.agile.utils.tsp.CancellationToken;
+import com.pld.agile.utils.tsp.CompleteGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Computes the graph of the shortest paths between every pair of stops of a tour.
+ * One forward Dijkstra search fills the row of a source stop, one backward search fills the
+ * column of a destination stop. The searches are spread over a ForkJoinPool, each worker thread
+ * reusing its own DijkstraSearch (and thus its own dist / predecessor arrays).
+ * Only the costs are computed eagerly: each Path keeps the tree of its search (or its route) and
+ * builds its list of segments the first time it is requested, since only the paths of the tour are.
+ * Single paths between two stops are found by a Router of the chosen RoutingMode.
+ * In CONTRACTION_HIERARCHY mode, the rows and columns are instead filled by many-to-many
+ * queries on the contraction hierarchy of the map, run on the calling thread.
+ * The computation of a whole graph can be cancelled: the token is checked before each search, a single search
+ * taking a few milliseconds.
+ */
+public class StopsGraphBuilder {
+
+    /**
+     * The map on which the paths are computed.
+     */
+    private final MapData map;
+    /**
+     * The pool running the searches.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * The search structures of each worker thread.
+     */
+    private final ThreadLocal<DijkstraSearch> searches;
+    /**
+     * The algorithm used to find single paths.
+     */
+    private final RoutingMode routingMode;
+    /**
+     * The routers of each thread finding single paths.
+     */
+    private final ThreadLocal<Router> routers;
+
+    /**
+     * StopsGraphBuilder constructor, single paths being found with Dijkstra.
+     * @param map the map on which the paths are computed
+     * @param parallelism the number of searches that can run at the same time
+     */
+    public StopsGraphBuilder(MapData map, int parallelism) {
+        this(map, parallelism, RoutingMode.DIJKSTRA);
+    }
+
+    /**
+     * StopsGraphBuilder constructor.
+     * @param map the map on which the paths are computed
+     * @param parallelism the number of searches that can run at the same time
+     * @param routingMode the algorithm used to find single paths
+     */
+    public StopsGraphBuilder(MapData map, int parallelism, RoutingMode routingMode) {
+        this.map = map;
+        this.pool = new ForkJoinPool(parallelism);
+        this.searches = new ThreadLocal<>();
+        this.routingMode = routingMode;
+        this.routers = new ThreadLocal<>();
+    }
+
+    /**
+     * Getter for attribute map.
+     * @return the map on which the paths are computed
+     */
+    public MapData getMap() {
+        return map;
+    }
+
+    /**
+     * Getter for the parallelism level.
+     * @return the number of searches that can run at the same time
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Getter for attribute routingMode.
+     * @return the algorithm used to find single paths
+     */
+    public RoutingMode getRoutingMode() {
+        return routingMode;
+    }
+
+    /**
+     * Computes the complete graph of the shortest paths between the given stops.
+     * Vertex i of the graph is the stop of index i in the list.
+     * @param stops the list of stops
+     * @return the graph holding the cost and the Path of every pair of stops
+     * @throws PathException if a stop cannot be reached from another one
+     */
+    public CompleteGraph build(List<Stop> stops) throws PathException {
+        return build(stops, new CancellationToken());
+    }
+
+    /**
+     * Computes the complete graph of the shortest paths between the given stops, unless the computation
+     * is cancelled. Vertex i of the graph is the stop of index i in the list.
+     * @param stops the list of stops
+     * @param cancellation the token cancelling the computation, the pending searches being skipped
+     * @return the graph holding the cost and the Path of every pair of stops
+     * @throws PathException if a stop cannot be reached from another one
+     * @throws CancellationException if the computation has been cancelled
+     */
+    public CompleteGraph build(List<Stop> stops, CancellationToken cancellation) throws PathException {
+        int n = stops.size();
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+
+        CompleteGraph graph = new CompleteGraph(n);
+        compute(stops, graph, rows, new int[0], cancellation);
+        return graph;
+    }
+
+    /**
+     * Recomputes the arcs of the graph going from or to the given stops, after they have been
+     * added to the list or moved to another intersection. The other arcs are kept as they are.
+     * Each changed stop needs exactly two searches: a forward one filling its row and a backward
+     * one filling its column.
+     * @param graph the graph to update, with one vertex per stop
+     * @param stops the list of stops
+     * @param changed the indexes of the changed stops
+     * @throws PathException if a stop cannot be reached from another one
+     */
+    public void update(CompleteGraph graph, List<Stop> stops, int... changed) throws PathException {
+        compute(stops, graph, changed, changed, new CancellationToken());
+        graph.recomputeMinCost();
+    }
+
+    /**
+     * Finds the shortest path between two stops with a point-to-point search,
+     * without computing the paths to the other stops.
+     * @param origin the origin stop
+     * @param destination the destination stop
+     * @return the shortest Path from the origin to the destination
+     * @throws PathException if the destination cannot be reached from the origin
+     */
+    public Path findPath(Stop origin, Stop destination) throws PathException {
+        List<Segment> pathSegments = new ArrayList<>();
+        double length = 0;
+        if (origin.getAddress() != destination.getAddress()) {
+            Router router = getRouter();
+            Route route = router.findRoute(origin.getAddress().getId(), destination.getAddress().getId());
+            if (route == null) {
+                throw new PathException("Unable to compute paths for this request");
+            }
+            pathSegments = toSegments(router.getGraph(), route.getEdges());
+            length = route.getLength();
+        }
+        Path path = new Path(origin, destination);
+        path.setSegments(pathSegments);
+        path.setLength(length);
+        return path;
+    }
+
+    /**
+     * Stops the worker threads of the builder, which cannot be used anymore.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Fills whole rows and columns of the graph, the searches being spread over the pool.
+     * The arcs between two stops that are both in rows and columns are taken from the rows.
+     * @param stops the list of stops
+     * @param graph the graph to fill
+     * @param rows the indexes of the source stops whose paths to every stop are computed
+     * @param columns the indexes of the destination stops whose paths from every stop are computed
+     * @param cancellation the token cancelling the computation
+     * @throws PathException if a stop cannot be reached from another one
+     * @throws CancellationException if the computation has been cancelled
+     */
+    private void compute(List<Stop> stops, CompleteGraph graph, int[] rows, int[] columns,
+                         CancellationToken cancellation) throws PathException {
+        int n = stops.size();
+        int[] nodes = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = stops.get(i).getAddress().getId();
+        }
+        boolean[] isRow = new boolean[n];
+        for (int i : rows) {
+            isRow[i] = true;
+        }
+        int[] allStops = new int[n];
+        int nbOtherStops = 0;
+        for (int i = 0; i < n; i++) {
+            allStops[i] = i;
+            if (!isRow[i]) {
+                nbOtherStops++;
+            }
+        }
+        // Columns only need the sources that are not filled by a row
+        int[] otherStops = new int[nbOtherStops];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (!isRow[i]) {
+                otherStops[k++] = i;
+            }
+        }
+
+        if (routingMode == RoutingMode.CONTRACTION_HIERARCHY) {
+            checkCancellation(cancellation);
+            computeWithHierarchy(stops, nodes, graph, rows, allStops);
+            checkCancellation(cancellation);
+            computeWithHierarchy(stops, nodes, graph, otherStops, columns);
+            return;
+        }
+
+        AtomicReference<PathException> failure = new AtomicReference<>();
+        int nbSearches = rows.length + columns.length;
+        if (n > 0 && nbSearches > 0) {
+            pool.invoke(new SearchTask(stops, nodes, graph, rows, columns, allStops, otherStops,
+                    failure, cancellation, 0, nbSearches));
+        }
+        checkCancellation(cancellation);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Computes the shortest paths from one stop to some others and stores them in the graph.
+     * @param stops the list of stops
+     * @param nodes the intersection id of each stop
+     * @param graph the graph to fill
+     * @param row the index of the source stop
+     * @param columns the indexes of the destination stops
+     * @throws PathException if a destination stop cannot be reached from the source stop
+     */
+    private void computeRow(List<Stop> stops, int[] nodes, CompleteGraph graph, int row, int[] columns)
+            throws PathException {
+        DijkstraSearch search = getSearch();
+        RoadGraph roadGraph = search.getGraph();
+        int[] destinations = selectNodes(nodes, columns);
+        search.run(nodes[row], destinations);
+        checkReached(search, destinations);
+
+        // The paths are only walked when their segments are requested
+        SearchTree tree = search.getTree(destinations);
+        for (int i : columns) {
+            if (i != row) {
+                double distance = search.getDistance(nodes[i]);
+                int destination = nodes[i];
+                storePath(stops, graph, row, i, () -> toSegments(roadGraph, tree.getEdges(destination)), distance);
+            }
+        }
+    }
+
+    /**
+     * Computes the shortest paths from some stops to one other with a single backward search
+     * and stores them in the graph.
+     * @param stops the list of stops
+     * @param nodes the intersection id of each stop
+     * @param graph the graph to fill
+     * @param column the index of the destination stop
+     * @param rows the indexes of the source stops
+     * @throws PathException if the destination stop cannot be reached from a source stop
+     */
+    private void computeColumn(List<Stop> stops, int[] nodes, CompleteGraph graph, int column, int[] rows)
+            throws PathException {
+        DijkstraSearch search = getSearch();
+        RoadGraph roadGraph = search.getGraph();
+        int[] sources = selectNodes(nodes, rows);
+        search.runBackward(nodes[column], sources);
+        checkReached(search, sources);
+
+        // The paths are only walked when their segments are requested
+        SearchTree tree = search.getTree(sources);
+        for (int i : rows) {
+            if (i != column) {
+                double distance = search.getDistance(nodes[i]);
+                int source = nodes[i];
+                storePath(stops, graph, i, column, () -> toSegments(roadGraph, tree.getEdges(source)), distance);
+            }
+        }
+    }
+
+    /**
+     * Computes the shortest paths from some stops to some others with a single many-to-many query
+     * on the contraction hierarchy, and stores them in the graph.
+     * @param stops the list of stops
+     * @param nodes the intersection id of each stop
+     * @param graph the graph to fill
+     * @param rows the indexes of the source stops
+     * @param columns the indexes of the destination stops
+     * @throws PathException if a destination stop cannot be reached from a source stop
+     */
+    private void computeWithHierarchy(List<Stop> stops, int[] nodes, CompleteGraph graph, int[] rows, int[] columns)
+            throws PathException {
+        if (rows.length == 0 || columns.length == 0) {
+            return;
+        }
+        ChRouter router = (ChRouter) getRouter();
+        RoadGraph roadGraph = router.getGraph();
+        Route[][] routes = router.findRoutes(selectNodes(nodes, rows), selectNodes(nodes, columns));
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < columns.length; c++) {
+                if (rows[r] != columns[c]) {
+                    Route route = routes[r][c];
+                    if (route == null) {
+                        throw new PathException("Unable to compute paths for this request");
+                    }
+                    storePath(stops, graph, rows[r], columns[c], () -> toSegments(roadGraph, route.getEdges()),
+                            route.getLength());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the intersection ids of some stops.
+     * @param nodes the intersection id of each stop
+     * @param indexes the indexes of the stops
+     * @return the intersection id of each given stop
+     */
+    private static int[] selectNodes(int[] nodes, int[] indexes) {
+        int[] selected = new int[indexes.length];
+        for (int k = 0; k < indexes.length; k++) {
+            selected[k] = nodes[indexes[k]];
+        }
+        return selected;
+    }
+
+    /**
+     * Checks that the last search reached all the given nodes.
+     * @param search the search
+     * @param goals the node ids
+     * @throws PathException if a node has not been reached
+     */
+    private static void checkReached(DijkstraSearch search, int[] goals) throws PathException {
+        for (int goal : goals) {
+            if (search.getDistance(goal) == Double.MAX_VALUE) {
+                throw new PathException("Unable to compute paths for this request");
+            }
+        }
+    }
+
+    /**
+     * Checks that the computation has not been cancelled.
+     * @param cancellation the token cancelling the computation
+     * @throws CancellationException if the computation has been cancelled
+     */
+    private static void checkCancellation(CancellationToken cancellation) {
+        if (cancellation.isCancelled()) {
+            throw new CancellationException("The computation of the paths has been cancelled");
+        }
+    }
+
+    /**
+     * Returns the segments of the map represented by edges of its road graph.
+     * @param roadGraph the road graph of the map
+     * @param edges the edges, in order
+     * @return the segments of the edges, in the same order
+     */
+    private List<Segment> toSegments(RoadGraph roadGraph, int[] edges) {
+        List<Segment> segments = map.getSegments();
+        List<Segment> pathSegments = new ArrayList<>(edges.length);
+        for (int edge : edges) {
+            pathSegments.add(segments.get(roadGraph.getSegmentIndex(edge)));
+        }
+        return pathSegments;
+    }
+
+    /**
+     * Stores the path between two stops in the graph, its segments being built when first requested.
+     * @param stops the list of stops
+     * @param graph the graph to fill
+     * @param origin the index of the origin stop
+     * @param destination the index of the destination stop
+     * @param pathSegments builds the segments of the path, in order
+     * @param distance the length of the path
+     */
+    private static void storePath(List<Stop> stops, CompleteGraph graph, int origin, int destination,
+                                  Supplier<List<Segment>> pathSegments, double distance) {
+        Path path = new Path(stops.get(origin), stops.get(destination));
+        path.setLazySegments(pathSegments);
+        path.setLength(distance);
+        graph.setPath(origin, destination, path);
+        graph.setCost(origin, destination, distance);
+    }
+
+    /**
+     * Returns the search structures of the current thread, allocating them on first use
+     * (or when the road graph of the map has been rebuilt).
+     * @return the DijkstraSearch of the current thread
+     */
+    private DijkstraSearch getSearch() {
+        RoadGraph roadGraph = map.getRoadGraph();
+        DijkstraSearch search = searches.get();
+        if (search == null || search.getGraph() != roadGraph) {
+            search = new DijkstraSearch(roadGraph);
+            searches.set(search);
+        }
+        return search;
+    }
+
+    /**
+     * Returns the router of the current thread, creating it on first use
+     * (or when the road graph of the map has been rebuilt).
+     * @return the Router of the current thread
+     */
+    private Router getRouter() {
+        RoadGraph roadGraph = map.getRoadGraph();
+        Router router = routers.get();
+        if (router == null || router.getGraph() != roadGraph) {
+            router = routingMode.createRouter(map);
+            routers.set(router);
+        }
+        return router;
+    }
+
+    /**
+     * Task running a range of searches, split in halves until a single search is left.
+     * Searches [0, rows.length) fill the rows, the following ones fill the columns.
+     */
+    private class SearchTask extends RecursiveAction {
+
+        /**
+         * Serialization version, the tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The list of stops.
+         */
+        private final List<Stop> stops;
+        /**
+         * The intersection id of each stop.
+         */
+        private final int[] nodes;
+        /**
+         * The graph to fill.
+         */
+        private final CompleteGraph graph;
+        /**
+         * The indexes of the stops whose row is filled.
+         */
+        private final int[] rows;
+        /**
+         * The indexes of the stops whose column is filled.
+         */
+        private final int[] columns;
+        /**
+         * The indexes of all the stops, destinations of the rows.
+         */
+        private final int[] allStops;
+        /**
+         * The indexes of the stops whose row is not filled, sources of the columns.
+         */
+        private final int[] otherStops;
+        /**
+         * The first exception raised by any task.
+         */
+        private final AtomicReference<PathException> failure;
+        /**
+         * The token cancelling the computation, the tasks started after it being skipped.
+         */
+        private final CancellationToken cancellation;
+        /**
+         * First search of the range.
+         */
+        private final int from;
+        /**
+         * End (exclusive) of the range.
+         */
+        private final int to;
+
+        /**
+         * SearchTask constructor.
+         * @param stops the list of stops
+         * @param nodes the intersection id of each stop
+         * @param graph the graph to fill
+         * @param rows the indexes of the stops whose row is filled
+         * @param columns the indexes of the stops whose column is filled
+         * @param allStops the indexes of all the stops
+         * @param otherStops the indexes of the stops whose row is not filled
+         * @param failure holder of the first exception raised
+         * @param cancellation the token cancelling the computation
+         * @param from first search of the range
+         * @param to end (exclusive) of the range
+         */
+        SearchTask(List<Stop> stops, int[] nodes, CompleteGraph graph, int[] rows, int[] columns,
+                   int[] allStops, int[] otherStops, AtomicReference<PathException> failure,
+                   CancellationToken cancellation, int from, int to) {
+            this.stops = stops;
+            this.nodes = nodes;
+            this.graph = graph;
+            this.rows = rows;
+            this.columns = columns;
+            this.allStops = allStops;
+            this.otherStops = otherStops;
+            this.failure = failure;
+            this.cancellation = cancellation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (failure.get() != null || cancellation.isCancelled()) {
+                return;
+            }
+            if (to - from == 1) {
+                try {
+                    if (from < rows.length) {
+                        computeRow(stops, nodes, graph, rows[from], allStops);
+                    } else {
+                        computeColumn(stops, nodes, graph, columns[from - rows.length], otherStops);
+                    }
+                } catch (PathException e) {
+                    failure.compareAndSet(null, e);
+                }
+            } else {
+                int middle = (from + to) / 2;
+                invokeAll(new SearchTask(stops, nodes, graph, rows, columns, allStops, otherStops, failure,
+                                cancellation, from, middle),
+                        new SearchTask(stops, nodes, graph, rows, columns, allStops, otherStops, failure,
+                                cancellation, middle, to));
+            }
+        }
+    }
+
+}
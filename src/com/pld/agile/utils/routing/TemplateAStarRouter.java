@@ -0,0 +1,154 @@
+/*
+ * TemplateAStarRouter
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.RoadGraph;
+
+import java.util.Arrays;
+
+/**
+ * Template of the routers running an A* search: the nodes are settled in order of their distance
+ * from the origin plus a lower bound of their distance to the destination.
+ * The lower bound, defined by the subclasses, must be consistent (never more than the length of
+ * an edge plus the bound of its destination) for the routes found to be shortest.
+ * As in DijkstraSearch, the arrays are not cleared between searches but stamped with the generation
+ * of the search, so that a search only costs the nodes it reaches.
+ */
+public abstract class TemplateAStarRouter implements Router {
+
+    /**
+     * The graph the router searches.
+     */
+    protected final RoadGraph graph;
+    /**
+     * Distance from the origin of the last search (index = node id). Only meaningful for the nodes it reached.
+     */
+    private final double[] dist;
+    /**
+     * Edge used to reach each node from the origin (index = node id).
+     */
+    private final int[] parentEdges;
+    /**
+     * Generation of the last search that reached each node (index = node id).
+     */
+    private final int[] reachedStamps;
+    /**
+     * Generation of the last search that settled each node, its distance being final (index = node id).
+     */
+    private final int[] settledStamps;
+    /**
+     * Priority queue of the nodes to settle, keyed by distance plus lower bound.
+     */
+    private final IndexedHeap heap;
+    /**
+     * Generation of the current search.
+     */
+    private int generation;
+    /**
+     * Number of nodes settled by the last search.
+     */
+    private int nbSettledNodes;
+
+    /**
+     * TemplateAStarRouter constructor.
+     * @param graph the graph the router searches
+     */
+    protected TemplateAStarRouter(RoadGraph graph) {
+        this.graph = graph;
+        int nbNodes = graph.getNbNodes();
+        dist = new double[nbNodes];
+        parentEdges = new int[nbNodes];
+        reachedStamps = new int[nbNodes];
+        settledStamps = new int[nbNodes];
+        heap = new IndexedHeap(nbNodes);
+    }
+
+    @Override
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Method that must be defined in TemplateAStarRouter subclasses
+     * @param node the node id
+     * @param destination the destination node id of the search
+     * @return a lower bound of the distance from <code>node</code> to <code>destination</code>
+     */
+    protected abstract double lowerBound(int node, int destination);
+
+    /**
+     * Method called before each search, that TemplateAStarRouter subclasses can override
+     * to prepare the computation of the lower bounds.
+     * @param destination the destination node id of the search
+     */
+    protected void prepare(int destination) {
+    }
+
+    @Override
+    public Route findRoute(int origin, int destination) {
+        prepare(destination);
+        nextGeneration();
+        heap.clear();
+        reachedStamps[origin] = generation;
+        dist[origin] = 0;
+        parentEdges[origin] = -1;
+        heap.insert(origin, lowerBound(origin, destination));
+        nbSettledNodes = 0;
+
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            settledStamps[node] = generation;
+            nbSettledNodes++;
+            if (node == destination) {
+                break;
+            }
+
+            for (int e = graph.getFirstEdge(node); e < graph.getEndEdge(node); e++) {
+                int nextNode = graph.getTarget(e);
+                double distance = dist[node] + graph.getLength(e);
+                if (reachedStamps[nextNode] != generation
+                        || settledStamps[nextNode] != generation && distance < dist[nextNode]) {
+                    reachedStamps[nextNode] = generation;
+                    dist[nextNode] = distance;
+                    parentEdges[nextNode] = e;
+                    heap.insertOrDecrease(nextNode, distance + lowerBound(nextNode, destination));
+                }
+            }
+        }
+
+        if (settledStamps[destination] != generation) {
+            return null;
+        }
+        int nbEdges = 0;
+        for (int node = destination; node != origin; node = graph.getOrigin(parentEdges[node])) {
+            nbEdges++;
+        }
+        int[] edges = new int[nbEdges];
+        for (int node = destination; node != origin; node = graph.getOrigin(parentEdges[node])) {
+            edges[--nbEdges] = parentEdges[node];
+        }
+        return new Route(dist[destination], edges);
+    }
+
+    @Override
+    public int getNbSettledNodes() {
+        return nbSettledNodes;
+    }
+
+    /**
+     * Starts a new search generation, resetting the stamps when the counter wraps around.
+     */
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamps, 0);
+            Arrays.fill(settledStamps, 0);
+            generation = 1;
+        }
+    }
+
+}
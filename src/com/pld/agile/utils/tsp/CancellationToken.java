@@ -0,0 +1,57 @@
+/*
+ * CancellationToken
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+/**
+ * Flag shared by a long computation and the threads which may cancel it. Unlike the interrupt flag of a thread,
+ * it is seen by all the worker threads of the computation, and cannot be cleared by a blocking call: the
+ * computation polls isCancelled in its loops (every few thousand iterations in the hot ones) and returns
+ * as soon as possible, keeping the best result found so far.
+ * A token cannot be reset, a new one is created for each computation. A token may follow a parent token, to stop
+ * a part of a computation without cancelling the rest of it: it is cancelled as soon as its parent is.
+ */
+public class CancellationToken {
+
+    /**
+     * Whether the computation has been cancelled.
+     */
+    private volatile boolean cancelled;
+    /**
+     * The token whose cancellation also cancels this one, null if there is none.
+     */
+    private final CancellationToken parent;
+
+    /**
+     * CancellationToken constructor, for a token only cancelled by cancel.
+     */
+    public CancellationToken() {
+        this(null);
+    }
+
+    /**
+     * CancellationToken constructor, for a token also cancelled by its parent.
+     * @param parent the token whose cancellation also cancels this one, null if there is none
+     */
+    public CancellationToken(CancellationToken parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Cancels the computation, the parent token being left as is.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return whether the computation has been cancelled, by this token or its parent
+     */
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+}
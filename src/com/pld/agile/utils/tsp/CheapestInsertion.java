@@ -0,0 +1,73 @@
+/*
+ * CheapestInsertion
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+/**
+ * Construction heuristic of a tour respecting the pickup before delivery precedences, with the vertex numbering
+ * of CostMatrix. Starting from the tour only visiting vertex 0, the request whose stops can be inserted
+ * at the lowest cost is inserted, until all of them are.
+ */
+public class CheapestInsertion {
+
+    /**
+     * Costs of the graph.
+     */
+    private final CostMatrix costs;
+
+    /**
+     * CheapestInsertion constructor.
+     * @param g the graph whose tours are built, every vertex being linked to every other one
+     */
+    public CheapestInsertion(Graph g) {
+        costs = new CostMatrix(g);
+    }
+
+    /**
+     * @return the vertices of the built tour, starting with vertex 0
+     */
+    public int[] buildTour() {
+        int nbVertices = costs.getNbVertices();
+        int nbRequests = (nbVertices - 1) / 2;
+        int[] route = new int[nbVertices];
+        int routeLength = 1;
+        boolean[] inserted = new boolean[nbRequests];
+        double[] positionCosts = new double[nbVertices];
+        int[] pickupPositions = new int[nbVertices];
+        for (int step = 0; step < nbRequests; step++) {
+            int bestRequest = -1;
+            double bestCost = Double.MAX_VALUE;
+            int bestPickupPosition = 0;
+            int bestDeliveryPosition = 0;
+            for (int request = 0; request < nbRequests; request++) {
+                if (inserted[request]) {
+                    continue;
+                }
+                costs.evaluateInsertions(route, routeLength, request, positionCosts, pickupPositions);
+                int deliveryPosition = CostMatrix.cheapestPosition(positionCosts, routeLength);
+                if (positionCosts[deliveryPosition] < bestCost) {
+                    bestCost = positionCosts[deliveryPosition];
+                    bestRequest = request;
+                    bestPickupPosition = pickupPositions[deliveryPosition];
+                    bestDeliveryPosition = deliveryPosition;
+                }
+            }
+
+            // The delivery is inserted first, so that the position of the pickup is not shifted
+            int pickup = 2 * bestRequest + 1;
+            System.arraycopy(route, bestDeliveryPosition + 1, route, bestDeliveryPosition + 2,
+                    routeLength - bestDeliveryPosition - 1);
+            route[bestDeliveryPosition + 1] = pickup + 1;
+            System.arraycopy(route, bestPickupPosition + 1, route, bestPickupPosition + 2,
+                    routeLength - bestPickupPosition);
+            route[bestPickupPosition + 1] = pickup;
+            routeLength += 2;
+            inserted[bestRequest] = true;
+        }
+        return route;
+    }
+
+}
@@ -32,6 +32,53 @@ public class CompleteGraph implements Graph {
 		minCost = Double.MAX_VALUE;
 	}
 
+	/**
+	 * Create a copy of <code>graph</code> with <code>nbVertices</code> vertices.
+	 * The arcs between vertices present in both graphs are copied, the other arcs have no cost nor path yet.
+	 * @param graph the graph to copy
+	 * @param nbVertices the number of vertices of the new graph
+	 */
+	public CompleteGraph(CompleteGraph graph, int nbVertices) {
+		this(nbVertices);
+		int n = Math.min(nbVertices, graph.nbVertices);
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(graph.costs[i], 0, costs[i], 0, n);
+			System.arraycopy(graph.paths[i], 0, paths[i], 0, n);
+		}
+		recomputeMinCost();
+	}
+
+	/**
+	 * Create a copy of this graph without the given vertices, the remaining vertices keep their order
+	 * (the vertex following a removed vertex takes its index).
+	 * @param removed the vertices to remove
+	 * @return the new graph
+	 */
+	public CompleteGraph withoutVertices(int... removed) {
+		boolean[] isRemoved = new boolean[nbVertices];
+		for (int v : removed) {
+			if (v >= 0 && v < nbVertices) {
+				isRemoved[v] = true;
+			}
+		}
+		int[] kept = new int[nbVertices];
+		int nbKept = 0;
+		for (int v = 0; v < nbVertices; v++) {
+			if (!isRemoved[v]) {
+				kept[nbKept++] = v;
+			}
+		}
+		CompleteGraph graph = new CompleteGraph(nbKept);
+		for (int i = 0; i < nbKept; i++) {
+			for (int j = 0; j < nbKept; j++) {
+				graph.costs[i][j] = costs[kept[i]][kept[j]];
+				graph.paths[i][j] = paths[kept[i]][kept[j]];
+			}
+		}
+		graph.recomputeMinCost();
+		return graph;
+	}
+
 	@Override
 	public int getNbVertices() {
 		return nbVertices;
@@ -75,12 +122,36 @@ public class CompleteGraph implements Graph {
 			return;
 		}
 		costs[i][j] = value;
-		if(i!=j && minCost > value)
-		{
+		if (i != j) {
+			updateMinCost(value);
+		}
+	}
+
+	/**
+	 * Lowers minCost to the given cost if it is smaller.
+	 * Synchronized because the rows of the graph may be filled by several threads at the same time.
+	 * @param value the cost of an arc
+	 */
+	private synchronized void updateMinCost(double value) {
+		if (minCost > value) {
 			minCost = value;
 		}
 	}
 
+	/**
+	 * Recomputes minCost from all the arcs of the graph, needed when the cost of an arc has been raised.
+	 */
+	public synchronized void recomputeMinCost() {
+		minCost = Double.MAX_VALUE;
+		for (int i = 0; i < nbVertices; i++) {
+			for (int j = 0; j < nbVertices; j++) {
+				if (i != j && costs[i][j] < minCost) {
+					minCost = costs[i][j];
+				}
+			}
+		}
+	}
+
 	@Override
 	public double getMinCost() {return minCost;}
 
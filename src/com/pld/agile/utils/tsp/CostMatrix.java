@@ -0,0 +1,160 @@
+/*
+ * CostMatrix
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+/**
+ * Costs of a graph of requests copied in a flat array, for the solvers, heuristics and bounds reading them
+ * in their inner loops. The vertices are numbered as in the TSP solvers: vertex 0 is the warehouse,
+ * and request k has its pickup at vertex 2k+1 and its delivery at vertex 2k+2 (the order of the stops list).
+ * The matrix also evaluates the insertions of the stops of a request in a tour, in O(n) for the whole tour:
+ * for each position of the delivery, the best position of the pickup before it is the best one found so far.
+ */
+public final class CostMatrix {
+
+    /**
+     * Number of vertices of the graph.
+     */
+    private final int nbVertices;
+    /**
+     * Costs of the graph, the cost of arc (i,j) being at i*nbVertices+j.
+     */
+    private final double[] costs;
+
+    /**
+     * CostMatrix constructor, copying the costs of a graph.
+     * @param g a graph whose every vertex is linked to every other one
+     */
+    public CostMatrix(Graph g) {
+        nbVertices = g.getNbVertices();
+        costs = new double[nbVertices * nbVertices];
+        for (int i = 0; i < nbVertices; i++) {
+            for (int j = 0; j < nbVertices; j++) {
+                costs[i * nbVertices + j] = i == j ? 0 : g.getCost(i, j);
+            }
+        }
+    }
+
+    /**
+     * @return the number of vertices of the graph
+     */
+    public int getNbVertices() {
+        return nbVertices;
+    }
+
+    /**
+     * @param i the origin vertex
+     * @param j the destination vertex
+     * @return the cost of arc (i,j), 0 if i == j
+     */
+    public double getCost(int i, int j) {
+        return costs[i * nbVertices + j];
+    }
+
+    /**
+     * @param vertex a vertex
+     * @param order the order of the other vertices, usually by the cost of their arc from or to <code>vertex</code>
+     * @return the vertices other than <code>vertex</code>, sorted
+     */
+    public int[] sortOthers(int vertex, Comparator<Integer> order) {
+        Integer[] others = new Integer[nbVertices - 1];
+        for (int i = 0, k = 0; i < nbVertices; i++) {
+            if (i != vertex) {
+                others[k++] = i;
+            }
+        }
+        Arrays.sort(others, order);
+        int[] sorted = new int[others.length];
+        for (int k = 0; k < others.length; k++) {
+            sorted[k] = others[k];
+        }
+        return sorted;
+    }
+
+    /**
+     * Computes, for each position of the delivery of a request in a tour, the cheapest insertion of its stops
+     * with the delivery at that position.
+     * @param route the vertices of the tour, starting with vertex 0 and closed by going back to vertex 0
+     * @param routeLength the number of vertices of the tour
+     * @param request a request whose stops are not in the tour
+     * @param positionCosts filled with the cost increase of the insertion with the delivery after route[j],
+     *                      at index j
+     * @param pickupPositions filled with the position of the vertex the pickup is put after, at index j
+     */
+    public void evaluateInsertions(int[] route, int routeLength, int request, double[] positionCosts,
+                                   int[] pickupPositions) {
+        evaluateInsertions(route, routeLength, request, 0, null, positionCosts, pickupPositions);
+    }
+
+    /**
+     * Computes, for each position of the delivery of a request in a tour, the cheapest insertion of its stops
+     * with the delivery at that position, the insertion costs being perturbed at random.
+     * @param route the vertices of the tour, starting with vertex 0 and closed by going back to vertex 0
+     * @param routeLength the number of vertices of the tour
+     * @param request a request whose stops are not in the tour
+     * @param noise the largest relative change of the insertion costs, 0 if they are not perturbed
+     * @param random the random generator perturbing the insertion costs, only used if noise is not 0
+     * @param positionCosts filled with the cost increase of the insertion with the delivery after route[j],
+     *                      at index j
+     * @param pickupPositions filled with the position of the vertex the pickup is put after, at index j
+     */
+    public void evaluateInsertions(int[] route, int routeLength, int request, double noise, SplittableRandom random,
+                                   double[] positionCosts, int[] pickupPositions) {
+        int pickup = 2 * request + 1;
+        int delivery = pickup + 1;
+        double bestPickupCost = Double.MAX_VALUE;
+        int bestPickupPosition = -1;
+        for (int j = 0; j < routeLength; j++) {
+            int vertex = route[j];
+            int next = j + 1 < routeLength ? route[j + 1] : 0;
+            double arc = getCost(vertex, next);
+
+            // Delivery after route[j], pickup right before it or after an earlier vertex
+            double together = getCost(vertex, pickup) + getCost(pickup, delivery) + getCost(delivery, next) - arc;
+            if (noise > 0) {
+                together *= 1 + noise * (2 * random.nextDouble() - 1);
+            }
+            positionCosts[j] = together;
+            pickupPositions[j] = j;
+            if (bestPickupPosition >= 0) {
+                double apart = bestPickupCost + getCost(vertex, delivery) + getCost(delivery, next) - arc;
+                if (apart < together) {
+                    positionCosts[j] = apart;
+                    pickupPositions[j] = bestPickupPosition;
+                }
+            }
+
+            double pickupCost = getCost(vertex, pickup) + getCost(pickup, next) - arc;
+            if (noise > 0) {
+                pickupCost *= 1 + noise * (2 * random.nextDouble() - 1);
+            }
+            if (pickupCost < bestPickupCost) {
+                bestPickupCost = pickupCost;
+                bestPickupPosition = j;
+            }
+        }
+    }
+
+    /**
+     * @param positionCosts the insertion costs computed by evaluateInsertions
+     * @param routeLength the number of vertices of the tour
+     * @return the position of the delivery of the cheapest insertion, the first one of equal costs
+     */
+    public static int cheapestPosition(double[] positionCosts, int routeLength) {
+        int cheapest = 0;
+        for (int j = 1; j < routeLength; j++) {
+            if (positionCosts[j] < positionCosts[cheapest]) {
+                cheapest = j;
+            }
+        }
+        return cheapest;
+    }
+
+}
@@ -0,0 +1,347 @@
+/*
+ * FleetSolver
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the requests of a graph between several couriers leaving the same warehouse, and searches the tour
+ * of each courier, with the vertex numbering of CostMatrix.
+ * The requests are first clustered by k-medoids, the distance between two requests being the mean cost of the
+ * arcs between their pickups and between their deliveries: the first medoids are spread by farthest first
+ * traversal, each request is assigned to its nearest medoid which is not full (the requests having the largest
+ * regret being assigned first), and each medoid is replaced by the request of its cluster closest to the others.
+ * The tour of each cluster is then searched on a SubGraph of the shared graph by a SolverPortfolio with a single
+ * thread, the clusters being solved by a pool of threads.
+ */
+public class FleetSolver {
+
+    /**
+     * Largest number of reassignments of the requests to the medoids.
+     */
+    private static final int MAX_CLUSTERING_ITERATIONS = 20;
+
+    /**
+     * The graph shared by the tours.
+     */
+    private final Graph g;
+    /**
+     * Number of couriers.
+     */
+    private final int nbCouriers;
+    /**
+     * Largest number of requests of a courier, 0 if there is none.
+     */
+    private int capacity;
+    /**
+     * The time windows the tours must respect, null if there are none.
+     */
+    private TimeWindows timeWindows;
+    /**
+     * Number of tours searched at the same time.
+     */
+    private int parallelism = 1;
+    /**
+     * Vertices of the tour of each courier, starting with vertex 0.
+     */
+    private int[][] tours;
+    /**
+     * Cost of the tour of each courier.
+     */
+    private double[] tourCosts;
+    /**
+     * The token cancelling the search, shared by the searches of the tours.
+     */
+    private CancellationToken cancellation = new CancellationToken();
+
+    /**
+     * FleetSolver constructor.
+     * @param g the graph of the requests, every vertex being linked to every other one
+     * @param nbCouriers the number of couriers (at least 1)
+     */
+    public FleetSolver(Graph g, int nbCouriers) {
+        this.g = g;
+        this.nbCouriers = Math.max(1, nbCouriers);
+    }
+
+    /**
+     * @return the largest number of requests of a courier, 0 if there is none
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param capacity the largest number of requests of a courier, 0 if there is none. It is raised if the
+     *                 couriers cannot take all the requests.
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+    }
+
+    /**
+     * @param timeWindows the time windows the tours must respect, null if there are none
+     */
+    public void setTimeWindows(TimeWindows timeWindows) {
+        this.timeWindows = timeWindows;
+    }
+
+    /**
+     * @param parallelism the number of tours searched at the same time (at least 1)
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param cancellation the token cancelling searchSolution, the tours being incomplete once it has been cancelled
+     */
+    public void setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Splits the requests between the couriers and searches their tours.
+     * @param timeLimit the time limit of the search of all the tours, in milliseconds
+     */
+    public void searchSolution(int timeLimit) {
+        long deadline = System.currentTimeMillis() + timeLimit;
+        List<List<Integer>> clusters = cluster();
+        tours = new int[nbCouriers][];
+        tourCosts = new double[nbCouriers];
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, nbCouriers));
+        try {
+            List<Future<?>> searches = new ArrayList<>();
+            for (int courier = 0; courier < nbCouriers; courier++) {
+                int c = courier;
+                int[] vertices = verticesOf(clusters.get(courier));
+                searches.add(pool.submit(() -> searchTour(c, vertices, deadline)));
+            }
+            for (Future<?> search : searches) {
+                search.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tour search failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of tours, one per courier
+     */
+    public int getNbTours() {
+        return nbCouriers;
+    }
+
+    /**
+     * @param courier
+     * @return the vertices of the tour of the courier, starting with vertex 0 (only vertex 0 without requests),
+     * null if the search has been cancelled before finding it
+     */
+    public int[] getTour(int courier) {
+        return tours[courier];
+    }
+
+    /**
+     * @param courier
+     * @return the cost of the tour of the courier
+     */
+    public double getTourCost(int courier) {
+        return tourCosts[courier];
+    }
+
+    /**
+     * @return the total cost of the tours
+     */
+    public double getSolutionCost() {
+        return Arrays.stream(tourCosts).sum();
+    }
+
+    /**
+     * Searches the tour of a courier on the SubGraph of its vertices.
+     * @param courier
+     * @param vertices the vertices of its requests, after vertex 0
+     * @param deadline the time at which the search must be over
+     */
+    private void searchTour(int courier, int[] vertices, long deadline) {
+        if (vertices.length == 1) {
+            tours[courier] = vertices;
+            return;
+        }
+        if (cancellation.isCancelled()) {
+            return;
+        }
+        SubGraph subGraph = new SubGraph(g, vertices);
+        SolverPortfolio tsp = new SolverPortfolio();
+        if (timeWindows != null) {
+            tsp.setTimeWindows(timeWindows.restrictedTo(vertices));
+        }
+        tsp.setCancellationToken(cancellation);
+        tsp.searchSolution((int) Math.max(1, deadline - System.currentTimeMillis()), subGraph);
+        if (cancellation.isCancelled()) {
+            return;
+        }
+        int[] tour = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            tour[i] = vertices[tsp.getSolution(i)];
+        }
+        tours[courier] = tour;
+        tourCosts[courier] = tsp.getSolutionCost();
+    }
+
+    /**
+     * @param requests the requests of a courier
+     * @return vertex 0 followed by the pickup and delivery of each request, by increasing request
+     */
+    private static int[] verticesOf(List<Integer> requests) {
+        int[] vertices = new int[2 * requests.size() + 1];
+        int[] sorted = requests.stream().mapToInt(Integer::intValue).sorted().toArray();
+        for (int k = 0; k < sorted.length; k++) {
+            vertices[2 * k + 1] = 2 * sorted[k] + 1;
+            vertices[2 * k + 2] = 2 * sorted[k] + 2;
+        }
+        return vertices;
+    }
+
+    /**
+     * Clusters the requests by k-medoids, a cluster never having more requests than the capacity.
+     * @return the requests of each courier
+     */
+    private List<List<Integer>> cluster() {
+        int nbRequests = (g.getNbVertices() - 1) / 2;
+        int maxRequests = nbRequests;
+        if (capacity > 0) {
+            maxRequests = Math.max(capacity, (nbRequests + nbCouriers - 1) / nbCouriers);
+        }
+        double[][] distances = new double[nbRequests][nbRequests];
+        for (int r = 0; r < nbRequests; r++) {
+            for (int s = 0; s < nbRequests; s++) {
+                distances[r][s] = r == s ? 0 : distance(r, s);
+            }
+        }
+
+        // Farthest first traversal, from the request farthest from the warehouse
+        int nbMedoids = Math.min(nbCouriers, nbRequests);
+        int[] medoids = new int[nbMedoids];
+        double[] medoidDistances = new double[nbRequests];
+        for (int r = 0; r < nbRequests; r++) {
+            medoidDistances[r] = g.getCost(0, 2 * r + 1) + g.getCost(2 * r + 2, 0);
+        }
+        for (int m = 0; m < nbMedoids; m++) {
+            int farthest = 0;
+            for (int r = 1; r < nbRequests; r++) {
+                if (medoidDistances[r] > medoidDistances[farthest]) {
+                    farthest = r;
+                }
+            }
+            medoids[m] = farthest;
+            for (int r = 0; r < nbRequests; r++) {
+                medoidDistances[r] = m == 0 ? distances[farthest][r]
+                        : Math.min(medoidDistances[r], distances[farthest][r]);
+            }
+            medoidDistances[farthest] = -1;
+        }
+
+        List<List<Integer>> clusters = assign(medoids, distances, maxRequests);
+        for (int iteration = 0; iteration < MAX_CLUSTERING_ITERATIONS; iteration++) {
+            boolean changed = false;
+            for (int m = 0; m < nbMedoids; m++) {
+                int medoid = medoids[m];
+                double bestSum = Double.MAX_VALUE;
+                for (int r : clusters.get(m)) {
+                    double sum = 0;
+                    for (int s : clusters.get(m)) {
+                        sum += distances[r][s];
+                    }
+                    if (sum < bestSum) {
+                        bestSum = sum;
+                        medoid = r;
+                    }
+                }
+                changed |= medoid != medoids[m];
+                medoids[m] = medoid;
+            }
+            if (!changed) {
+                break;
+            }
+            clusters = assign(medoids, distances, maxRequests);
+        }
+        while (clusters.size() < nbCouriers) {
+            clusters.add(new ArrayList<>());
+        }
+        return clusters;
+    }
+
+    /**
+     * Assigns each request to its nearest medoid whose cluster is not full, the requests whose second nearest
+     * medoid is the farthest from their nearest one being assigned first.
+     * @param medoids the medoid of each cluster
+     * @param distances the distance between each pair of requests
+     * @param maxRequests the largest number of requests of a cluster
+     * @return the requests of each cluster
+     */
+    private static List<List<Integer>> assign(int[] medoids, double[][] distances, int maxRequests) {
+        int nbRequests = distances.length;
+        double[] regrets = new double[nbRequests];
+        for (int r = 0; r < nbRequests; r++) {
+            double nearest = Double.MAX_VALUE;
+            double secondNearest = Double.MAX_VALUE;
+            for (int medoid : medoids) {
+                double d = distances[medoid][r];
+                if (d < nearest) {
+                    secondNearest = nearest;
+                    nearest = d;
+                } else if (d < secondNearest) {
+                    secondNearest = d;
+                }
+            }
+            regrets[r] = medoids.length == 1 ? 0 : secondNearest - nearest;
+        }
+        Integer[] order = new Integer[nbRequests];
+        for (int r = 0; r < nbRequests; r++) {
+            order[r] = r;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(regrets[b], regrets[a]));
+
+        List<List<Integer>> clusters = new ArrayList<>();
+        for (int m = 0; m < medoids.length; m++) {
+            clusters.add(new ArrayList<>());
+        }
+        for (int r : order) {
+            int best = -1;
+            for (int m = 0; m < medoids.length; m++) {
+                if (clusters.get(m).size() < maxRequests
+                        && (best < 0 || distances[medoids[m]][r] < distances[medoids[best]][r])) {
+                    best = m;
+                }
+            }
+            clusters.get(best).add(r);
+        }
+        return clusters;
+    }
+
+    /**
+     * @param r a request
+     * @param s another request
+     * @return the mean cost of the arcs between their pickups and between their deliveries
+     */
+    private double distance(int r, int s) {
+        return (g.getCost(2 * r + 1, 2 * s + 1) + g.getCost(2 * s + 1, 2 * r + 1)
+                + g.getCost(2 * r + 2, 2 * s + 2) + g.getCost(2 * s + 2, 2 * r + 2)) / 4;
+    }
+
+}
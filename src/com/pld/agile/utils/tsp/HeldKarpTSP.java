@@ -0,0 +1,230 @@
+/*
+ * HeldKarpTSP
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import java.util.Arrays;
+
+/**
+ * Exact dynamic programming (Held-Karp) solver for the TSP with pickup before delivery, with the vertex
+ * numbering of CostMatrix. A set of visited vertices respecting the precedences is encoded in base 3,
+ * one digit per request: 0 if none of its stops is visited, 1 if only its pickup is, 2 if both are.
+ * The last visited vertex of a partial tour is the pickup of a request whose digit is 1 or the delivery
+ * of a request whose digit is 2, so it is identified by its request: the table holds one cost per
+ * (set, request) pair, 3^r * r values for r requests instead of 2^n * n for n vertices.
+ * Unlike the branch and bound, the running time only depends on the number of requests,
+ * and the solution is always optimal: it is meant for small tours (see canSolve).
+ */
+public class HeldKarpTSP implements TSP {
+
+    /**
+     * Largest number of requests solved, 3^12 * 12 costs taking 51 MB.
+     */
+    public static final int MAX_REQUESTS = 12;
+    /**
+     * Fraction of the memory available to the JVM the table may use.
+     */
+    private static final double MAX_MEMORY_RATIO = 0.25;
+    /**
+     * Number of sets processed between two checks of the cancellation.
+     */
+    private static final int CANCELLATION_CHECK_PERIOD = 1024;
+
+    /**
+     * The graph of the last search.
+     */
+    private Graph g;
+    /**
+     * Vertices of the best tour, in order of visit.
+     */
+    private int[] bestSol;
+    /**
+     * Cost of the best tour.
+     */
+    private double bestSolCost;
+    /**
+     * The token cancelling the search.
+     */
+    private CancellationToken cancellation = new CancellationToken();
+
+    /**
+     * Returns whether a graph is small enough to be solved by this solver, considering both the number of
+     * requests and the memory left to the JVM.
+     * @param nbVertices the number of vertices of the graph (the warehouse and two stops per request)
+     * @return true if the table of the graph fits in the limits
+     */
+    public static boolean canSolve(int nbVertices) {
+        if (nbVertices < 1 || nbVertices % 2 == 0) {
+            return false;
+        }
+        int nbRequests = (nbVertices - 1) / 2;
+        if (nbRequests > MAX_REQUESTS) {
+            return false;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return (double) pow3(nbRequests) * nbRequests * Double.BYTES <= available * MAX_MEMORY_RATIO;
+    }
+
+    /**
+     * Computes the optimal tour of <code>g</code>, starting from vertex 0.
+     * The search completes unless it is cancelled, in which case there is no solution: the time limit
+     * is only checked to be positive.
+     * @param timeLimit
+     * @param g a graph whose size is accepted by canSolve
+     * @throws IllegalArgumentException if the graph does not have the warehouse and two stops per request
+     */
+    @Override
+    public void searchSolution(int timeLimit, Graph g) {
+        if (timeLimit <= 0) return;
+        int nbVertices = g.getNbVertices();
+        if (nbVertices < 1 || nbVertices % 2 == 0) {
+            throw new IllegalArgumentException("The graph must have a warehouse and two stops per request");
+        }
+        this.g = g;
+        int nbRequests = (nbVertices - 1) / 2;
+        bestSol = new int[nbVertices];
+        if (nbRequests == 0) {
+            bestSolCost = 0;
+            return;
+        }
+
+        int nbSets = pow3(nbRequests);
+        int[] powers = new int[nbRequests];
+        for (int k = 0; k < nbRequests; k++) {
+            powers[k] = pow3(k);
+        }
+        CostMatrix costs = new CostMatrix(g);
+
+        // table[set * nbRequests + k]: cost of the best partial tour visiting set and ending at the stop of k
+        double[] table = new double[nbSets * nbRequests];
+        Arrays.fill(table, Double.MAX_VALUE);
+        for (int k = 0; k < nbRequests; k++) {
+            table[powers[k] * nbRequests + k] = costs.getCost(0, 2 * k + 1);
+        }
+
+        // Adding a stop always increases the set index, so the sets are processed in increasing order.
+        // digits holds the base-3 digits of set, updated like an odometer
+        int[] digits = new int[nbRequests];
+        for (int set = 0; set < nbSets; set++) {
+            if (set % CANCELLATION_CHECK_PERIOD == 0 && cancellation.isCancelled()) {
+                this.g = null;
+                return;
+            }
+            int base = set * nbRequests;
+            for (int k = 0; k < nbRequests; k++) {
+                double cost = table[base + k];
+                if (cost == Double.MAX_VALUE) {
+                    continue;
+                }
+                int last = lastVertex(k, digits[k]);
+                for (int next = 0; next < nbRequests; next++) {
+                    if (digits[next] < 2) {
+                        int nextSet = set + powers[next];
+                        int index = nextSet * nbRequests + next;
+                        double nextCost = cost + costs.getCost(last, lastVertex(next, digits[next] + 1));
+                        if (nextCost < table[index]) {
+                            table[index] = nextCost;
+                        }
+                    }
+                }
+            }
+            for (int k = 0; k < nbRequests && ++digits[k] == 3; k++) {
+                digits[k] = 0;
+            }
+        }
+
+        // Close the tour back to the warehouse
+        int fullSet = nbSets - 1;
+        int lastRequest = -1;
+        bestSolCost = Double.MAX_VALUE;
+        for (int k = 0; k < nbRequests; k++) {
+            double cost = table[fullSet * nbRequests + k];
+            if (cost != Double.MAX_VALUE) {
+                cost += costs.getCost(lastVertex(k, 2), 0);
+                if (cost < bestSolCost) {
+                    bestSolCost = cost;
+                    lastRequest = k;
+                }
+            }
+        }
+
+        // Walk the tour back: the previous state is the one whose cost plus the arc gives the smallest cost
+        int set = fullSet;
+        int k = lastRequest;
+        for (int position = nbVertices - 1; position > 0; position--) {
+            int digit = set / powers[k] % 3;
+            int vertex = lastVertex(k, digit);
+            bestSol[position] = vertex;
+            int previousSet = set - powers[k];
+            int previousRequest = -1;
+            double previousCost = Double.MAX_VALUE;
+            for (int p = 0; p < nbRequests && position > 1; p++) {
+                int previousDigit = previousSet / powers[p] % 3;
+                double cost = table[previousSet * nbRequests + p];
+                if (previousDigit > 0 && cost != Double.MAX_VALUE) {
+                    cost += costs.getCost(lastVertex(p, previousDigit), vertex);
+                    if (cost < previousCost) {
+                        previousCost = cost;
+                        previousRequest = p;
+                    }
+                }
+            }
+            set = previousSet;
+            k = previousRequest;
+        }
+        bestSol[0] = 0;
+    }
+
+    @Override
+    public Integer getSolution(int i) {
+        if (g != null && i >= 0 && i < g.getNbVertices())
+            return bestSol[i];
+        return -1;
+    }
+
+    @Override
+    public double getSolutionCost() {
+        if (g != null)
+            return bestSolCost;
+        return -1;
+    }
+
+    /**
+     * @return true once a search has completed, the dynamic programming always finding the optimal tour
+     */
+    @Override
+    public boolean isSolutionOptimal() {
+        return g != null;
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @param request the index of the request
+     * @param digit the digit of the request in a set, 1 or 2
+     * @return its pickup vertex if digit is 1, its delivery vertex if digit is 2
+     */
+    private static int lastVertex(int request, int digit) {
+        return 2 * request + digit;
+    }
+
+    /**
+     * @param exponent
+     * @return 3 to the power of <code>exponent</code>
+     */
+    private static int pow3(int exponent) {
+        int power = 1;
+        for (int i = 0; i < exponent; i++) {
+            power *= 3;
+        }
+        return power;
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * IncrementalBound
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+/**
+ * Lower bound of the cost of completing the partial tour of a branch and bound search state,
+ * updated as the state visits and unvisits vertices instead of being computed from scratch at each node.
+ * The vertices are unvisited in the reverse order of their visit.
+ */
+public interface IncrementalBound {
+
+    /**
+     * Creates the bound of another search state of the same search, sharing the data computed once per search.
+     * @param visited the vertices visited by the state (index = vertex), only vertex 0 being visited yet,
+     *                updated by the state before it calls visit and unvisit
+     * @return the bound of the state, whose partial tour only contains vertex 0
+     */
+    IncrementalBound forState(boolean[] visited);
+
+    /**
+     * Updates the bound after a vertex has been appended to the partial tour.
+     * @param vertex the vertex, already marked as visited
+     * @param unvisited array whose first <code>nbUnvisited</code> elements are the unvisited vertices
+     * @param nbUnvisited
+     */
+    void visit(int vertex, int[] unvisited, int nbUnvisited);
+
+    /**
+     * Updates the bound after the last vertex of the partial tour has been removed.
+     * @param vertex the vertex, already marked as unvisited
+     */
+    void unvisit(int vertex);
+
+    /**
+     * @return a lower bound of the cost of paths starting from the last vertex of the partial tour,
+     * visiting every unvisited vertex exactly once, and returning back to vertex 0
+     */
+    double getBound();
+
+}
@@ -0,0 +1,560 @@
+/*
+ * LargeNeighbourhoodTSP
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import com.pld.agile.model.tour.TourData;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Anytime Large Neighbourhood Search (ruin and recreate) solver for the TSP with pickup before delivery,
+ * for tours too large for an exact search, with the vertex numbering of CostMatrix.
+ * Each iteration removes a few requests from the current tour (chosen at random, related to each other,
+ * or the most expensive ones), and inserts them back by regret insertion: the request inserted first is the
+ * one that would lose the most by not being inserted at its best position (half of the iterations perturb the
+ * insertion costs). A new tour close to the current one is improved by a LocalSearch, then replaces the current
+ * one according to a simulated annealing criterion, and a better tour than the best one found is offered
+ * to the SolutionPublisher of the solver, which notifies its observers (INTERMEDIARY_TSP).
+ * The search stops after a number of iterations depending on the number of requests, earlier if the best
+ * tour has not been improved for a fraction of them, or at the time limit.
+ */
+public class LargeNeighbourhoodTSP implements TSP {
+
+    /**
+     * Largest fraction of the requests removed by an iteration.
+     */
+    private static final double MAX_REMOVED_RATIO = 0.4;
+    /**
+     * Number of requests an iteration may always remove, whatever the fraction it represents.
+     */
+    private static final int MIN_MAX_REMOVED = 4;
+    /**
+     * Largest number of requests removed by an iteration.
+     */
+    private static final int MAX_REMOVED = 20;
+    /**
+     * Number of iterations of the search, besides ITERATIONS_PER_REQUEST per request.
+     */
+    private static final int MIN_ITERATIONS = 5000;
+    /**
+     * Number of iterations of the search per request.
+     */
+    private static final int ITERATIONS_PER_REQUEST = 200;
+    /**
+     * Fraction of the iterations after which the search stops if the best tour has not been improved.
+     */
+    private static final double MAX_STAGNATION_RATIO = 0.25;
+    /**
+     * Relative cost increase over the current tour below which a new tour is improved by the LocalSearch.
+     */
+    private static final double LOCAL_SEARCH_MARGIN = 0.02;
+    /**
+     * Number of insertion positions compared by the regret insertion.
+     */
+    private static final int REGRET_K = 3;
+    /**
+     * Largest relative change of the insertion costs when they are perturbed, to diversify the insertions.
+     */
+    private static final double INSERTION_NOISE = 0.15;
+    /**
+     * Exponent of the random choice of the related and worst removals, the higher the less random.
+     */
+    private static final double REMOVAL_DETERMINISM = 6;
+    /**
+     * Relative cost increase accepted with probability 1/2 at the start of the search.
+     */
+    private static final double START_WORSENING = 0.1;
+    /**
+     * Ratio between the temperatures at the end and at the start of the search.
+     */
+    private static final double END_TEMPERATURE_RATIO = 0.001;
+    /**
+     * Smallest cost decrease considered as an improvement, so that rounding errors are ignored.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Random generator of the search.
+     */
+    private SplittableRandom random = new SplittableRandom();
+    /**
+     * The graph of the last search.
+     */
+    private Graph g;
+    /**
+     * Number of vertices of <code>g</code>.
+     */
+    private int nbVertices;
+    /**
+     * Number of requests of <code>g</code>.
+     */
+    private int nbRequests;
+    /**
+     * Costs of <code>g</code>.
+     */
+    private CostMatrix costs;
+    /**
+     * Vertices of the best tour found, replaced (not modified) when a better one is found.
+     */
+    private volatile int[] bestSol;
+    /**
+     * Cost of the best tour found.
+     */
+    private volatile double bestSolCost;
+    /**
+     * Number of iterations of the last search.
+     */
+    private long nbIterations;
+
+    /**
+     * The tour being built, route[0] being vertex 0, closed by going back to vertex 0.
+     */
+    private int[] route;
+    /**
+     * Number of vertices of route.
+     */
+    private int routeLength;
+    /**
+     * Position of each vertex in route (index = vertex).
+     */
+    private int[] positions;
+    /**
+     * Whether each request has been removed from route (index = request).
+     */
+    private boolean[] removed;
+    /**
+     * The removed requests, the first nbRemoved being meaningful.
+     */
+    private int[] removedRequests;
+    /**
+     * Number of removed requests.
+     */
+    private int nbRemoved;
+
+    /**
+     * Relative change of the insertion costs of the current iteration, 0 if they are not perturbed.
+     */
+    private double insertionNoise;
+    /**
+     * Cost increase of the best insertion of the last evaluated request.
+     */
+    private double insertionCost;
+    /**
+     * Position after which the pickup of the last evaluated request is inserted.
+     */
+    private int insertionPickupPosition;
+    /**
+     * Position after which the delivery of the last evaluated request is inserted.
+     */
+    private int insertionDeliveryPosition;
+    /**
+     * Cost increase of the best insertion of the last evaluated request with its delivery after route[j],
+     * at index j.
+     */
+    private double[] positionCosts;
+    /**
+     * Position after which the pickup is inserted in each insertion of positionCosts.
+     */
+    private int[] pickupPositions;
+    /**
+     * Regret of the last evaluated request.
+     */
+    private double insertionRegret;
+    /**
+     * The REGRET_K smallest insertion costs of the last evaluated request, by increasing cost.
+     */
+    private final double[] bestInsertionCosts = new double[REGRET_K];
+    /**
+     * The token cancelling the search, checked at each iteration.
+     */
+    private CancellationToken cancellation = new CancellationToken();
+    /**
+     * Delivers the intermediary solutions to the observers.
+     */
+    private final SolutionPublisher publisher = new SolutionPublisher();
+
+    /**
+     * LargeNeighbourhoodTSP constructor.
+     * @param tourData the TourData notified of the intermediary solutions
+     */
+    public LargeNeighbourhoodTSP(TourData tourData) {
+        publisher.addObserver(tourData);
+    }
+
+    /**
+     * LargeNeighbourhoodTSP constructor, without observers.
+     */
+    public LargeNeighbourhoodTSP() {
+    }
+
+    /**
+     * Setter for the seed of the random generator, to make the search reproducible.
+     * @param seed the seed of the random generator
+     */
+    public void setSeed(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return the publisher of the intermediary solutions, whose observers are notified of them
+     */
+    public SolutionPublisher getPublisher() {
+        return publisher;
+    }
+
+    /**
+     * @return the number of iterations of the last search
+     */
+    public long getNbIterations() {
+        return nbIterations;
+    }
+
+    @Override
+    public void searchSolution(int timeLimit, Graph g) {
+        if (timeLimit <= 0) return;
+        long startTime = System.currentTimeMillis();
+        this.g = g;
+        nbVertices = g.getNbVertices();
+        nbRequests = (nbVertices - 1) / 2;
+        costs = new CostMatrix(g);
+        int[] noSolution = new int[nbVertices];
+        Arrays.fill(noSolution, -1);
+        bestSol = noSolution;
+        bestSolCost = Integer.MAX_VALUE;
+        nbIterations = 0;
+        route = new int[nbVertices];
+        positions = new int[nbVertices];
+        removed = new boolean[nbRequests];
+        removedRequests = new int[nbRequests];
+        positionCosts = new double[nbVertices];
+        pickupPositions = new int[nbVertices];
+        publisher.open();
+
+        // Initial tour, built by inserting every request in the empty tour
+        routeLength = 1;
+        route[0] = 0;
+        for (int request = 0; request < nbRequests; request++) {
+            removed[request] = true;
+            removedRequests[request] = request;
+        }
+        nbRemoved = nbRequests;
+        insertRemovedRequests();
+        LocalSearch localSearch = new LocalSearch(g);
+        localSearch.improve(route);
+        int[] current = route.clone();
+        double currentCost = getRouteCost();
+        publishSolution(current, currentCost);
+
+        int maxIterations = MIN_ITERATIONS + ITERATIONS_PER_REQUEST * nbRequests;
+        int maxRemoved = Math.min(nbRequests, Math.min(MAX_REMOVED,
+                Math.max(MIN_MAX_REMOVED, (int) Math.ceil(nbRequests * MAX_REMOVED_RATIO))));
+        double startTemperature = START_WORSENING * currentCost / Math.log(2);
+        long lastImprovement = 0;
+        while (nbRequests > 1 && nbIterations < maxIterations
+                && nbIterations - lastImprovement < maxIterations * MAX_STAGNATION_RATIO
+                && System.currentTimeMillis() - startTime <= timeLimit && !cancellation.isCancelled()) {
+            double temperature = startTemperature
+                    * Math.pow(END_TEMPERATURE_RATIO, (double) nbIterations / maxIterations);
+            nbIterations++;
+
+            System.arraycopy(current, 0, route, 0, nbVertices);
+            routeLength = nbVertices;
+            updatePositions();
+            int nbToRemove = 1 + random.nextInt(maxRemoved);
+            switch (random.nextInt(3)) {
+                case 0 -> removeRandomRequests(nbToRemove);
+                case 1 -> removeRelatedRequests(nbToRemove);
+                default -> removeWorstRequests(nbToRemove);
+            }
+            // Half of the iterations perturb the insertion costs
+            insertionNoise = random.nextBoolean() ? INSERTION_NOISE : 0;
+            insertRemovedRequests();
+            insertionNoise = 0;
+            double cost = getRouteCost();
+            if (cost < currentCost * (1 + LOCAL_SEARCH_MARGIN)) {
+                localSearch.improve(route);
+                cost = getRouteCost();
+            }
+
+            if (cost < bestSolCost - EPSILON) {
+                System.arraycopy(route, 0, current, 0, nbVertices);
+                currentCost = cost;
+                publishSolution(current, cost);
+                lastImprovement = nbIterations;
+            } else if (cost < currentCost - EPSILON
+                    || random.nextDouble() < Math.exp((currentCost - cost) / temperature)) {
+                System.arraycopy(route, 0, current, 0, nbVertices);
+                currentCost = cost;
+            }
+        }
+        publisher.close();
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    @Override
+    public Integer getSolution(int i) {
+        if (g != null && i >= 0 && i < g.getNbVertices())
+            return bestSol[i];
+        return -1;
+    }
+
+    @Override
+    public double getSolutionCost() {
+        if (g != null)
+            return bestSolCost;
+        return -1;
+    }
+
+    /**
+     * Replaces the best solution and offers it to the publisher.
+     * @param tour the vertices of the new best tour
+     * @param cost the cost of the tour
+     */
+    private void publishSolution(int[] tour, double cost) {
+        bestSol = tour.clone();
+        bestSolCost = cost;
+        publisher.offer(bestSol, cost);
+    }
+
+    /**
+     * Removes requests chosen at random from route.
+     * @param nbToRemove the number of requests to remove
+     */
+    private void removeRandomRequests(int nbToRemove) {
+        int[] requests = new int[nbRequests];
+        for (int request = 0; request < nbRequests; request++) {
+            requests[request] = request;
+        }
+        for (int k = 0; k < nbToRemove; k++) {
+            int chosen = k + random.nextInt(nbRequests - k);
+            int request = requests[chosen];
+            requests[chosen] = requests[k];
+            removeRequest(request);
+        }
+    }
+
+    /**
+     * Removes requests close to each other from route: the first one is chosen at random, and each following one
+     * is chosen among the requests closest to an already removed one, with a preference for the closest ones.
+     * @param nbToRemove the number of requests to remove
+     */
+    private void removeRelatedRequests(int nbToRemove) {
+        removeRequest(random.nextInt(nbRequests));
+        Integer[] candidates = new Integer[nbRequests];
+        while (nbRemoved < nbToRemove) {
+            int reference = removedRequests[random.nextInt(nbRemoved)];
+            int nbCandidates = 0;
+            for (int request = 0; request < nbRequests; request++) {
+                if (!removed[request]) {
+                    candidates[nbCandidates++] = request;
+                }
+            }
+            Arrays.sort(candidates, 0, nbCandidates,
+                    (a, b) -> Double.compare(relatedness(reference, a), relatedness(reference, b)));
+            removeRequest(candidates[randomRank(nbCandidates)]);
+        }
+    }
+
+    /**
+     * Removes the requests whose removal decreases the cost of route the most, with a preference for the
+     * largest decreases, the decreases being updated after each removal.
+     * @param nbToRemove the number of requests to remove
+     */
+    private void removeWorstRequests(int nbToRemove) {
+        Integer[] candidates = new Integer[nbRequests];
+        double[] gains = new double[nbRequests];
+        while (nbRemoved < nbToRemove) {
+            int nbCandidates = 0;
+            for (int request = 0; request < nbRequests; request++) {
+                if (!removed[request]) {
+                    gains[request] = removalGain(request);
+                    candidates[nbCandidates++] = request;
+                }
+            }
+            Arrays.sort(candidates, 0, nbCandidates, (a, b) -> Double.compare(gains[b], gains[a]));
+            removeRequest(candidates[randomRank(nbCandidates)]);
+        }
+    }
+
+    /**
+     * @param nbCandidates the number of sorted candidates
+     * @return the rank of a candidate chosen at random, the first ones being more likely
+     */
+    private int randomRank(int nbCandidates) {
+        return (int) (Math.pow(random.nextDouble(), REMOVAL_DETERMINISM) * nbCandidates);
+    }
+
+    /**
+     * @param a a request
+     * @param b another request
+     * @return the sum of the costs between their pickups and between their deliveries, in both directions
+     */
+    private double relatedness(int a, int b) {
+        int pickupA = 2 * a + 1;
+        int pickupB = 2 * b + 1;
+        return costs.getCost(pickupA, pickupB) + costs.getCost(pickupB, pickupA)
+                + costs.getCost(pickupA + 1, pickupB + 1) + costs.getCost(pickupB + 1, pickupA + 1);
+    }
+
+    /**
+     * @param request a request of route
+     * @return the cost decrease of route if the request is removed from it
+     */
+    private double removalGain(int request) {
+        int pickup = 2 * request + 1;
+        int delivery = pickup + 1;
+        int pickupPosition = positions[pickup];
+        int deliveryPosition = positions[delivery];
+        int beforePickup = route[pickupPosition - 1];
+        int afterDelivery = next(deliveryPosition);
+        if (deliveryPosition == pickupPosition + 1) {
+            return costs.getCost(beforePickup, pickup) + costs.getCost(pickup, delivery)
+                    + costs.getCost(delivery, afterDelivery) - costs.getCost(beforePickup, afterDelivery);
+        }
+        int afterPickup = route[pickupPosition + 1];
+        int beforeDelivery = route[deliveryPosition - 1];
+        return costs.getCost(beforePickup, pickup) + costs.getCost(pickup, afterPickup)
+                - costs.getCost(beforePickup, afterPickup)
+                + costs.getCost(beforeDelivery, delivery) + costs.getCost(delivery, afterDelivery)
+                - costs.getCost(beforeDelivery, afterDelivery);
+    }
+
+    /**
+     * Removes the stops of a request from route.
+     * @param request the request to remove
+     */
+    private void removeRequest(int request) {
+        int pickup = 2 * request + 1;
+        int delivery = pickup + 1;
+        int k = 0;
+        for (int i = 0; i < routeLength; i++) {
+            if (route[i] != pickup && route[i] != delivery) {
+                route[k++] = route[i];
+            }
+        }
+        routeLength = k;
+        updatePositions();
+        removed[request] = true;
+        removedRequests[nbRemoved++] = request;
+    }
+
+    /**
+     * Inserts the removed requests in route by regret insertion: the request inserted next is the one with the
+     * largest difference between its best insertion cost and its next REGRET_K - 1 ones.
+     */
+    private void insertRemovedRequests() {
+        while (nbRemoved > 0) {
+            int chosen = -1;
+            double chosenRegret = -1;
+            double chosenCost = Double.MAX_VALUE;
+            int chosenPickupPosition = 0;
+            int chosenDeliveryPosition = 0;
+            for (int k = 0; k < nbRemoved; k++) {
+                evaluateInsertion(removedRequests[k]);
+                if (insertionRegret > chosenRegret
+                        || (insertionRegret == chosenRegret && insertionCost < chosenCost)) {
+                    chosen = k;
+                    chosenRegret = insertionRegret;
+                    chosenCost = insertionCost;
+                    chosenPickupPosition = insertionPickupPosition;
+                    chosenDeliveryPosition = insertionDeliveryPosition;
+                }
+            }
+            int request = removedRequests[chosen];
+            removedRequests[chosen] = removedRequests[--nbRemoved];
+            removed[request] = false;
+            insertRequest(request, chosenPickupPosition, chosenDeliveryPosition);
+        }
+    }
+
+    /**
+     * Computes the best insertion of a request in route and its regret. The insertion costs compared by the
+     * regret are the best ones for each position of the delivery, each one being found in O(1) from the best
+     * position of the pickup before it.
+     * @param request the removed request
+     */
+    private void evaluateInsertion(int request) {
+        costs.evaluateInsertions(route, routeLength, request, insertionNoise, random, positionCosts, pickupPositions);
+        Arrays.fill(bestInsertionCosts, Double.MAX_VALUE);
+        insertionCost = Double.MAX_VALUE;
+        for (int j = 0; j < routeLength; j++) {
+            double positionCost = positionCosts[j];
+            if (positionCost < insertionCost) {
+                insertionCost = positionCost;
+                insertionPickupPosition = pickupPositions[j];
+                insertionDeliveryPosition = j;
+            }
+            for (int k = 0; k < REGRET_K; k++) {
+                if (positionCost < bestInsertionCosts[k]) {
+                    System.arraycopy(bestInsertionCosts, k, bestInsertionCosts, k + 1, REGRET_K - k - 1);
+                    bestInsertionCosts[k] = positionCost;
+                    break;
+                }
+            }
+        }
+
+        // A request with few possible positions is inserted first
+        insertionRegret = 0;
+        for (int k = 1; k < REGRET_K; k++) {
+            if (bestInsertionCosts[k] == Double.MAX_VALUE) {
+                insertionRegret = Double.MAX_VALUE;
+                break;
+            }
+            insertionRegret += bestInsertionCosts[k] - bestInsertionCosts[0];
+        }
+    }
+
+    /**
+     * Inserts the stops of a request in route.
+     * @param request the removed request
+     * @param pickupPosition the position of the vertex the pickup is put after
+     * @param deliveryPosition the position of the vertex the delivery is put after, not before pickupPosition
+     */
+    private void insertRequest(int request, int pickupPosition, int deliveryPosition) {
+        int pickup = 2 * request + 1;
+        System.arraycopy(route, deliveryPosition + 1, route, deliveryPosition + 2, routeLength - deliveryPosition - 1);
+        route[deliveryPosition + 1] = pickup + 1;
+        System.arraycopy(route, pickupPosition + 1, route, pickupPosition + 2, routeLength - pickupPosition);
+        route[pickupPosition + 1] = pickup;
+        routeLength += 2;
+        updatePositions();
+    }
+
+    /**
+     * Updates the positions after route has been changed.
+     */
+    private void updatePositions() {
+        for (int i = 0; i < routeLength; i++) {
+            positions[route[i]] = i;
+        }
+    }
+
+    /**
+     * @return the cost of route, back to vertex 0 included
+     */
+    private double getRouteCost() {
+        double cost = 0;
+        for (int i = 0; i < routeLength; i++) {
+            cost += costs.getCost(route[i], next(i));
+        }
+        return cost;
+    }
+
+    /**
+     * @param position a position in route
+     * @return the vertex following it in route, vertex 0 after the last one
+     */
+    private int next(int position) {
+        return position + 1 < routeLength ? route[position + 1] : 0;
+    }
+
+}
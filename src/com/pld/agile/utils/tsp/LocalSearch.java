@@ -0,0 +1,419 @@
+/*
+ * LocalSearch
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import java.util.Arrays;
+
+/**
+ * Local search improving a tour respecting the pickup before delivery precedences, with the vertex numbering
+ * of CostMatrix. Three kinds of moves are tried until none improves the tour:
+ * <ul>
+ *     <li>2-opt: reversing a part of the tour containing no complete request,</li>
+ *     <li>Or-opt: moving one to MAX_SEGMENT_LENGTH consecutive stops elsewhere in the tour,
+ *     without passing the other stop of one of their requests,</li>
+ *     <li>pair relocation: removing both stops of a request and inserting them back at their best positions.</li>
+ * </ul>
+ * The cost difference of a 2-opt or Or-opt move is computed in O(1) from the costs of the graph:
+ * as the costs may be asymmetric, the cost of a reversed part is read from the prefix sums of the costs
+ * of the tour in both directions, updated after each applied move.
+ * With TimeWindows, only the moves keeping every vertex served before its latest time are applied: the service
+ * times of the new tour are only computed until it joins the current one again, where the delay of the service
+ * must not exceed the forward time slack of the current tour, the largest delay of the service at a position
+ * which keeps the rest of the tour feasible (updated with the prefix sums).
+ */
+public class LocalSearch {
+
+    /**
+     * Largest number of consecutive stops moved by an Or-opt move.
+     */
+    private static final int MAX_SEGMENT_LENGTH = 3;
+    /**
+     * Smallest cost decrease for a move to be applied, so that rounding errors cannot make the search loop.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Number of vertices of the graph.
+     */
+    private final int nbVertices;
+    /**
+     * Costs of the graph.
+     */
+    private final CostMatrix costs;
+    /**
+     * The tour being improved, followed by vertex 0 to close it (nbVertices + 1 vertices).
+     */
+    private final int[] route;
+    /**
+     * Position of each vertex in route (index = vertex).
+     */
+    private final int[] positions;
+    /**
+     * Cost of the first k arcs of route, followed forward, at index k.
+     */
+    private final double[] forwardPrefix;
+    /**
+     * Cost of the first k arcs of route, followed backward, at index k.
+     */
+    private final double[] backwardPrefix;
+    /**
+     * The time windows the tour must respect, null if there are none.
+     */
+    private final TimeWindows timeWindows;
+    /**
+     * Service time of the vertex at each position of route (with time windows).
+     */
+    private final long[] serviceTimes;
+    /**
+     * Forward time slack of each position of route (with time windows).
+     */
+    private final long[] slacks;
+    /**
+     * The tour built by a pair relocation, before it replaces route.
+     */
+    private final int[] changed;
+    /**
+     * The tour without the relocated request, closed by vertex 0.
+     */
+    private final int[] reduced;
+    /**
+     * Cost increase of the best insertion of the relocated request with its delivery after reduced[j], at index j.
+     */
+    private final double[] positionCosts;
+    /**
+     * Position after which the pickup is inserted in each insertion of positionCosts.
+     */
+    private final int[] pickupPositions;
+
+    /**
+     * LocalSearch constructor.
+     * @param g the graph whose tours are improved, every vertex being linked to every other one
+     */
+    public LocalSearch(Graph g) {
+        this(g, null);
+    }
+
+    /**
+     * LocalSearch constructor, with time windows.
+     * @param g the graph whose tours are improved, every vertex being linked to every other one
+     * @param timeWindows the time windows the tours must respect, null if there are none
+     */
+    public LocalSearch(Graph g, TimeWindows timeWindows) {
+        this.timeWindows = timeWindows;
+        nbVertices = g.getNbVertices();
+        costs = new CostMatrix(g);
+        route = new int[nbVertices + 1];
+        positions = new int[nbVertices];
+        forwardPrefix = new double[nbVertices + 1];
+        backwardPrefix = new double[nbVertices + 1];
+        serviceTimes = new long[nbVertices + 1];
+        slacks = new long[nbVertices + 1];
+        changed = new int[nbVertices + 1];
+        reduced = new int[nbVertices - 1];
+        positionCosts = new double[nbVertices];
+        pickupPositions = new int[nbVertices];
+    }
+
+    /**
+     * Improves a tour until none of the moves decreases its cost.
+     * @param tour the vertices of a tour respecting the precedences, starting with vertex 0,
+     *             replaced by the improved tour
+     * @return whether the tour has been improved, never the case if it does not respect the time windows
+     */
+    public boolean improve(int[] tour) {
+        System.arraycopy(tour, 0, route, 0, nbVertices);
+        route[nbVertices] = 0;
+        updateRoute();
+        if (timeWindows != null) {
+            for (int k = 1; k <= nbVertices; k++) {
+                if (serviceTimes[k] > timeWindows.getLatestTime(route[k])) {
+                    return false;
+                }
+            }
+        }
+        boolean improved = false;
+        while (twoOpt() || orOpt() || relocatePair()) {
+            improved = true;
+        }
+        System.arraycopy(route, 0, tour, 0, nbVertices);
+        return improved;
+    }
+
+    /**
+     * @param tour the vertices of a tour, starting with vertex 0
+     * @return the cost of the tour, back to vertex 0 included
+     */
+    public double getCost(int[] tour) {
+        double cost = 0;
+        for (int i = 0; i < tour.length; i++) {
+            cost += costs.getCost(tour[i], tour[(i + 1) % tour.length]);
+        }
+        return cost;
+    }
+
+    /**
+     * Applies the first 2-opt move decreasing the cost of the tour.
+     * @return whether a move has been applied
+     */
+    private boolean twoOpt() {
+        for (int i = 1; i < nbVertices - 1; i++) {
+            int before = route[i - 1];
+            for (int j = i + 1; j < nbVertices; j++) {
+                // Reversing route[i..j] would put a delivery before its pickup, and so would any longer part
+                if (isDelivery(route[j]) && positions[route[j] - 1] >= i) {
+                    break;
+                }
+                int after = route[j + 1];
+                double delta = costs.getCost(before, route[j]) + backwardPrefix[j] - backwardPrefix[i]
+                        + costs.getCost(route[i], after) - costs.getCost(before, route[i])
+                        - forwardPrefix[j] + forwardPrefix[i] - costs.getCost(route[j], after);
+                if (delta < -EPSILON && canReverse(i, j)) {
+                    for (int left = i, right = j; left < right; left++, right--) {
+                        int vertex = route[left];
+                        route[left] = route[right];
+                        route[right] = vertex;
+                    }
+                    updateRoute();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies the first Or-opt move decreasing the cost of the tour.
+     * @return whether a move has been applied
+     */
+    private boolean orOpt() {
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+            for (int i = 1; i + length <= nbVertices; i++) {
+                int end = i + length - 1;
+                int first = route[i];
+                int last = route[end];
+                double removalGain = costs.getCost(route[i - 1], first) + costs.getCost(last, route[end + 1])
+                        - costs.getCost(route[i - 1], route[end + 1]);
+
+                // Later in the tour, between route[p] and route[p + 1], until the delivery of a moved pickup
+                for (int p = end + 1; p < nbVertices; p++) {
+                    if (isDelivery(route[p]) && positions[route[p] - 1] >= i && positions[route[p] - 1] <= end) {
+                        break;
+                    }
+                    double delta = costs.getCost(route[p], first) + costs.getCost(last, route[p + 1])
+                            - costs.getCost(route[p], route[p + 1]) - removalGain;
+                    if (delta < -EPSILON && canMoveSegment(i, end, p + 1)) {
+                        moveSegment(i, end, p + 1);
+                        return true;
+                    }
+                }
+                // Earlier in the tour, between route[p - 1] and route[p], until the pickup of a moved delivery
+                for (int p = i - 1; p >= 1; p--) {
+                    if (isPickup(route[p]) && positions[route[p] + 1] >= i && positions[route[p] + 1] <= end) {
+                        break;
+                    }
+                    double delta = costs.getCost(route[p - 1], first) + costs.getCost(last, route[p])
+                            - costs.getCost(route[p - 1], route[p]) - removalGain;
+                    if (delta < -EPSILON && canMoveSegment(i, end, p)) {
+                        moveSegment(i, end, p);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies the first pair relocation decreasing the cost of the tour.
+     * @return whether a move has been applied
+     */
+    private boolean relocatePair() {
+        for (int pickup = 1; pickup < nbVertices; pickup += 2) {
+            int delivery = pickup + 1;
+            int pickupPosition = positions[pickup];
+            int deliveryPosition = positions[delivery];
+            double removalGain;
+            if (deliveryPosition == pickupPosition + 1) {
+                removalGain = costs.getCost(route[pickupPosition - 1], pickup) + costs.getCost(pickup, delivery)
+                        + costs.getCost(delivery, route[deliveryPosition + 1])
+                        - costs.getCost(route[pickupPosition - 1], route[deliveryPosition + 1]);
+            } else {
+                removalGain = costs.getCost(route[pickupPosition - 1], pickup)
+                        + costs.getCost(pickup, route[pickupPosition + 1])
+                        - costs.getCost(route[pickupPosition - 1], route[pickupPosition + 1])
+                        + costs.getCost(route[deliveryPosition - 1], delivery)
+                        + costs.getCost(delivery, route[deliveryPosition + 1])
+                        - costs.getCost(route[deliveryPosition - 1], route[deliveryPosition + 1]);
+            }
+
+            // The tour without the request, closed by vertex 0
+            int m = 0;
+            for (int k = 0; k <= nbVertices; k++) {
+                if (route[k] != pickup && route[k] != delivery) {
+                    reduced[m++] = route[k];
+                }
+            }
+
+            // Best insertion of the pickup after reduced[i] and of the delivery after reduced[j], i <= j
+            costs.evaluateInsertions(reduced, m - 1, pickup / 2, positionCosts, pickupPositions);
+            int bestDeliveryEdge = CostMatrix.cheapestPosition(positionCosts, m - 1);
+            int bestPickupEdge = pickupPositions[bestDeliveryEdge];
+            double bestDelta = positionCosts[bestDeliveryEdge];
+
+            if (bestDelta - removalGain < -EPSILON) {
+                int k = 0;
+                for (int r = 0; r < m; r++) {
+                    changed[k++] = reduced[r];
+                    if (r == bestPickupEdge) {
+                        changed[k++] = pickup;
+                    }
+                    if (r == bestDeliveryEdge) {
+                        changed[k++] = delivery;
+                    }
+                }
+                // The whole tour is checked, from its second vertex to its return to vertex 0
+                if (timeWindows == null || fitsTimeWindows(1, Arrays.copyOfRange(changed, 1, nbVertices), nbVertices)) {
+                    System.arraycopy(changed, 0, route, 0, nbVertices + 1);
+                    updateRoute();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves route[start..end] before route[target], target being outside of it.
+     * @param start the position of the first moved vertex
+     * @param end the position of the last moved vertex
+     * @param target the position of the vertex the moved ones are put before
+     */
+    private void moveSegment(int start, int end, int target) {
+        int length = end - start + 1;
+        int[] segment = new int[length];
+        System.arraycopy(route, start, segment, 0, length);
+        if (target > end) {
+            System.arraycopy(route, end + 1, route, start, target - end - 1);
+            System.arraycopy(segment, 0, route, target - length, length);
+        } else {
+            System.arraycopy(route, target, route, target + length, start - target);
+            System.arraycopy(segment, 0, route, target, length);
+        }
+        updateRoute();
+    }
+
+    /**
+     * @param i the position of the first reversed vertex
+     * @param j the position of the last reversed vertex
+     * @return whether reversing route[i..j] keeps the tour within the time windows
+     */
+    private boolean canReverse(int i, int j) {
+        if (timeWindows == null) {
+            return true;
+        }
+        int[] reversed = new int[j - i + 1];
+        for (int k = 0; k < reversed.length; k++) {
+            reversed[k] = route[j - k];
+        }
+        return fitsTimeWindows(i, reversed, j + 1);
+    }
+
+    /**
+     * @param start the position of the first moved vertex
+     * @param end the position of the last moved vertex
+     * @param target the position of the vertex the moved ones would be put before
+     * @return whether moving route[start..end] before route[target] keeps the tour within the time windows
+     */
+    private boolean canMoveSegment(int start, int end, int target) {
+        if (timeWindows == null) {
+            return true;
+        }
+        int length = end - start + 1;
+        if (target > end) {
+            int[] part = new int[target - start];
+            System.arraycopy(route, end + 1, part, 0, target - end - 1);
+            System.arraycopy(route, start, part, target - end - 1, length);
+            return fitsTimeWindows(start, part, target);
+        }
+        int[] part = new int[end + 1 - target];
+        System.arraycopy(route, start, part, 0, length);
+        System.arraycopy(route, target, part, length, start - target);
+        return fitsTimeWindows(target, part, end + 1);
+    }
+
+    /**
+     * Checks the time windows of a tour only differing from route by the vertices at positions from..rejoin-1,
+     * in O(rejoin - from): the rest of the tour remains feasible if the service at rejoin is not delayed
+     * by more than its forward time slack.
+     * @param from the position of the first changed vertex
+     * @param part the vertices at positions from..rejoin-1 in the new tour
+     * @param rejoin the position of the first vertex following them in both tours
+     * @return whether every vertex of the new tour is served before its latest time
+     */
+    private boolean fitsTimeWindows(int from, int[] part, int rejoin) {
+        int previous = route[from - 1];
+        long time = serviceTimes[from - 1] + timeWindows.getDuration(previous);
+        for (int vertex : part) {
+            time = timeWindows.getServiceTime(vertex,
+                    time + timeWindows.getTravelTime(costs.getCost(previous, vertex)));
+            if (time > timeWindows.getLatestTime(vertex)) {
+                return false;
+            }
+            time += timeWindows.getDuration(vertex);
+            previous = vertex;
+        }
+        int next = route[rejoin];
+        long serviceTime = timeWindows.getServiceTime(next,
+                time + timeWindows.getTravelTime(costs.getCost(previous, next)));
+        return serviceTime - serviceTimes[rejoin] <= slacks[rejoin];
+    }
+
+    /**
+     * Updates the positions and the prefix sums (and the service times and slacks) after route has been changed.
+     */
+    private void updateRoute() {
+        for (int k = 0; k < nbVertices; k++) {
+            positions[route[k]] = k;
+        }
+        for (int k = 0; k < nbVertices; k++) {
+            forwardPrefix[k + 1] = forwardPrefix[k] + costs.getCost(route[k], route[k + 1]);
+            backwardPrefix[k + 1] = backwardPrefix[k] + costs.getCost(route[k + 1], route[k]);
+        }
+        if (timeWindows == null) {
+            return;
+        }
+        long[] waits = new long[nbVertices + 1];
+        serviceTimes[0] = timeWindows.getServiceTime(route[0], 0);
+        for (int k = 1; k <= nbVertices; k++) {
+            long arrivalTime = serviceTimes[k - 1] + timeWindows.getDuration(route[k - 1])
+                    + timeWindows.getTravelTime(costs.getCost(route[k - 1], route[k]));
+            serviceTimes[k] = timeWindows.getServiceTime(route[k], arrivalTime);
+            waits[k] = serviceTimes[k] - arrivalTime;
+        }
+        slacks[nbVertices] = timeWindows.getLatestTime(0) - serviceTimes[nbVertices];
+        for (int k = nbVertices - 1; k >= 0; k--) {
+            slacks[k] = Math.min(timeWindows.getLatestTime(route[k]) - serviceTimes[k], waits[k + 1] + slacks[k + 1]);
+        }
+    }
+
+    /**
+     * @param vertex
+     * @return whether the vertex is the pickup of a request
+     */
+    private static boolean isPickup(int vertex) {
+        return vertex % 2 == 1;
+    }
+
+    /**
+     * @param vertex
+     * @return whether the vertex is the delivery of a request
+     */
+    private static boolean isDelivery(int vertex) {
+        return vertex != 0 && vertex % 2 == 0;
+    }
+
+}
@@ -6,71 +6,91 @@
 
 package com.pld.agile.utils.tsp;
 
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Iterator;
-
 /**
- * Iterator for candidates
+ * Iterator for candidates: the unvisited vertices that can follow the current vertex,
+ * by increasing cost from it.
+ * The vertices sorted by cost from each vertex are computed once per search, so the iterator only
+ * skips those that cannot be visited. An iterator is allocated per depth of the search tree
+ * and reset at each node instead of being created again.
  */
-public class SeqIter implements Iterator<Integer> {
-	private Integer[] candidates;
-	private int nbCandidates;
+public class SeqIter {
+	/**
+	 * Vertices visited by the current partial tour (index = vertex).
+	 */
+	private final boolean[] visited;
+	/**
+	 * The other vertices, by increasing cost from the current vertex.
+	 */
+	private int[] successors;
+	/**
+	 * Position in successors of the vertex following the next candidate.
+	 */
+	private int position;
+	/**
+	 * Next candidate, -1 if there is none.
+	 */
+	private int next;
 
 	/**
-	 * Create an iterator to traverse the set of vertices in <code>unvisited</code> 
-	 * which are successors of <code>currentVertex</code> in <code>g</code>
-	 * Vertices are traversed in the same order as in <code>unvisited</code>
-	 * @param unvisited unvisited
-	 * @param currentVertex current vertex
-	 * @param g
+	 * Create an iterator over the vertices not marked in <code>visited</code>,
+	 * which is read as the search goes (it is not copied).
+	 * @param visited the vertices visited by the current partial tour
 	 */
-	public SeqIter (Collection<Integer> unvisited, int currentVertex, Graph g) {
-		nbCandidates = 0;
-		this.candidates = new Integer[unvisited.size()];
-		for (Integer s : unvisited) {
-			if(canBeVisited(unvisited, s))
-				candidates[nbCandidates++] = s;
-		}
-		this.sortByDist(currentVertex,g);
+	public SeqIter(boolean[] visited) {
+		this.visited = visited;
+		this.next = -1;
 	}
-	
-	@Override
-	public boolean hasNext() {
-		return nbCandidates > 0;
+
+	/**
+	 * Starts iterating over the candidates following a vertex.
+	 * @param successors the other vertices, by increasing cost from the current vertex
+	 */
+	public void reset(int[] successors) {
+		this.successors = successors;
+		this.position = 0;
+		advance();
 	}
 
-	@Override
-	public Integer next() {
-		nbCandidates--;
-		return candidates[nbCandidates];
+	/**
+	 * @return true if there is another candidate
+	 */
+	public boolean hasNext() {
+		return next >= 0;
 	}
 
-	@Override
-	public void remove() {}
+	/**
+	 * Returns the next candidate. Must be called before the candidate is marked as visited.
+	 * @return the next candidate vertex
+	 */
+	public int nextVertex() {
+		int vertex = next;
+		advance();
+		return vertex;
+	}
 
-	protected boolean canBeVisited(Collection<Integer> unvisited, Integer s) {
-		if(s%2 == 1) { // s is a pickup
-			return true;
-		} else {
-			if(unvisited.contains(s-1)) { //s corresponding pickup stop isn't already visited
-				return false;
+	/**
+	 * Moves to the next vertex of successors that can be visited.
+	 */
+	private void advance() {
+		while (position < successors.length) {
+			int s = successors[position++];
+			if (!visited[s] && canBeVisited(s)) {
+				next = s;
+				return;
 			}
-			return true;
 		}
+		next = -1;
 	}
 
-	protected void sortByDist(Integer currentVertex, Graph g) {
-		// Sort in descending order because we iterate from the end
-		for(int i = 1; i < nbCandidates; i++) {
-			int value = candidates[i];
-			int j = i-1;
-			while((j >= 0) && (g.getCost(currentVertex, value) > g.getCost(currentVertex, candidates[j]))) {
-				candidates[j+1] = candidates[j];
-				j--;
-			}
-			candidates[j+1] = value;
+	/**
+	 * @param s an unvisited vertex
+	 * @return true if s is a pickup, or a delivery whose pickup has already been visited
+	 */
+	protected boolean canBeVisited(int s) {
+		if (s % 2 == 1) { // s is a pickup
+			return true;
 		}
+		return visited[s - 1]; // s corresponding pickup stop must already be visited
 	}
 
 }
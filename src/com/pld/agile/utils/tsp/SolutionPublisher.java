@@ -0,0 +1,200 @@
+/*
+ * SolutionPublisher
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import com.pld.agile.utils.observer.Observable;
+import com.pld.agile.utils.observer.UpdateType;
+import javafx.application.Platform;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers the intermediary solutions of a solver to its observers (INTERMEDIARY_TSP), on the JavaFX thread.
+ * The solver offers each better tour to a single slot, which only keeps the latest one: the slot is drained
+ * by one task at a time, at most maxRate times per second, so that a solver finding hundreds of tours per second
+ * neither floods the JavaFX thread with redraws nor waits for it. The tour of the last drained solution stays
+ * readable by the observers while the solver keeps offering new ones.
+ * The solutions are only delivered between open and close, the tasks still pending once the search is over
+ * being dropped (the final solution is read from the solver).
+ */
+public class SolutionPublisher extends Observable {
+
+    /**
+     * Default largest number of solutions delivered per second.
+     */
+    public static final double DEFAULT_MAX_RATE = 10;
+
+    /**
+     * Thread delaying the drain tasks until the rate allows them, shared by all the publishers.
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SolutionPublisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A tour and its cost.
+     */
+    private static class Solution {
+
+        /**
+         * Vertices of the tour, in order of visit.
+         */
+        private final int[] tour;
+        /**
+         * Cost of the tour.
+         */
+        private final double cost;
+
+        /**
+         * Solution constructor.
+         * @param tour the vertices of the tour, in order of visit
+         * @param cost the cost of the tour
+         */
+        Solution(int[] tour, double cost) {
+            this.tour = tour;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Runs the drain tasks, on the thread of the observers.
+     */
+    private final Executor dispatcher;
+    /**
+     * The latest offered solution not drained yet, null if there is none.
+     */
+    private final AtomicReference<Solution> pending = new AtomicReference<>();
+    /**
+     * Whether a drain task is scheduled.
+     */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    /**
+     * Smallest time between two drains, in nanoseconds.
+     */
+    private volatile long minInterval;
+    /**
+     * Earliest time of the next drain, in nanoseconds (System.nanoTime).
+     */
+    private volatile long nextDrainTime;
+    /**
+     * Whether the solutions are not delivered, before open and after close.
+     */
+    private volatile boolean closed = true;
+    /**
+     * The last delivered solution.
+     */
+    private volatile Solution delivered;
+
+    /**
+     * SolutionPublisher constructor, the solutions being delivered on the JavaFX thread
+     * at most DEFAULT_MAX_RATE times per second.
+     */
+    public SolutionPublisher() {
+        this(Platform::runLater);
+    }
+
+    /**
+     * SolutionPublisher constructor, the solutions being delivered at most DEFAULT_MAX_RATE times per second.
+     * @param dispatcher runs the drain tasks on the thread of the observers
+     */
+    public SolutionPublisher(Executor dispatcher) {
+        this.dispatcher = dispatcher;
+        setMaxRate(DEFAULT_MAX_RATE);
+    }
+
+    /**
+     * @return the largest number of solutions delivered per second, 0 if there is none
+     */
+    public double getMaxRate() {
+        return minInterval == 0 ? 0 : 1e9 / minInterval;
+    }
+
+    /**
+     * @param maxRate the largest number of solutions delivered per second, 0 if there is none
+     */
+    public void setMaxRate(double maxRate) {
+        minInterval = maxRate > 0 ? (long) (1e9 / maxRate) : 0;
+    }
+
+    /**
+     * Starts delivering the offered solutions, at the start of a search.
+     */
+    public void open() {
+        pending.set(null);
+        nextDrainTime = System.nanoTime();
+        closed = false;
+    }
+
+    /**
+     * Stops delivering the offered solutions, at the end of a search: the pending one is dropped.
+     */
+    public void close() {
+        closed = true;
+        pending.set(null);
+    }
+
+    /**
+     * Offers a better solution, replacing the pending one if it has not been delivered yet.
+     * Called by the solver threads, it never blocks.
+     * @param tour the vertices of the tour in order of visit, not modified afterwards
+     * @param cost the cost of the tour
+     */
+    public void offer(int[] tour, double cost) {
+        if (closed || !hasObservers()) {
+            return;
+        }
+        pending.set(new Solution(tour, cost));
+        if (drainScheduled.compareAndSet(false, true)) {
+            long delay = nextDrainTime - System.nanoTime();
+            if (delay <= 0) {
+                dispatcher.execute(this::drain);
+            } else {
+                TIMER.schedule(() -> dispatcher.execute(this::drain), delay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Delivers the pending solution to the observers, the solutions offered in the meantime
+     * being delivered by the next drain.
+     */
+    private void drain() {
+        nextDrainTime = System.nanoTime() + minInterval;
+        drainScheduled.set(false);
+        Solution solution = pending.getAndSet(null);
+        if (solution == null || closed) {
+            return;
+        }
+        delivered = solution;
+        notifyObservers(UpdateType.INTERMEDIARY_TSP);
+    }
+
+    /**
+     * @return the vertices of the tour of the last delivered solution, in order of visit
+     * (null if none has been delivered)
+     */
+    public int[] getTour() {
+        Solution solution = delivered;
+        return solution == null ? null : solution.tour.clone();
+    }
+
+    /**
+     * @return the cost of the last delivered solution (-1 if none has been delivered)
+     */
+    public double getCost() {
+        Solution solution = delivered;
+        return solution == null ? -1 : solution.cost;
+    }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * SolverPortfolio
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import com.pld.agile.model.tour.TourData;
+import com.pld.agile.utils.observer.Observable;
+import com.pld.agile.utils.observer.Observer;
+import com.pld.agile.utils.observer.UpdateType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * TSP choosing its solvers from the size of the graph and the time limit of the search, used as a latency budget:
+ * <ul>
+ *     <li>tours with time windows are searched by the branch and bound, the only solver respecting them;</li>
+ *     <li>small tours are solved exactly by HeldKarpTSP, if its estimated running time fits in the budget;</li>
+ *     <li>medium tours are raced between the branch and bound and LargeNeighbourhoodTSP when several threads
+ *     are available: the race ends with the first solver returning, either the branch and bound having proven
+ *     its tour optimal, which is kept, or the metaheuristic having converged, the cheapest tour being kept;</li>
+ *     <li>the other tours are searched by LargeNeighbourhoodTSP alone.</li>
+ * </ul>
+ * The intermediary solutions of the solvers are forwarded to the observers of the SolutionPublisher of the
+ * portfolio, as long as they improve the last forwarded one.
+ */
+public class SolverPortfolio implements TSP, Observer {
+
+    /**
+     * Solvers of the portfolio.
+     */
+    public enum Strategy {
+        /**
+         * Exact dynamic programming, HeldKarpTSP.
+         */
+        HELD_KARP,
+        /**
+         * Branch and bound, TSP3.
+         */
+        BRANCH_AND_BOUND,
+        /**
+         * Metaheuristic, LargeNeighbourhoodTSP.
+         */
+        LARGE_NEIGHBOURHOOD
+    }
+
+    /**
+     * Pessimistic running time of one transition of HeldKarpTSP, which makes 3^r * r * r of them for r requests.
+     */
+    private static final double HELD_KARP_NANOS_PER_TRANSITION = 20;
+    /**
+     * Largest number of requests for which the branch and bound is raced against the metaheuristic,
+     * it has no chance of proving its tour optimal on larger graphs.
+     */
+    private static final int MAX_RACED_REQUESTS = 20;
+
+    /**
+     * The time windows the tours must respect, null if there are none.
+     */
+    private TimeWindows timeWindows;
+    /**
+     * Number of threads searching at the same time.
+     */
+    private int parallelism = 1;
+    /**
+     * The graph of the last search.
+     */
+    private Graph g;
+    /**
+     * Strategies of the last search.
+     */
+    private List<Strategy> strategies = List.of();
+    /**
+     * Solver whose solution is kept, null during the search.
+     */
+    private volatile TSP bestTsp;
+    /**
+     * Cost of the last intermediary solution forwarded to the publisher.
+     */
+    private double forwardedCost;
+    /**
+     * Whether the kept solution is proven to be optimal.
+     */
+    private boolean optimal;
+    /**
+     * The token cancelling the search, shared by the solvers.
+     */
+    private CancellationToken cancellation = new CancellationToken();
+    /**
+     * Delivers the intermediary solutions of the solvers to the observers.
+     */
+    private final SolutionPublisher publisher = new SolutionPublisher();
+
+    /**
+     * SolverPortfolio constructor.
+     * @param tourData the TourData notified of the intermediary solutions
+     */
+    public SolverPortfolio(TourData tourData) {
+        publisher.addObserver(tourData);
+    }
+
+    /**
+     * SolverPortfolio constructor, without observers.
+     */
+    public SolverPortfolio() {
+    }
+
+    /**
+     * @param timeWindows the time windows the tours must respect, null if there are none
+     */
+    public void setTimeWindows(TimeWindows timeWindows) {
+        this.timeWindows = timeWindows;
+    }
+
+    /**
+     * @param parallelism the number of threads searching at the same time (at least 1)
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @return the publisher of the intermediary solutions, whose observers are notified of them
+     */
+    public SolutionPublisher getPublisher() {
+        return publisher;
+    }
+
+    /**
+     * @return the strategies of the last search
+     */
+    public List<Strategy> getStrategies() {
+        return strategies;
+    }
+
+    /**
+     * Chooses the solvers searching a tour.
+     * @param nbVertices the number of vertices of the graph (the warehouse and two stops per request)
+     * @param timeLimit the time limit of the search, in milliseconds
+     * @param hasTimeWindows whether the tour must respect time windows
+     * @param parallelism the number of threads searching at the same time
+     * @return the solvers to run at the same time, a single one if they are not raced
+     */
+    public static List<Strategy> chooseStrategies(int nbVertices, int timeLimit, boolean hasTimeWindows,
+                                                  int parallelism) {
+        if (hasTimeWindows) {
+            return List.of(Strategy.BRANCH_AND_BOUND);
+        }
+        int nbRequests = (nbVertices - 1) / 2;
+        if (HeldKarpTSP.canSolve(nbVertices)
+                && Math.pow(3, nbRequests) * nbRequests * nbRequests * HELD_KARP_NANOS_PER_TRANSITION
+                <= timeLimit * 1e6) {
+            return List.of(Strategy.HELD_KARP);
+        }
+        if (parallelism > 1 && nbRequests <= MAX_RACED_REQUESTS) {
+            return List.of(Strategy.BRANCH_AND_BOUND, Strategy.LARGE_NEIGHBOURHOOD);
+        }
+        return List.of(Strategy.LARGE_NEIGHBOURHOOD);
+    }
+
+    /**
+     * Searches a tour with the solvers chosen by chooseStrategies. When they are raced, the search stops
+     * as soon as one of them returns, the branch and bound only returning before its time limit once its tour
+     * is proven optimal, and the metaheuristic once it has converged: the others are cancelled by a token of
+     * the race, which also follows the token of the portfolio. When the search is cancelled, every solver returns within
+     * milliseconds. All the solvers have returned and the pool of the race is released when this method returns.
+     * @param timeLimit the time limit of the search, in milliseconds
+     * @param g the graph of the requests
+     */
+    @Override
+    public void searchSolution(int timeLimit, Graph g) {
+        if (timeLimit <= 0) return;
+        this.g = g;
+        strategies = chooseStrategies(g.getNbVertices(), timeLimit, timeWindows != null, parallelism);
+        CancellationToken race = strategies.size() > 1 ? new CancellationToken(cancellation) : cancellation;
+        List<TSP> solvers = new ArrayList<>();
+        for (Strategy strategy : strategies) {
+            TSP solver = createSolver(strategy, parallelism - strategies.size() + 1);
+            solver.setCancellationToken(race);
+            solvers.add(solver);
+        }
+        synchronized (this) {
+            bestTsp = null;
+            optimal = false;
+            forwardedCost = Double.MAX_VALUE;
+        }
+        publisher.open();
+
+        TSP winner = null;
+        if (solvers.size() == 1) {
+            winner = solvers.get(0);
+            winner.searchSolution(timeLimit, g);
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(solvers.size(), runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+            CompletionService<TSP> completion = new ExecutorCompletionService<>(pool);
+            try {
+                for (TSP solver : solvers) {
+                    completion.submit(() -> {
+                        solver.searchSolution(timeLimit, g);
+                        return solver;
+                    });
+                }
+                // The first solver returning ends the race: the branch and bound rarely proves a tour optimal
+                // once the metaheuristic has converged, which takes a fraction of the budget on large graphs
+                TSP finished = completion.take().get();
+                if (finished.isSolutionOptimal()) {
+                    winner = finished;
+                }
+                // The losers stop within milliseconds once cancelled
+                race.cancel();
+                for (int i = 1; i < solvers.size(); i++) {
+                    completion.take();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Tour search failed", e.getCause());
+            } finally {
+                race.cancel();
+                pool.shutdownNow();
+            }
+            if (winner == null) {
+                // A solver interrupted before it started has no solution, and a cost of -1
+                for (TSP solver : solvers) {
+                    if (solver.getSolutionCost() >= 0
+                            && (winner == null || solver.getSolutionCost() < winner.getSolutionCost())) {
+                        winner = solver;
+                    }
+                }
+            }
+        }
+
+        publisher.close();
+        synchronized (this) {
+            bestTsp = winner;
+            optimal = winner != null && winner.isSolutionOptimal();
+        }
+    }
+
+    /**
+     * @param strategy a strategy
+     * @param solverParallelism the number of threads of the solver
+     * @return the solver of the strategy
+     */
+    private TSP createSolver(Strategy strategy, int solverParallelism) {
+        return switch (strategy) {
+            case HELD_KARP -> new HeldKarpTSP();
+            case BRANCH_AND_BOUND -> {
+                TSP3 tsp3 = new TSP3();
+                tsp3.setTimeWindows(timeWindows);
+                tsp3.setParallelism(solverParallelism);
+                forwardSolutions(tsp3.getPublisher());
+                yield tsp3;
+            }
+            case LARGE_NEIGHBOURHOOD -> {
+                LargeNeighbourhoodTSP largeNeighbourhoodTSP = new LargeNeighbourhoodTSP();
+                forwardSolutions(largeNeighbourhoodTSP.getPublisher());
+                yield largeNeighbourhoodTSP;
+            }
+        };
+    }
+
+    /**
+     * Observes the intermediary solutions of a solver if the portfolio has observers, the solver delivering
+     * them at the same rate as the portfolio.
+     * @param solverPublisher the publisher of the solver
+     */
+    private void forwardSolutions(SolutionPublisher solverPublisher) {
+        if (publisher.hasObservers()) {
+            solverPublisher.setMaxRate(publisher.getMaxRate());
+            solverPublisher.addObserver(this);
+        }
+    }
+
+    @Override
+    public Integer getSolution(int i) {
+        TSP tsp = bestTsp;
+        if (tsp != null && g != null && i >= 0 && i < g.getNbVertices())
+            return tsp.getSolution(i);
+        return -1;
+    }
+
+    @Override
+    public double getSolutionCost() {
+        TSP tsp = bestTsp;
+        if (tsp != null)
+            return tsp.getSolutionCost();
+        return -1;
+    }
+
+    /**
+     * @return true if the kept solution is proven to be optimal by its solver
+     */
+    @Override
+    public boolean isSolutionOptimal() {
+        return optimal;
+    }
+
+    /**
+     * Called when a solver has delivered an intermediary solution, forwarded to the publisher if it is cheaper
+     * than the last forwarded one.
+     * @param observed the publisher of the solver
+     * @param updateType the type of update
+     */
+    @Override
+    public void update(Observable observed, UpdateType updateType) {
+        if (updateType != UpdateType.INTERMEDIARY_TSP) {
+            return;
+        }
+        SolutionPublisher solverPublisher = (SolutionPublisher) observed;
+        double cost = solverPublisher.getCost();
+        synchronized (this) {
+            if (cost >= forwardedCost) {
+                return;
+            }
+            forwardedCost = cost;
+        }
+        publisher.offer(solverPublisher.getTour(), cost);
+    }
+
+}
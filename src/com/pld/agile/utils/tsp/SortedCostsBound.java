@@ -0,0 +1,309 @@
+/*
+ * SortedCostsBound
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import java.util.Arrays;
+
+/**
+ * IncrementalBound of the TSP with pickup before delivery (with the vertex numbering of CostMatrix),
+ * the largest of two bounds:
+ * <ul>
+ *     <li>the cheapest arc from the current vertex to a vertex which can be visited next, plus the cheapest arc
+ *     leaving each unvisited vertex towards another unvisited vertex or vertex 0 (a pickup never being
+ *     followed by vertex 0, as its delivery remains),</li>
+ *     <li>the cheapest arc entering each unvisited vertex and vertex 0 from another unvisited vertex or the
+ *     current vertex (vertex 0 never being preceded by a pickup).</li>
+ * </ul>
+ * The other vertices are sorted once per search by increasing cost from and to each vertex, and each vertex
+ * keeps the position of its cheapest valid arc in these lists, along with the sums of these arcs. Visiting a
+ * vertex only moves the positions which pointed to it (leaving arcs) or to the previous current vertex
+ * (entering arcs), in O(u) plus the moves for u unvisited vertices. The moved positions are saved on a trail
+ * to be restored when the vertex is unvisited.
+ */
+public class SortedCostsBound implements IncrementalBound {
+
+    /**
+     * Number of vertices of the graph.
+     */
+    private final int nbVertices;
+    /**
+     * Costs of the graph (shared by the states of a search).
+     */
+    private final CostMatrix costs;
+    /**
+     * The other vertices sorted by increasing cost from each vertex (shared by the states of a search).
+     */
+    private final int[][] successors;
+    /**
+     * The other vertices sorted by increasing cost to each vertex (shared by the states of a search).
+     */
+    private final int[][] predecessors;
+    /**
+     * The vertices visited by the search state.
+     */
+    private final boolean[] visited;
+    /**
+     * Position in successors of the cheapest valid arc leaving each vertex.
+     */
+    private final int[] outPositions;
+    /**
+     * Position in predecessors of the cheapest valid arc entering each vertex.
+     */
+    private final int[] inPositions;
+    /**
+     * Sum of the cheapest valid arcs leaving the unvisited vertices.
+     */
+    private double outSum;
+    /**
+     * Sum of the cheapest valid arcs entering the unvisited vertices and vertex 0.
+     */
+    private double inSum;
+    /**
+     * The last vertex of the partial tour.
+     */
+    private int current;
+    /**
+     * Number of visits not undone yet.
+     */
+    private int depth;
+    /**
+     * Trail size before each visit not undone yet (index = depth).
+     */
+    private final int[] trailMarks;
+    /**
+     * Value of outSum before each visit not undone yet (index = depth).
+     */
+    private final double[] savedOutSums;
+    /**
+     * Value of inSum before each visit not undone yet (index = depth).
+     */
+    private final double[] savedInSums;
+    /**
+     * Current vertex before each visit not undone yet (index = depth).
+     */
+    private final int[] savedCurrents;
+    /**
+     * Vertex of each moved position, plus nbVertices for the position of an entering arc.
+     */
+    private int[] trailVertices;
+    /**
+     * Position of each moved position before its move.
+     */
+    private int[] trailPositions;
+    /**
+     * Number of moved positions on the trail.
+     */
+    private int trailSize;
+
+    /**
+     * SortedCostsBound constructor, computing the data shared by the states of a search.
+     * @param g the searched graph
+     */
+    public SortedCostsBound(Graph g) {
+        nbVertices = g.getNbVertices();
+        costs = new CostMatrix(g);
+        successors = new int[nbVertices][];
+        predecessors = new int[nbVertices][];
+        for (int vertex = 0; vertex < nbVertices; vertex++) {
+            int v = vertex;
+            successors[vertex] = costs.sortOthers(vertex,
+                    (a, b) -> Double.compare(costs.getCost(v, a), costs.getCost(v, b)));
+            predecessors[vertex] = costs.sortOthers(vertex,
+                    (a, b) -> Double.compare(costs.getCost(a, v), costs.getCost(b, v)));
+        }
+        visited = new boolean[nbVertices];
+        visited[0] = true;
+        outPositions = new int[nbVertices];
+        inPositions = new int[nbVertices];
+        trailMarks = new int[nbVertices + 1];
+        savedOutSums = new double[nbVertices + 1];
+        savedInSums = new double[nbVertices + 1];
+        savedCurrents = new int[nbVertices + 1];
+        initialize();
+    }
+
+    /**
+     * Constructor of the bound of another state of a search.
+     * @param shared the bound holding the data shared by the states of the search
+     * @param visited the vertices visited by the state, only vertex 0 being visited
+     */
+    private SortedCostsBound(SortedCostsBound shared, boolean[] visited) {
+        nbVertices = shared.nbVertices;
+        costs = shared.costs;
+        successors = shared.successors;
+        predecessors = shared.predecessors;
+        this.visited = visited;
+        outPositions = new int[nbVertices];
+        inPositions = new int[nbVertices];
+        trailMarks = new int[nbVertices + 1];
+        savedOutSums = new double[nbVertices + 1];
+        savedInSums = new double[nbVertices + 1];
+        savedCurrents = new int[nbVertices + 1];
+        initialize();
+    }
+
+    @Override
+    public IncrementalBound forState(boolean[] visited) {
+        return new SortedCostsBound(this, visited);
+    }
+
+    @Override
+    public void visit(int vertex, int[] unvisited, int nbUnvisited) {
+        trailMarks[depth] = trailSize;
+        savedOutSums[depth] = outSum;
+        savedInSums[depth] = inSum;
+        savedCurrents[depth] = current;
+        depth++;
+
+        // The vertex leaves the unvisited ones, the previous current vertex is no longer a valid origin
+        outSum -= costs.getCost(vertex, successors[vertex][outPositions[vertex]]);
+        inSum -= costs.getCost(predecessors[vertex][inPositions[vertex]], vertex);
+        int previous = current;
+        current = vertex;
+        for (int k = 0; k < nbUnvisited; k++) {
+            int u = unvisited[k];
+            if (successors[u][outPositions[u]] == vertex) {
+                advanceOut(u);
+            }
+            if (predecessors[u][inPositions[u]] == previous) {
+                advanceIn(u);
+            }
+        }
+        if (predecessors[0][inPositions[0]] == previous) {
+            advanceIn(0);
+        }
+    }
+
+    @Override
+    public void unvisit(int vertex) {
+        depth--;
+        while (trailSize > trailMarks[depth]) {
+            trailSize--;
+            int moved = trailVertices[trailSize];
+            if (moved < nbVertices) {
+                outPositions[moved] = trailPositions[trailSize];
+            } else {
+                inPositions[moved - nbVertices] = trailPositions[trailSize];
+            }
+        }
+        outSum = savedOutSums[depth];
+        inSum = savedInSums[depth];
+        current = savedCurrents[depth];
+    }
+
+    @Override
+    public double getBound() {
+        // Cheapest arc to a pickup, or to a delivery whose pickup is visited
+        double first = costs.getCost(current, 0);
+        for (int next : successors[current]) {
+            if (!visited[next] && (isPickup(next) || visited[next - 1])) {
+                first = costs.getCost(current, next);
+                break;
+            }
+        }
+        return Math.max(first + outSum, inSum);
+    }
+
+    /**
+     * Computes the positions and sums of the state from scratch, its current vertex being vertex 0.
+     */
+    private void initialize() {
+        current = 0;
+        outSum = 0;
+        inSum = 0;
+        trailVertices = new int[4 * nbVertices];
+        trailPositions = new int[4 * nbVertices];
+        for (int vertex = 0; nbVertices > 1 && vertex < nbVertices; vertex++) {
+            int position = 0;
+            if (vertex != 0) {
+                while (!isValidSuccessor(vertex, successors[vertex][position])) {
+                    position++;
+                }
+                outPositions[vertex] = position;
+                outSum += costs.getCost(vertex, successors[vertex][position]);
+            }
+            position = 0;
+            while (!isValidPredecessor(vertex, predecessors[vertex][position])) {
+                position++;
+            }
+            inPositions[vertex] = position;
+            inSum += costs.getCost(predecessors[vertex][position], vertex);
+        }
+    }
+
+    /**
+     * Moves the position of the cheapest arc leaving an unvisited vertex to the next valid one.
+     * @param u the unvisited vertex
+     */
+    private void advanceOut(int u) {
+        int position = outPositions[u];
+        pushTrail(u, position);
+        double oldCost = costs.getCost(u, successors[u][position]);
+        do {
+            position++;
+        } while (!isValidSuccessor(u, successors[u][position]));
+        outPositions[u] = position;
+        outSum += costs.getCost(u, successors[u][position]) - oldCost;
+    }
+
+    /**
+     * Moves the position of the cheapest arc entering an unvisited vertex or vertex 0 to the next valid one.
+     * @param w the unvisited vertex or vertex 0
+     */
+    private void advanceIn(int w) {
+        int position = inPositions[w];
+        pushTrail(w + nbVertices, position);
+        double oldCost = costs.getCost(predecessors[w][position], w);
+        do {
+            position++;
+        } while (!isValidPredecessor(w, predecessors[w][position]));
+        inPositions[w] = position;
+        inSum += costs.getCost(predecessors[w][position], w) - oldCost;
+    }
+
+    /**
+     * Saves a position before it is moved.
+     * @param vertex the vertex, plus nbVertices for an entering arc
+     * @param position its position before the move
+     */
+    private void pushTrail(int vertex, int position) {
+        if (trailSize == trailVertices.length) {
+            trailVertices = Arrays.copyOf(trailVertices, 2 * trailSize);
+            trailPositions = Arrays.copyOf(trailPositions, 2 * trailSize);
+        }
+        trailVertices[trailSize] = vertex;
+        trailPositions[trailSize] = position;
+        trailSize++;
+    }
+
+    /**
+     * @param u an unvisited vertex
+     * @param next another vertex
+     * @return whether next may follow u in the rest of the tour
+     */
+    private boolean isValidSuccessor(int u, int next) {
+        return next == 0 ? !isPickup(u) : !visited[next];
+    }
+
+    /**
+     * @param w an unvisited vertex or vertex 0
+     * @param previous another vertex
+     * @return whether previous may precede w in the rest of the tour
+     */
+    private boolean isValidPredecessor(int w, int previous) {
+        return (!visited[previous] || previous == current) && (w != 0 || !isPickup(previous));
+    }
+
+    /**
+     * @param vertex
+     * @return whether the vertex is the pickup of a request
+     */
+    private static boolean isPickup(int vertex) {
+        return vertex % 2 == 1;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * SubGraph
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import com.pld.agile.model.tour.Path;
+
+/**
+ * View of some of the vertices of a graph, vertex i of the view being vertices[i] in the graph: the costs
+ * and paths are read from the graph, so that several views share its data without copying it.
+ */
+public class SubGraph implements Graph {
+
+    /**
+     * The graph holding the costs and paths.
+     */
+    private final Graph graph;
+    /**
+     * The vertex of the graph of each vertex of the view.
+     */
+    private final int[] vertices;
+
+    /**
+     * SubGraph constructor.
+     * @param graph the graph holding the costs and paths
+     * @param vertices the vertex of the graph of each vertex of the view
+     */
+    public SubGraph(Graph graph, int[] vertices) {
+        this.graph = graph;
+        this.vertices = vertices;
+    }
+
+    /**
+     * @param i a vertex of the view
+     * @return the vertex of the graph
+     */
+    public int getVertex(int i) {
+        return vertices[i];
+    }
+
+    @Override
+    public int getNbVertices() {
+        return vertices.length;
+    }
+
+    @Override
+    public double getCost(int i, int j) {
+        if (i < 0 || i >= vertices.length || j < 0 || j >= vertices.length) {
+            return -1;
+        }
+        return graph.getCost(vertices[i], vertices[j]);
+    }
+
+    @Override
+    public Path getPath(int i, int j) {
+        if (i < 0 || i >= vertices.length || j < 0 || j >= vertices.length) {
+            return null;
+        }
+        return graph.getPath(vertices[i], vertices[j]);
+    }
+
+    @Override
+    public boolean isArc(int i, int j) {
+        if (i < 0 || i >= vertices.length || j < 0 || j >= vertices.length) {
+            return false;
+        }
+        return graph.isArc(vertices[i], vertices[j]);
+    }
+
+    @Override
+    public void setCost(int i, int j, double value) {
+        if (i < 0 || i >= vertices.length || j < 0 || j >= vertices.length) {
+            return;
+        }
+        graph.setCost(vertices[i], vertices[j], value);
+    }
+
+    @Override
+    public void setPath(int i, int j, Path value) {
+        if (i < 0 || i >= vertices.length || j < 0 || j >= vertices.length) {
+            return;
+        }
+        graph.setPath(vertices[i], vertices[j], value);
+    }
+
+    /**
+     * @return the smallest cost of the graph, a lower bound of the costs of the view
+     */
+    @Override
+    public double getMinCost() {
+        return graph.getMinCost();
+    }
+
+}
@@ -29,4 +29,18 @@ public interface TSP {
 	 */
 	public double getSolutionCost();
 
+	/**
+	 * @return true if the solution computed by <code>searchSolution</code> is proven to be optimal
+	 * (false if the search has been stopped by its time limit or cancelled, or cannot prove optimality)
+	 */
+	public default boolean isSolutionOptimal() {
+		return false;
+	}
+
+	/**
+	 * @param cancellation the token cancelling <code>searchSolution</code>, which then returns as soon as possible
+	 * (with the best found tour, if any)
+	 */
+	public void setCancellationToken(CancellationToken cancellation);
+
 }
@@ -8,23 +8,15 @@ package com.pld.agile.utils.tsp;
 
 import com.pld.agile.model.tour.TourData;
 
-import java.util.Collection;
-import java.util.Iterator;
-
 public class TSP2 extends TemplateTSP {
 
     public TSP2(TourData tourData){
-        addObserver(tourData);
-    }
-
-    @Override
-    protected double bound(Integer currentVertex, Collection<Integer> unvisited) {
-        return (unvisited.size()+1)*g.getMinCost();
+        getPublisher().addObserver(tourData);
     }
 
     @Override
-    protected Iterator<Integer> iterator(Integer currentVertex, Collection<Integer> unvisited, Graph g) {
-        return new SeqIter(unvisited, currentVertex, g);
+    protected double bound(int currentVertex, int[] unvisited, int nbUnvisited) {
+        return (nbUnvisited+1)*g.getMinCost();
     }
 
 }
\ No newline at end of file
@@ -8,37 +8,66 @@ package com.pld.agile.utils.tsp;
 
 import com.pld.agile.model.tour.TourData;
 
-import java.util.Collection;
-import java.util.Iterator;
-
+/**
+ * Branch and bound whose bound is the largest of the cheapest arcs leaving and entering the remaining vertices
+ * (see SortedCostsBound), maintained by each search state as it visits and unvisits vertices.
+ */
 public class TSP3 extends TemplateTSP {
 
     public TSP3(TourData tourData){
-        addObserver(tourData);
+        getPublisher().addObserver(tourData);
+    }
+
+    /**
+     * TSP3 constructor, without observers.
+     */
+    public TSP3() {
+    }
+
+    @Override
+    protected IncrementalBound createIncrementalBound() {
+        return new SortedCostsBound(g);
     }
 
+    /**
+     * Computes the bound of SortedCostsBound from scratch, in O(u²).
+     */
     @Override
-    protected double bound(Integer currentVertex, Collection<Integer> unvisited) {
+    protected double bound(int currentVertex, int[] unvisited, int nbUnvisited) {
+        boolean[] isUnvisited = new boolean[nbVertices];
+        for (int i = 0; i < nbUnvisited; i++) {
+            isUnvisited[unvisited[i]] = true;
+        }
+        // Cheapest arc to a pickup, or to a delivery whose pickup is visited
         double l = Double.MAX_VALUE;
-        double sumLi = 0;
-        // L
-        for(Integer s : unvisited) {
-            if(l > g.getCost(currentVertex, s)) l = g.getCost(currentVertex, s);
+        for (int i = 0; i < nbUnvisited; i++) {
+            int v = unvisited[i];
+            if ((v % 2 == 1 || !isUnvisited[v - 1]) && l > getCost(currentVertex, v)) l = getCost(currentVertex, v);
         }
-        // Sum of Li
-        for(Integer u : unvisited) {
-            double li = g.getCost(u, 0);
-            for(Integer v : unvisited) {
-                if(u != v && (li > g.getCost(u, v))) li = g.getCost(u, v);
+        // Cheapest arcs leaving the unvisited vertices, a pickup never being followed by 0
+        double sumOut = 0;
+        for (int i = 0; i < nbUnvisited; i++) {
+            int u = unvisited[i];
+            double li = u % 2 == 1 ? Double.MAX_VALUE : getCost(u, 0);
+            for (int j = 0; j < nbUnvisited; j++) {
+                int v = unvisited[j];
+                if (u != v && li > getCost(u, v)) li = getCost(u, v);
             }
-            sumLi += li;
+            sumOut += li;
         }
-        return l + sumLi;
-    }
-
-    @Override
-    protected Iterator<Integer> iterator(Integer currentVertex, Collection<Integer> unvisited, Graph g) {
-        return new SeqIter(unvisited, currentVertex, g);
+        // Cheapest arcs entering the unvisited vertices and 0, 0 never being preceded by a pickup
+        double sumIn = 0;
+        for (int i = 0; i <= nbUnvisited; i++) {
+            int w = i < nbUnvisited ? unvisited[i] : 0;
+            double li = w == currentVertex || (w == 0 && currentVertex % 2 == 1)
+                    ? Double.MAX_VALUE : getCost(currentVertex, w);
+            for (int j = 0; j < nbUnvisited; j++) {
+                int v = unvisited[j];
+                if (w != v && (w != 0 || v % 2 == 0) && li > getCost(v, w)) li = getCost(v, w);
+            }
+            sumIn += li;
+        }
+        return Math.max(l + sumOut, sumIn);
     }
 
 }
@@ -6,34 +6,170 @@
 
 package com.pld.agile.utils.tsp;
 
-import com.pld.agile.utils.observer.Observable;
-import com.pld.agile.utils.observer.UpdateType;
-import javafx.application.Platform;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import java.util.*;
+/**
+ * Template of a branch and bound algorithm for the TSP with pickup before delivery.
+ * The search only works on primitive arrays: the costs of <code>g</code> are copied in a CostMatrix,
+ * the partial tour and the visited vertices are arrays updated in place, the unvisited vertices
+ * are kept in an array where removing and restoring a vertex is O(1), and the candidates of each
+ * depth are iterated by a SeqIter allocated once over the successors of each vertex sorted once.
+ * The first incumbent is a tour built by CheapestInsertion and improved by a LocalSearch, so that the
+ * search prunes from its first node and a tour is published as soon as the search starts.
+ * With a parallelism above 1, the subtrees rooted at depth SPLIT_DEPTH are searched by the tasks of a
+ * ForkJoinPool, each with its own SearchState. The cost of the best solution is shared by all the tasks
+ * to prune their subtrees, and a better solution is published under a lock. The observers of the
+ * SolutionPublisher of the solver receive the intermediary solutions, at a limited rate.
+ * With TimeWindows, a partial tour is cut as soon as its last vertex is served after its latest time, or an
+ * unvisited vertex (or the warehouse, for the return) cannot be reached before its latest time even directly
+ * (the costs being shortest paths).
+ * If no tour respecting them is found, the tour of the seed is published (see searchSolution).
+ */
+public abstract class TemplateTSP implements TSP {
+	/**
+	 * Number of search nodes explored between two checks of the time limit and of the cancellation.
+	 */
+	private static final int TIME_CHECK_PERIOD = 1024;
+	/**
+	 * Depth of the roots of the subtrees searched by parallel tasks.
+	 */
+	private static final int SPLIT_DEPTH = 3;
+	/**
+	 * Largest number of states stored by the transposition table of each thread.
+	 */
+	private static final int TRANSPOSITION_TABLE_CAPACITY = 1 << 18;
 
-public abstract class TemplateTSP extends Observable implements TSP {
-	private Integer[] bestSol;
+	/**
+	 * Vertices of the best solution found, replaced (not modified) when a better one is found.
+	 */
+	private volatile int[] bestSol;
 	protected Graph g;
-	private double bestSolCost;
+	/**
+	 * Cost of the best solution found, read by all the tasks and written under solutionLock.
+	 */
+	private volatile double bestSolCost;
 	private int timeLimit;
 	private long startTime;
+	/**
+	 * Number of vertices of <code>g</code>.
+	 */
+	protected int nbVertices;
+	/**
+	 * Costs of <code>g</code>.
+	 */
+	private CostMatrix costs;
+	/**
+	 * The other vertices sorted by increasing cost from each vertex (index = vertex).
+	 */
+	private int[][] sortedSuccessors;
+	/**
+	 * Bound of the search maintained by each search state, null if bound() is called at each node.
+	 */
+	private IncrementalBound incrementalBound;
+	/**
+	 * Transposition table of each thread of the search, null if <code>g</code> has too many vertices for
+	 * the visited ones to be a bitmask.
+	 */
+	private ThreadLocal<TranspositionTable> transpositionTables;
+	/**
+	 * Number of threads searching at the same time.
+	 */
+	private int parallelism = 1;
+	/**
+	 * Lock under which a better solution is published.
+	 */
+	private final Object solutionLock = new Object();
+	/**
+	 * Number of search nodes explored by the last search.
+	 */
+	private long nbExploredNodes;
+	/**
+	 * Whether the last search has reached its time limit or has been cancelled.
+	 */
+	private volatile boolean searchStopped;
+	/**
+	 * The token cancelling the search, checked with the time limit.
+	 */
+	private CancellationToken cancellation = new CancellationToken();
+	/**
+	 * Delivers the intermediary solutions to the observers.
+	 */
+	private final SolutionPublisher publisher = new SolutionPublisher();
+	/**
+	 * Whether the last search has explored the whole tree and found a tour respecting the time windows.
+	 */
+	private boolean optimal;
+	/**
+	 * The time windows the tours must respect, null if there are none.
+	 */
+	private TimeWindows timeWindows;
 
+	/**
+	 * Searches the tour of lowest cost respecting the time windows, if any. When no such tour is found,
+	 * the tour built by cheapest insertion and improved without time windows is published, so that
+	 * a tour is always computed, some of its vertices being served late.
+	 */
 	public void searchSolution(int timeLimit, Graph g) {
 
 		if (timeLimit <= 0) return;
 		startTime = System.currentTimeMillis();
 		this.timeLimit = timeLimit;
 		this.g = g;
-		bestSol = new Integer[g.getNbVertices()];
-		Collection<Integer> unvisited = new ArrayList<Integer>(g.getNbVertices()-1);
-		for (int i = 1; i < g.getNbVertices(); i++) {
-			unvisited.add(i);
+		nbVertices = g.getNbVertices();
+		costs = new CostMatrix(g);
+		sortedSuccessors = new int[nbVertices][];
+		for (int i = 0; i < nbVertices; i++) {
+			int vertex = i;
+			sortedSuccessors[i] = costs.sortOthers(i, (a, b) -> Double.compare(getCost(vertex, a), getCost(vertex, b)));
 		}
-		Collection<Integer> visited = new ArrayList<Integer>(g.getNbVertices());
-		visited.add(0); // The first visited vertex is 0
+		incrementalBound = createIncrementalBound();
+		// Reaching a state at a lower cost but a later time does not dominate it with time windows
+		transpositionTables = nbVertices > Long.SIZE || timeWindows != null ? null
+				: ThreadLocal.withInitial(() -> new TranspositionTable(transpositionTableCapacity(nbVertices)));
+		int[] noSolution = new int[nbVertices];
+		Arrays.fill(noSolution, -1);
+		bestSol = noSolution;
 		bestSolCost = Integer.MAX_VALUE;
-		branchAndBound(0, unvisited, visited, 0);
+		nbExploredNodes = 0;
+		searchStopped = false;
+		optimal = false;
+		publisher.open();
+
+		// The first incumbent, published before the search starts, is built by cheapest insertion
+		// and improved by a local search: the branch and bound only looks for better tours
+		int[] seed = new CheapestInsertion(g).buildTour();
+		LocalSearch localSearch = new LocalSearch(g, timeWindows);
+		boolean feasibleSeed = timeWindows == null || timeWindows.isFeasible(seed, g);
+		if (feasibleSeed) {
+			localSearch.improve(seed);
+			publishSolution(seed, localSearch.getCost(seed));
+		}
+
+		int[] start = {0}; // The first visited vertex is 0
+		if (parallelism <= 1) {
+			SearchState state = new SearchState(start);
+			state.branchAndBound(0, 0, 0);
+			nbExploredNodes = state.nbExploredNodes;
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.invoke(new SearchTask(start, 0));
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		optimal = !searchStopped && bestSolCost != Integer.MAX_VALUE;
+		if (!feasibleSeed && bestSolCost == Integer.MAX_VALUE) {
+			LocalSearch withoutTimeWindows = new LocalSearch(g);
+			withoutTimeWindows.improve(seed);
+			publishSolution(seed, withoutTimeWindows.getCost(seed));
+		}
+		publisher.close();
 	}
 
 	public Integer getSolution(int i) {
@@ -49,53 +185,408 @@ public abstract class TemplateTSP extends Observable implements TSP {
 	}
 
 	/**
-	 * Method that must be defined in TemplateTSP subclasses
+	 * @return true if the last search has explored the whole tree before its time limit
+	 * (and found a tour respecting the time windows)
+	 */
+	@Override
+	public boolean isSolutionOptimal() {
+		return optimal;
+	}
+
+	/**
+	 * @return the publisher of the intermediary solutions, whose observers are notified of them
+	 */
+	public SolutionPublisher getPublisher() {
+		return publisher;
+	}
+
+	/**
+	 * @return the number of threads searching at the same time
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @param parallelism the number of threads searching at the same time (at least 1)
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	@Override
+	public void setCancellationToken(CancellationToken cancellation) {
+		this.cancellation = cancellation;
+	}
+
+	/**
+	 * @return the time windows the tours must respect, null if there are none
+	 */
+	public TimeWindows getTimeWindows() {
+		return timeWindows;
+	}
+
+	/**
+	 * @param timeWindows the time windows the tours must respect, null if there are none
+	 */
+	public void setTimeWindows(TimeWindows timeWindows) {
+		this.timeWindows = timeWindows;
+	}
+
+	/**
+	 * @return the number of nodes of the search tree explored by the last search
+	 */
+	public long getNbExploredNodes() {
+		return nbExploredNodes;
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @return the cost of arc (i,j) in the graph of the current search
+	 */
+	protected double getCost(int i, int j) {
+		return costs.getCost(i, j);
+	}
+
+	/**
+	 * Method that must be defined in TemplateTSP subclasses, it may be called by several threads at the same time
 	 * @param currentVertex
-	 * @param unvisited
+	 * @param unvisited array whose first <code>nbUnvisited</code> elements are the unvisited vertices
+	 * @param nbUnvisited
 	 * @return a lower bound of the cost of paths in <code>g</code> starting from <code>currentVertex</code>, visiting
 	 * every vertex in <code>unvisited</code> exactly once, and returning back to vertex <code>0</code>.
 	 */
-	protected abstract double bound(Integer currentVertex, Collection<Integer> unvisited);
+	protected abstract double bound(int currentVertex, int[] unvisited, int nbUnvisited);
 
 	/**
-	 * Method that must be defined in TemplateTSP subclasses
-	 * @param currentVertex
-	 * @param unvisited
-	 * @param g
-	 * @return an iterator for visiting all vertices in <code>unvisited</code> which are successors of <code>currentVertex</code>
-	 */
-	protected abstract Iterator<Integer> iterator(Integer currentVertex, Collection<Integer> unvisited, Graph g);
-
-	/**
-	 * Template method of a branch and bound algorithm for solving the TSP in <code>g</code>.
-	 * @param currentVertex the last visited vertex
-	 * @param unvisited the set of vertex that have not yet been visited
-	 * @param visited the sequence of vertices that have been already visited (including currentVertex)
-	 * @param currentCost the cost of the path corresponding to <code>visited</code>
-	 */
-	private void branchAndBound(int currentVertex, Collection<Integer> unvisited,
-			Collection<Integer> visited, double currentCost){
-		if (System.currentTimeMillis() - startTime > timeLimit) return;
-	    if (unvisited.size() == 0){
-	    	if (g.isArc(currentVertex,0)){
-	    		if (currentCost+g.getPath(currentVertex,0).getLength() < bestSolCost){
-	    			visited.toArray(bestSol);
-	    			bestSolCost = currentCost+g.getPath(currentVertex,0).getLength();
-					Platform.runLater(() -> notifyObservers(UpdateType.INTERMEDIARY_TSP));
-	    		}
-	    	}
-	    } else if (currentCost+bound(currentVertex,unvisited) < bestSolCost){
-	        Iterator<Integer> it = iterator(currentVertex, unvisited, g);
-	        while (it.hasNext()){
-	        	Integer nextVertex = it.next();
-	        	visited.add(nextVertex);
-	            unvisited.remove(nextVertex);
-	            branchAndBound(nextVertex, unvisited, visited,
-	            		currentCost+g.getPath(currentVertex, nextVertex).getLength());
-	            visited.remove(nextVertex);
-	            unvisited.add(nextVertex);
-
-	        }
-	    }
+	 * Method that may be overridden in TemplateTSP subclasses whose bound can be updated as vertices are visited,
+	 * instead of being computed by <code>bound</code> at each node. It is called once per search, when the costs
+	 * of <code>g</code> are known.
+	 * @return the bound of the partial tour only containing vertex 0, from which the bound of each search state
+	 * is created, or null to call <code>bound</code> at each node
+	 */
+	protected IncrementalBound createIncrementalBound() {
+		return null;
+	}
+
+	/**
+	 * Replaces the best solution if the given tour is cheaper, and offers it to the publisher.
+	 * @param tour the vertices of a complete tour
+	 * @param cost the cost of the tour
+	 */
+	private void publishSolution(int[] tour, double cost) {
+		synchronized (solutionLock) {
+			if (cost >= bestSolCost) {
+				return;
+			}
+			bestSol = tour.clone();
+			bestSolCost = cost;
+			// Offered under the lock, so that the pending solution is always the best one
+			publisher.offer(bestSol, cost);
+		}
+	}
+
+	/**
+	 * Adds the nodes explored by a finished task to the count of the search.
+	 * @param nbNodes the number of nodes explored by the task
+	 */
+	private synchronized void addExploredNodes(long nbNodes) {
+		nbExploredNodes += nbNodes;
+	}
+
+	/**
+	 * @param nbVertices the number of vertices of the graph
+	 * @return the number of states stored by the transposition table of each thread: at most the number of states
+	 * a partial tour can reach, each request being either not started, picked up or delivered (3^r visited sets
+	 * for r requests, with one of the n vertices as current vertex), and at most TRANSPOSITION_TABLE_CAPACITY
+	 */
+	static int transpositionTableCapacity(int nbVertices) {
+		long nbStates = nbVertices;
+		for (int request = 0; request < (nbVertices - 1) / 2 && nbStates < TRANSPOSITION_TABLE_CAPACITY; request++) {
+			nbStates *= 3;
+		}
+		return (int) Math.min(nbStates, TRANSPOSITION_TABLE_CAPACITY);
+	}
+
+	/**
+	 * The partial tour explored by one thread, and the structures it updates in place.
+	 */
+	private class SearchState {
+		/**
+		 * Vertices visited by the partial tour (index = vertex).
+		 */
+		private final boolean[] visited;
+		/**
+		 * The partial tour, its first <code>depth + 1</code> vertices being meaningful.
+		 */
+		private final int[] tour;
+		/**
+		 * The unvisited vertices, the first <code>nbUnvisited</code> being meaningful.
+		 */
+		private final int[] unvisited;
+		/**
+		 * Number of unvisited vertices.
+		 */
+		private int nbUnvisited;
+		/**
+		 * Position of each vertex in <code>unvisited</code>, kept after its removal to restore it there.
+		 */
+		private final int[] unvisitedPositions;
+		/**
+		 * Candidate iterator of each depth of the search tree.
+		 */
+		private final SeqIter[] iterators;
+		/**
+		 * Bound of this state, null if bound() is called at each node.
+		 */
+		private final IncrementalBound stateBound;
+		/**
+		 * Transposition table of the thread of this state, null if it is not used.
+		 */
+		private final TranspositionTable transpositionTable;
+		/**
+		 * The visited vertices, bit i being set if vertex i is visited (if <code>g</code> has at most 64 vertices).
+		 */
+		private long visitedMask;
+		/**
+		 * Service time of the vertex at each depth of the partial tour (with time windows).
+		 */
+		private final long[] serviceTimes;
+		/**
+		 * Number of search nodes explored from this state.
+		 */
+		private long nbExploredNodes;
+
+		/**
+		 * Create the state of the partial tour <code>prefix</code>.
+		 * @param prefix the first vertices of the tour, starting with vertex 0
+		 */
+		SearchState(int[] prefix) {
+			visited = new boolean[nbVertices];
+			tour = new int[nbVertices];
+			unvisited = new int[nbVertices];
+			unvisitedPositions = new int[nbVertices];
+			nbUnvisited = 0;
+			for (int i = 1; i < nbVertices; i++) {
+				unvisitedPositions[i] = nbUnvisited;
+				unvisited[nbUnvisited++] = i;
+			}
+			serviceTimes = new long[nbVertices];
+			iterators = new SeqIter[nbVertices];
+			for (int i = 0; i < nbVertices; i++) {
+				iterators[i] = new SeqIter(visited);
+			}
+			visited[0] = true;
+			tour[0] = 0;
+			stateBound = incrementalBound == null ? null : incrementalBound.forState(visited);
+			transpositionTable = transpositionTables == null ? null : transpositionTables.get();
+			visitedMask = 1;
+			for (int depth = 1; depth < prefix.length; depth++) {
+				visit(prefix[depth], depth);
+			}
+		}
+
+		/**
+		 * Template method of a branch and bound algorithm for solving the TSP in <code>g</code>.
+		 * The partial tour is <code>tour[0..depth]</code>, the other vertices are in <code>unvisited</code>.
+		 * @param currentVertex the last visited vertex
+		 * @param depth the number of vertices visited before currentVertex
+		 * @param currentCost the cost of the partial tour
+		 */
+		void branchAndBound(int currentVertex, int depth, double currentCost) {
+			if (searchStopped || (++nbExploredNodes % TIME_CHECK_PERIOD == 0
+					&& (System.currentTimeMillis() - startTime > timeLimit || cancellation.isCancelled()))) {
+				searchStopped = true;
+				return;
+			}
+			if (!canMeetTimeWindows(depth)) {
+				return;
+			}
+			if (nbUnvisited == 0) {
+				if (g.isArc(currentVertex, 0)) {
+					double cost = currentCost + getCost(currentVertex, 0);
+					if (cost < bestSolCost) {
+						publishSolution(tour, cost);
+					}
+				}
+			} else if (!isDominated(currentVertex, currentCost)
+					&& currentCost + lowerBound(currentVertex) < bestSolCost) {
+				SeqIter it = iterator(currentVertex, depth);
+				while (it.hasNext()) {
+					int nextVertex = it.nextVertex();
+					visit(nextVertex, depth + 1);
+					branchAndBound(nextVertex, depth + 1, currentCost + getCost(currentVertex, nextVertex));
+					unvisit(nextVertex);
+				}
+			}
+		}
+
+		/**
+		 * @param currentVertex
+		 * @param depth the depth of <code>currentVertex</code> in the search tree, each depth having its own iterator
+		 * @return an iterator over the vertices that can follow <code>currentVertex</code>, by increasing cost from it
+		 */
+		SeqIter iterator(int currentVertex, int depth) {
+			SeqIter it = iterators[depth];
+			it.reset(sortedSuccessors[currentVertex]);
+			return it;
+		}
+
+		/**
+		 * Checks in the transposition table whether the state of the partial tour has already been reached
+		 * at a lower or equal cost, recording the cost otherwise.
+		 * @param currentVertex the last visited vertex
+		 * @param currentCost the cost of the partial tour
+		 * @return whether the partial tour is dominated
+		 */
+		boolean isDominated(int currentVertex, double currentCost) {
+			return transpositionTable != null
+					&& transpositionTable.isDominated(currentVertex, visitedMask, currentCost);
+		}
+
+		/**
+		 * Checks the time windows of the partial tour in O(u): its last vertex must be served in time,
+		 * and every unvisited vertex and the return to vertex 0 must be reachable in time by going there directly.
+		 * @param depth the depth of the last visited vertex
+		 * @return whether the partial tour may be completed into a tour respecting the time windows
+		 */
+		boolean canMeetTimeWindows(int depth) {
+			if (timeWindows == null) {
+				return true;
+			}
+			int currentVertex = tour[depth];
+			if (serviceTimes[depth] > timeWindows.getLatestTime(currentVertex)) {
+				return false;
+			}
+			long departureTime = serviceTimes[depth] + timeWindows.getDuration(currentVertex);
+			if (departureTime + timeWindows.getTravelTime(getCost(currentVertex, 0)) > timeWindows.getLatestTime(0)) {
+				return false;
+			}
+			for (int k = 0; k < nbUnvisited; k++) {
+				int u = unvisited[k];
+				if (departureTime + timeWindows.getTravelTime(getCost(currentVertex, u)) > timeWindows.getLatestTime(u)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @param currentVertex the last visited vertex
+		 * @return a lower bound of the cost of completing the partial tour
+		 */
+		double lowerBound(int currentVertex) {
+			if (stateBound != null) {
+				return stateBound.getBound();
+			}
+			return bound(currentVertex, unvisited, nbUnvisited);
+		}
+
+		/**
+		 * Appends a vertex to the partial tour, in O(1) besides the update of the incremental bound.
+		 * @param vertex the unvisited vertex
+		 * @param depth its position in the tour
+		 */
+		void visit(int vertex, int depth) {
+			tour[depth] = vertex;
+			visited[vertex] = true;
+			visitedMask |= 1L << vertex;
+			int position = unvisitedPositions[vertex];
+			int last = unvisited[--nbUnvisited];
+			unvisited[position] = last;
+			unvisitedPositions[last] = position;
+			if (stateBound != null) {
+				stateBound.visit(vertex, unvisited, nbUnvisited);
+			}
+			if (timeWindows != null) {
+				int previous = tour[depth - 1];
+				long arrivalTime = serviceTimes[depth - 1] + timeWindows.getDuration(previous)
+						+ timeWindows.getTravelTime(getCost(previous, vertex));
+				serviceTimes[depth] = timeWindows.getServiceTime(vertex, arrivalTime);
+			}
+		}
+
+		/**
+		 * Removes the last vertex of the partial tour, in O(1) besides the update of the incremental bound. The vertices must be removed
+		 * in the reverse order of their visit, so that <code>unvisited</code> is restored as it was.
+		 * @param vertex the last visited vertex
+		 */
+		void unvisit(int vertex) {
+			visited[vertex] = false;
+			visitedMask &= ~(1L << vertex);
+			int position = unvisitedPositions[vertex];
+			int moved = unvisited[position];
+			unvisited[nbUnvisited] = moved;
+			unvisitedPositions[moved] = nbUnvisited;
+			unvisited[position] = vertex;
+			nbUnvisited++;
+			if (stateBound != null) {
+				stateBound.unvisit(vertex);
+			}
+		}
+	}
+
+	/**
+	 * Task searching the subtree of a partial tour: above SPLIT_DEPTH, it forks one task per candidate,
+	 * otherwise it runs the sequential branch and bound.
+	 */
+	private class SearchTask extends RecursiveAction {
+		/**
+		 * Serialization version, the tasks are never serialized.
+		 */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The partial tour at the root of the subtree.
+		 */
+		private final int[] prefix;
+		/**
+		 * The cost of the partial tour.
+		 */
+		private final double prefixCost;
+
+		/**
+		 * @param prefix the partial tour at the root of the subtree
+		 * @param prefixCost the cost of the partial tour
+		 */
+		SearchTask(int[] prefix, double prefixCost) {
+			this.prefix = prefix;
+			this.prefixCost = prefixCost;
+		}
+
+		@Override
+		protected void compute() {
+			if (searchStopped) {
+				return;
+			}
+			SearchState state = new SearchState(prefix);
+			int depth = prefix.length - 1;
+			int currentVertex = prefix[depth];
+			if (depth >= SPLIT_DEPTH || state.nbUnvisited == 0) {
+				state.branchAndBound(currentVertex, depth, prefixCost);
+				addExploredNodes(state.nbExploredNodes);
+				return;
+			}
+			addExploredNodes(1);
+			if (!state.canMeetTimeWindows(depth) || prefixCost + state.lowerBound(currentVertex) >= bestSolCost) {
+				return;
+			}
+			List<SearchTask> subtasks = new ArrayList<>();
+			SeqIter it = state.iterator(currentVertex, depth);
+			while (it.hasNext()) {
+				int nextVertex = it.nextVertex();
+				int[] childPrefix = Arrays.copyOf(prefix, prefix.length + 1);
+				childPrefix[prefix.length] = nextVertex;
+				subtasks.add(new SearchTask(childPrefix, prefixCost + getCost(currentVertex, nextVertex)));
+			}
+			// Forked in reverse order so that the owner thread runs the cheapest candidates first,
+			// the other threads stealing the most expensive ones
+			for (int i = subtasks.size() - 1; i >= 0; i--) {
+				subtasks.get(i).fork();
+			}
+			for (SearchTask subtask : subtasks) {
+				subtask.join();
+			}
+		}
 	}
 }
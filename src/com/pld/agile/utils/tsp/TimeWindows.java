@@ -0,0 +1,138 @@
+/*
+ * TimeWindows
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+/**
+ * Time windows of the vertices of a graph, with the same vertex numbering as the TSP solvers: vertex 0 is the
+ * warehouse, left at time 0. The times are in seconds since the departure: the cost of an arc being a length,
+ * it is travelled in cost / speed + 1 seconds (the whole number of seconds used by the timing of the tour),
+ * and each vertex is served during its duration, at the earliest at its earliest time (the vehicle waits
+ * if it arrives before it) and at the latest at its latest time. The latest time of vertex 0 is the latest time
+ * of the return to the warehouse.
+ */
+public class TimeWindows {
+
+    /**
+     * Latest time of a vertex without latest time.
+     */
+    public static final long NO_LATEST_TIME = Long.MAX_VALUE / 4;
+
+    /**
+     * Earliest time of each vertex (index = vertex).
+     */
+    private final long[] earliestTimes;
+    /**
+     * Latest time of each vertex (index = vertex).
+     */
+    private final long[] latestTimes;
+    /**
+     * Service duration of each vertex (index = vertex).
+     */
+    private final long[] durations;
+    /**
+     * Speed at which the arcs are travelled, in cost units per second.
+     */
+    private final double speed;
+
+    /**
+     * TimeWindows constructor.
+     * @param earliestTimes the earliest time of each vertex, 0 if it has none
+     * @param latestTimes the latest time of each vertex (the latest return for vertex 0), NO_LATEST_TIME if it has none
+     * @param durations the service duration of each vertex
+     * @param speed the speed at which the arcs are travelled, in cost units per second
+     */
+    public TimeWindows(long[] earliestTimes, long[] latestTimes, long[] durations, double speed) {
+        this.earliestTimes = earliestTimes;
+        this.latestTimes = latestTimes;
+        this.durations = durations;
+        this.speed = speed;
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int getNbVertices() {
+        return durations.length;
+    }
+
+    /**
+     * @param vertex
+     * @return the earliest time of the vertex
+     */
+    public long getEarliestTime(int vertex) {
+        return earliestTimes[vertex];
+    }
+
+    /**
+     * @param vertex
+     * @return the latest time of the vertex
+     */
+    public long getLatestTime(int vertex) {
+        return latestTimes[vertex];
+    }
+
+    /**
+     * @param vertex
+     * @return the service duration of the vertex
+     */
+    public long getDuration(int vertex) {
+        return durations[vertex];
+    }
+
+    /**
+     * @param cost the cost of an arc
+     * @return the time taken to travel the arc
+     */
+    public long getTravelTime(double cost) {
+        return (long) (cost / speed) + 1;
+    }
+
+    /**
+     * @param vertex
+     * @param arrivalTime the time at which the vehicle arrives at the vertex
+     * @return the time at which the vertex is served, after waiting for its earliest time
+     */
+    public long getServiceTime(int vertex, long arrivalTime) {
+        return Math.max(arrivalTime, earliestTimes[vertex]);
+    }
+
+    /**
+     * @param vertices the kept vertices, starting with vertex 0
+     * @return the time windows of the kept vertices, vertex i being vertices[i]
+     */
+    public TimeWindows restrictedTo(int[] vertices) {
+        long[] keptEarliestTimes = new long[vertices.length];
+        long[] keptLatestTimes = new long[vertices.length];
+        long[] keptDurations = new long[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            keptEarliestTimes[i] = earliestTimes[vertices[i]];
+            keptLatestTimes[i] = latestTimes[vertices[i]];
+            keptDurations[i] = durations[vertices[i]];
+        }
+        return new TimeWindows(keptEarliestTimes, keptLatestTimes, keptDurations, speed);
+    }
+
+    /**
+     * @param tour the vertices of a tour, starting with vertex 0
+     * @param g the graph of the tour
+     * @return whether every vertex of the tour is served before its latest time, and the tour returns to
+     * vertex 0 before its latest time
+     */
+    public boolean isFeasible(int[] tour, Graph g) {
+        long time = durations[tour[0]];
+        for (int i = 1; i < tour.length; i++) {
+            long serviceTime = getServiceTime(tour[i], time + getTravelTime(g.getCost(tour[i - 1], tour[i])));
+            if (serviceTime > latestTimes[tour[i]]) {
+                return false;
+            }
+            time = serviceTime + durations[tour[i]];
+        }
+        return tour.length == 1
+                || time + getTravelTime(g.getCost(tour[tour.length - 1], tour[0])) <= latestTimes[tour[0]];
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * TranspositionTable
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import java.util.Arrays;
+
+/**
+ * Table of the lowest cost at which a branch and bound search has reached each state, a state being the current
+ * vertex and the set of visited vertices (a bitmask, so at most 64 vertices). All the completions of a partial
+ * tour only depend on its state, so a partial tour reaching a state already reached at a lower or equal cost
+ * is dominated: its subtree cannot hold a better tour than the one already searched.
+ * The size of the table is bounded: each state is stored in one of the WAYS slots of a bucket chosen by hashing,
+ * and when they are all used, the least recently used one is replaced.
+ */
+public class TranspositionTable {
+
+    /**
+     * Number of slots of a bucket.
+     */
+    private static final int WAYS = 4;
+
+    /**
+     * Visited vertices of the state of each slot.
+     */
+    private final long[] visitedMasks;
+    /**
+     * Current vertex of the state of each slot, -1 if the slot is empty.
+     */
+    private final int[] vertices;
+    /**
+     * Lowest cost at which the state of each slot has been reached.
+     */
+    private final double[] costs;
+    /**
+     * Time of the last use of each slot.
+     */
+    private final long[] lastUses;
+    /**
+     * Number of buckets minus one, the number of buckets being a power of 2.
+     */
+    private final int bucketMask;
+    /**
+     * Number of lookups so far, used as the time of the last use of the slots.
+     */
+    private long clock;
+
+    /**
+     * TranspositionTable constructor.
+     * @param capacity the largest number of stored states, rounded up to a power of 2 (at least WAYS)
+     */
+    public TranspositionTable(int capacity) {
+        int nbBuckets = 1;
+        while (nbBuckets * WAYS < capacity) {
+            nbBuckets *= 2;
+        }
+        bucketMask = nbBuckets - 1;
+        visitedMasks = new long[nbBuckets * WAYS];
+        vertices = new int[nbBuckets * WAYS];
+        costs = new double[nbBuckets * WAYS];
+        lastUses = new long[nbBuckets * WAYS];
+        Arrays.fill(vertices, -1);
+    }
+
+    /**
+     * Checks whether a state has already been reached at a lower or equal cost, and otherwise records the cost.
+     * @param vertex the current vertex
+     * @param visitedMask the visited vertices, bit i being set if vertex i is visited
+     * @param cost the cost of the partial tour
+     * @return whether the partial tour is dominated
+     */
+    public boolean isDominated(int vertex, long visitedMask, double cost) {
+        clock++;
+        long hash = (visitedMask ^ vertex * 0x9E3779B97F4A7C15L) * 0xC2B2AE3D27D4EB4FL;
+        int first = ((int) (hash >>> 32) & bucketMask) * WAYS;
+        int replaced = first;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (vertices[slot] == vertex && visitedMasks[slot] == visitedMask) {
+                lastUses[slot] = clock;
+                if (costs[slot] <= cost) {
+                    return true;
+                }
+                costs[slot] = cost;
+                return false;
+            }
+            // An empty slot has never been used
+            if (lastUses[slot] < lastUses[replaced]) {
+                replaced = slot;
+            }
+        }
+        visitedMasks[replaced] = visitedMask;
+        vertices[replaced] = vertex;
+        costs[replaced] = cost;
+        lastUses[replaced] = clock;
+        return false;
+    }
+
+}
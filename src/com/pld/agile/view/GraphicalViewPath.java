@@ -49,6 +49,22 @@ public class GraphicalViewPath extends Polyline {
                              final Path path,
                              final double strokeWidth,
                              final boolean finished) {
+        this(graphicalView, path, strokeWidth, finished, true);
+    }
+
+    /**
+     * GraphicalViewPath constructor, for a path of the tour of one of several couriers.
+     * @param graphicalView The parent GraphicalView instance.
+     * @param path The associated Path model object.
+     * @param strokeWidth The path's line thickness.
+     * @param finished Whether the path is final or an intermediary result.
+     * @param selected Whether the path is in the tour of the selected courier (the others being greyed).
+     */
+    public GraphicalViewPath(final GraphicalView graphicalView,
+                             final Path path,
+                             final double strokeWidth,
+                             final boolean finished,
+                             final boolean selected) {
         super();
         this.graphicalView = graphicalView;
         int count = 0;
@@ -67,7 +83,10 @@ public class GraphicalViewPath extends Polyline {
             this.getPoints().addAll(destinationPos[0], destinationPos[1]);
             count++;
         }
-        if (finished) {
+        if (!selected) {
+            colour1 = ViewUtilities.COLOURS.get("GREY");
+            colour2 = ViewUtilities.COLOURS.get("TURQUOISE");
+        } else if (finished) {
             colour1 = ViewUtilities.COLOURS.get("DARK_ORANGE");
             colour2 = ViewUtilities.COLOURS.get("BLUE");
         } else {
@@ -7,6 +7,7 @@ import com.pld.agile.model.tour.TourData;
 import com.pld.agile.utils.view.MouseClickNotDragDetector;
 import com.pld.agile.utils.view.ViewUtilities;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 
 import java.util.List;
@@ -51,6 +52,8 @@ public class GraphicalViewTourLayer extends Pane {
 
     /**
      * Draws the tour trace, by populating the pane with graphical segments.
+     * With several couriers, the tours of the other couriers are drawn greyed under the selected one,
+     * and clicking on one of them selects its courier.
      * @param finished whether the traced tour is an intermediary tour or a final one.
      */
     public void draw(boolean finished) {
@@ -69,18 +72,38 @@ public class GraphicalViewTourLayer extends Pane {
                 1.25, 0.75
         );
 
-        List<Path> tourPaths = tourData.getTourPaths();
+        List<List<Path>> courierTours = tourData.getCourierTours();
 
         this.getChildren().clear();
 
+        for (int courier = 0; courier < courierTours.size(); courier++) {
+            if (courier != tourData.getSelectedCourier()) {
+                drawTour(courierTours.get(courier), courier, 6 * screenScale * mapScale, finished, false);
+            }
+        }
+        drawTour(tourData.getTourPaths(), tourData.getSelectedCourier(), 6 * screenScale * mapScale, finished, true);
+
+    }
+
+    /**
+     * Draws the trace of the tour of a courier.
+     * @param tourPaths the Paths composing the tour
+     * @param courier the index of the courier
+     * @param strokeWidth the paths' line thickness
+     * @param finished whether the traced tour is an intermediary tour or a final one
+     * @param selected whether the courier is the selected one
+     */
+    private void drawTour(List<Path> tourPaths, int courier, double strokeWidth, boolean finished, boolean selected) {
+
         for (Path path : tourPaths) {
 
             // Create path
             GraphicalViewPath graphicalViewPath = new GraphicalViewPath(
                 graphicalView,
                 path,
-                6 * screenScale * mapScale,
-                finished
+                strokeWidth,
+                finished,
+                selected
             );
             this.getChildren().add(graphicalViewPath);
 
@@ -95,10 +118,16 @@ public class GraphicalViewTourLayer extends Pane {
                 GraphicalViewSegment hitboxSegment = new GraphicalViewSegment(
                         graphicalView,
                         segment,
-                        6 * screenScale * mapScale,
+                        strokeWidth,
                         graphicalViewPath,
                         graphicalView.getWindow().getStreetNameLabel()
                 );
+                if (!selected) {
+                    hitboxSegment.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+                        graphicalView.getWindow().getController().selectCourier(courier);
+                        e.consume();
+                    });
+                }
                 this.getChildren().add(hitboxSegment);
 
             }
@@ -155,6 +155,11 @@ public class TextualViewStop extends VBox {
                         hourSeparatorText,
                         arrivalHourInput
                 );
+                // Back after the end of the shift, when no tour meets all the time windows
+                LocalTime shiftEndTime = parent.getWindow().getTourData().getShiftEndTime();
+                if (arrivalTime != null && shiftEndTime != null && arrivalTime.isAfter(shiftEndTime)) {
+                    labelPanel.getChildren().addAll(lateText(shiftEndTime));
+                }
             } else {
                 LocalTime warehouseDepartureTime =
                         parent.getWindow().getTourData().getDepartureTime();
@@ -181,6 +186,10 @@ public class TextualViewStop extends VBox {
                 Text arrivalHourText = new Text(arrivalTimeString);
                 arrivalHourText.getStyleClass().add("textual-view-stop-panel-hour");
                 labelPanel.getChildren().addAll(arrivalHourText);
+                // Served after its latest time, when no tour meets all the time windows
+                if (stop.isLate()) {
+                    labelPanel.getChildren().addAll(lateText(stop.getLatestTime()));
+                }
             }
         }
         labelPanel.setAlignment(Pos.CENTER_LEFT);
@@ -310,6 +319,18 @@ public class TextualViewStop extends VBox {
 
     }
 
+    /**
+     * Creates the text warning that a stop is served too late.
+     * @param latestTime The time before which the stop should have been served.
+     * @return The warning text.
+     */
+    private Text lateText(LocalTime latestTime) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+        Text lateText = new Text("late (due " + formatter.format(latestTime) + ")");
+        lateText.getStyleClass().add("textual-view-stop-panel-late");
+        return lateText;
+    }
+
     /**
      * Getter for attribute highlightLevel.
      * @return highlightLevel
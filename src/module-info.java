@@ -7,6 +7,7 @@ module com.pld.agile {
     exports com.pld.agile.model.tour;
     exports com.pld.agile.utils.observer;
     exports com.pld.agile.utils.parsing;
+    exports com.pld.agile.utils.routing;
     exports com.pld.agile.utils.tsp;
     exports com.pld.agile.utils.view;
     exports com.pld.agile.view;
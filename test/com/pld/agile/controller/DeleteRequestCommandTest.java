@@ -0,0 +1,99 @@
+/*
+ * DeleteRequestCommandTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.controller;
+
+import com.pld.agile.model.map.MapData;
+import com.pld.agile.model.tour.Path;
+import com.pld.agile.model.tour.Stop;
+import com.pld.agile.model.tour.TourData;
+import com.pld.agile.utils.parsing.MapLoader;
+import com.pld.agile.utils.parsing.RequestLoader;
+import com.pld.agile.utils.routing.StopsGraphBuilder;
+import com.pld.agile.utils.tsp.CompleteGraph;
+import com.pld.agile.utils.tsp.FleetSolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeleteRequestCommandTest {
+    private final MapData mapData = new MapData();
+    private final TourData tourData = new TourData();
+    private CompleteGraph graph;
+
+    @BeforeEach
+    public void loadTour() throws Exception {
+        new MapLoader("test/resources/loadMap_loadRequestsBase.xml", mapData).load();
+        tourData.setAssociatedMap(mapData);
+        new RequestLoader("test/resources/computeTour_notOptimalTour.xml", tourData).load();
+        StopsGraphBuilder builder = new StopsGraphBuilder(mapData, 1);
+        graph = builder.build(tourData.getStopsList());
+        builder.shutdown();
+        tourData.setStopsGraph(graph);
+    }
+
+    private void setTour(int... order) {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < order.length; i++) {
+            paths.add(graph.getPath(order[i], order[(i + 1) % order.length]));
+        }
+        tourData.setTourPaths(paths);
+    }
+
+    @Test
+    public void testUndoRestoresTourOrder() {
+        // An order the local search run after the deletion improves
+        setTour(0, 3, 1, 4, 5, 2, 6);
+        List<Stop> tourStops = tourData.getTourStops();
+        Stop deletedPickup = tourData.getStopsList().get(1);
+
+        ListOfCommands commands = new ListOfCommands();
+        commands.add(new DeleteRequestCommand(tourData, deletedPickup.getRequest()));
+        assertEquals(5, tourData.getStopsList().size());
+        assertFalse(tourData.getTourStops().contains(deletedPickup));
+        List<Stop> deletedTourStops = tourData.getTourStops();
+
+        commands.undo();
+        assertEquals(7, tourData.getStopsList().size());
+        assertEquals(tourStops, tourData.getTourStops());
+        List<Path> tourPaths = tourData.getTourPaths();
+        for (int i = 0; i < tourPaths.size(); i++) {
+            assertSame(tourPaths.get(i).getDestination(), tourPaths.get((i + 1) % tourPaths.size()).getOrigin());
+        }
+
+        // Redoing gives the same tour as the first deletion
+        commands.redo();
+        assertEquals(deletedTourStops, tourData.getTourStops());
+    }
+
+    @Test
+    public void testUndoInCourierTour() {
+        FleetSolver solver = new FleetSolver(graph, 2);
+        solver.searchSolution(1000);
+        tourData.processFleetSolution(solver);
+        List<List<Path>> courierTours = tourData.getCourierTours();
+        int courier = courierTours.get(1).size() > 1 ? 1 : 0;
+        int other = 1 - courier;
+        tourData.selectCourier(courier);
+        List<Stop> tourStops = tourData.getTourStops();
+        List<Path> otherTour = new ArrayList<>(courierTours.get(other));
+
+        ListOfCommands commands = new ListOfCommands();
+        commands.add(new DeleteRequestCommand(tourData, tourStops.get(1).getRequest()));
+
+        // The request goes back to its courier, even if the tour of the other one is selected
+        tourData.selectCourier(other);
+        commands.undo();
+        assertEquals(courier, tourData.getSelectedCourier());
+        assertEquals(tourStops, tourData.getTourStops());
+        assertEquals(otherTour, courierTours.get(other));
+    }
+
+}
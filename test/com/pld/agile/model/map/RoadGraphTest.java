@@ -0,0 +1,56 @@
+/*
+ * RoadGraphTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.model.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RoadGraphTest {
+
+    @Test
+    public void testRoadGraph() {
+        Intersection.resetIdCounter();
+        List<Intersection> intersections = new ArrayList<>();
+        Intersection inter0 = new Intersection(42, 42);
+        intersections.add(inter0);
+        Intersection inter1 = new Intersection(46, 79);
+        intersections.add(inter1);
+        Intersection inter2 = new Intersection(89, 39);
+        intersections.add(inter2);
+
+        List<Segment> segments = new ArrayList<>();
+        segments.add(new Segment("seg0", 40, inter2, inter0));
+        segments.add(new Segment("seg1", 65, inter0, inter2));
+        segments.add(new Segment("seg2", 89, inter0, inter1));
+
+        RoadGraph graph = new MapData(intersections, segments).getRoadGraph();
+
+        assertEquals(3, graph.getNbNodes());
+        assertEquals(3, graph.getNbEdges());
+        // Node 0 has two outgoing edges, in the order of the segments list
+        assertEquals(2, graph.getEndEdge(0) - graph.getFirstEdge(0));
+        assertEquals(2, graph.getTarget(graph.getFirstEdge(0)));
+        assertEquals(1, graph.getTarget(graph.getFirstEdge(0) + 1));
+        // Node 1 has none
+        assertEquals(graph.getFirstEdge(1), graph.getEndEdge(1));
+        int edge = graph.findEdge(2, 0);
+        assertEquals(40, graph.getLength(edge));
+        assertEquals(0, graph.getSegmentIndex(edge));
+        assertEquals(-1, graph.findEdge(1, 0));
+        // Node 2 is entered only by seg1, node 1 only by seg2
+        assertEquals(1, graph.getEndIncoming(2) - graph.getFirstIncoming(2));
+        int incoming = graph.getIncomingEdge(graph.getFirstIncoming(2));
+        assertEquals(0, graph.getOrigin(incoming));
+        assertEquals(1, graph.getSegmentIndex(incoming));
+        assertEquals(2, graph.getSegmentIndex(graph.getIncomingEdge(graph.getFirstIncoming(1))));
+    }
+
+}
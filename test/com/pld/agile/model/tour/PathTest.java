@@ -7,9 +7,14 @@
 package com.pld.agile.model.tour;
 
 import com.pld.agile.model.map.Intersection;
+import com.pld.agile.model.map.Segment;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class PathTest {
 
@@ -24,4 +29,23 @@ public class PathTest {
         assertEquals(destination,path.getDestination());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testLazySegments(){
+        Request request = new Request();
+        Intersection a = new Intersection(45,85);
+        Intersection b = new Intersection(963,98);
+        Path path = new Path(new Stop(request,a,852,StopType.PICKUP),new Stop(request,b,46,StopType.DELIVERY));
+        List<Segment> segments = List.of(new Segment("rue", 10, a, b));
+        AtomicInteger nbCalls = new AtomicInteger();
+        path.setLazySegments(() -> {
+            nbCalls.incrementAndGet();
+            return segments;
+        });
+
+        assertEquals(0,nbCalls.get());
+        assertSame(segments,path.getSegments());
+        assertSame(segments,path.getSegments());
+        assertEquals(1,nbCalls.get());
+    }
+
+}
@@ -9,8 +9,12 @@ package com.pld.agile.model.tour;
 import com.pld.agile.model.map.Intersection;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalTime;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class StopTest {
 
@@ -28,4 +32,23 @@ public class StopTest {
         assertEquals(StopType.PICKUP,stop.getType());
     }
 
+    @Test
+    public void testTimeWindow() {
+        Stop stop = new Stop(new Request(), new Intersection(52,98), 60, StopType.DELIVERY);
+        assertFalse(stop.hasTimeWindow());
+
+        stop.setEarliestTime(LocalTime.of(10, 0));
+        stop.setLatestTime(LocalTime.of(10, 30));
+        assertTrue(stop.hasTimeWindow());
+
+        // Reached early, the stop is served at its earliest time
+        stop.setArrivalTime(LocalTime.of(9, 45));
+        assertEquals(LocalTime.of(10, 0), stop.getServiceTime());
+        assertFalse(stop.isLate());
+
+        stop.setArrivalTime(LocalTime.of(10, 31));
+        assertEquals(LocalTime.of(10, 31), stop.getServiceTime());
+        assertTrue(stop.isLate());
+    }
+
 }
\ No newline at end of file
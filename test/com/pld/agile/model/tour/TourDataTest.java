@@ -10,7 +10,9 @@ import com.pld.agile.model.map.Intersection;
 import com.pld.agile.model.map.MapData;
 import com.pld.agile.utils.parsing.MapLoader;
 import com.pld.agile.utils.parsing.RequestLoader;
+import com.pld.agile.utils.routing.StopsGraphBuilder;
 import com.pld.agile.utils.tsp.CompleteGraph;
+import com.pld.agile.utils.tsp.FleetSolver;
 import com.pld.agile.utils.tsp.Graph;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -78,6 +80,77 @@ public class TourDataTest {
         assertEquals(5,tourData.getStopsList().size());
     }
 
+    @Test
+    public void testDeleteRequestImprovesTour() throws Exception {
+        StopsGraphBuilder builder = new StopsGraphBuilder(mapData, 1);
+        CompleteGraph graph = builder.build(tourData.getStopsList());
+        builder.shutdown();
+        List<Stop> stops = new ArrayList<>(tourData.getStopsList());
+        int[] order = {0, 3, 1, 4, 5, 2, 6};
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < order.length; i++) {
+            paths.add(graph.getPath(order[i], order[(i + 1) % order.length]));
+        }
+        tourData.setStopsGraph(graph);
+        tourData.setTourPaths(paths);
+
+        // Cost of the tour without the first request, in the same order
+        int[] remaining = {0, 3, 4, 5, 6};
+        double stitchedLength = 0;
+        for (int i = 0; i < remaining.length; i++) {
+            stitchedLength += graph.getCost(remaining[i], remaining[(i + 1) % remaining.length]);
+        }
+
+        tourData.deleteRequest(stops.get(1).getRequest());
+        double length = 0;
+        List<Path> tourPaths = tourData.getTourPaths();
+        assertEquals(5, tourPaths.size());
+        for (int i = 0; i < tourPaths.size(); i++) {
+            assertSame(tourPaths.get(i).getDestination(), tourPaths.get((i + 1) % tourPaths.size()).getOrigin());
+            length += tourPaths.get(i).getLength();
+        }
+        assertTrue(length <= stitchedLength + 1e-9);
+    }
+
+    @Test
+    public void testFleet() throws Exception {
+        StopsGraphBuilder builder = new StopsGraphBuilder(mapData, 1);
+        CompleteGraph graph = builder.build(tourData.getStopsList());
+        builder.shutdown();
+        tourData.setStopsGraph(graph);
+        FleetSolver solver = new FleetSolver(graph, 2);
+        solver.searchSolution(1000);
+        tourData.processFleetSolution(solver);
+
+        // Each stop is in the tour of one courier, the first one being selected
+        List<List<Path>> courierTours = tourData.getCourierTours();
+        assertEquals(2, courierTours.size());
+        assertSame(courierTours.get(0), tourData.getTourPaths());
+        List<Stop> visited = new ArrayList<>();
+        for (List<Path> paths : courierTours) {
+            assertSame(tourData.getWarehouse(), paths.get(0).getOrigin());
+            for (Path path : paths) {
+                if (path.getDestination() != tourData.getWarehouse()) {
+                    assertFalse(visited.contains(path.getDestination()));
+                    visited.add(path.getDestination());
+                }
+            }
+        }
+        assertEquals(tourData.getStopsList().size() - 1, visited.size());
+
+        // Deleting a request of the other courier edits its tour only
+        int other = courierTours.get(0).size() > 1 ? 1 : 0;
+        tourData.selectCourier(other);
+        assertSame(courierTours.get(other), tourData.getTourPaths());
+        int courier = 1 - other;
+        List<Path> otherTour = new ArrayList<>(courierTours.get(other));
+        int tourSize = courierTours.get(courier).size();
+        tourData.deleteRequest(courierTours.get(courier).get(0).getDestination().getRequest());
+        assertEquals(courier, tourData.getSelectedCourier());
+        assertEquals(otherTour, courierTours.get(other));
+        assertEquals(tourSize == 3 ? 1 : tourSize - 2, courierTours.get(courier).size());
+    }
+
     @Test
     public void testAddRequest () {
         Intersection pickupAddress = mapData.getIntersections().get(3);
@@ -135,6 +208,26 @@ public class TourDataTest {
 
     }
 
+    @Test
+    public void testMoveStop() throws Exception {
+        Stop stop = tourData.getTourPaths().get(1).getDestination();
+        tourData.moveStop(stop, mapData.getIntersections().get(4));
+        StopsGraphBuilder builder = new StopsGraphBuilder(mapData, 1);
+        CompleteGraph expected = builder.build(tourData.getStopsList());
+        builder.shutdown();
+        assertEquals(expected.getCost(1, 2), tourData.getTourPaths().get(1).getLength(), 1e-9);
+        assertEquals(expected.getCost(2, 3), tourData.getTourPaths().get(2).getLength(), 1e-9);
+
+        // The shift uses paths from the moved stop to stops which were not its neighbours
+        assertTrue(tourData.shiftStopOrder(stop, 1));
+        for (Path path : tourData.getTourPaths()) {
+            if (path.getOrigin() == stop || path.getDestination() == stop) {
+                assertEquals(expected.getCost(path.getOrigin().getId(), path.getDestination().getId()),
+                        path.getLength(), 1e-9);
+            }
+        }
+    }
+
     @Test
     public void testStopComputingTour() {
         TourData tourDataEmpty = new TourData();
@@ -10,6 +10,7 @@ import com.pld.agile.utils.exception.SyntaxException;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -72,6 +73,44 @@ public class RequestLoaderTests {
         assertEquals(stops.toString(),tourData.getStopsList().toString());
     }
 
+    @Test
+    public void testTimeWindows() throws SyntaxException, IOException {
+        loadMap("test/resources/loadRequests_timeWindows.xml");
+        requestLoader.load();
+        List<Stop> stops = tourData.getStopsList();
+
+        assertFalse(stops.get(1).hasTimeWindow());
+        assertNull(stops.get(2).getEarliestTime());
+        assertEquals(LocalTime.of(10, 30), stops.get(2).getLatestTime());
+        assertEquals(LocalTime.of(9, 0), stops.get(3).getEarliestTime());
+        assertEquals(LocalTime.of(9, 30), stops.get(3).getLatestTime());
+        assertFalse(stops.get(4).hasTimeWindow());
+        assertNotNull(tourData.getTimeWindows());
+        assertEquals(3600, tourData.getTimeWindows().getEarliestTime(3));
+    }
+
+    @Test
+    public void testInvalidTimeWindow() {
+        loadMap("test/resources/loadRequests_invalidTimeWindow.xml");
+        assertThrows(SyntaxException.class, requestLoader::load);
+    }
+
+    @Test
+    public void testFleet() throws SyntaxException, IOException {
+        loadMap("test/resources/loadRequests_fleet.xml");
+        requestLoader.load();
+        assertEquals(2, tourData.getNbCouriers());
+        assertEquals(2, tourData.getCourierCapacity());
+        assertEquals(LocalTime.of(12, 0), tourData.getShiftEndTime());
+        assertEquals(4 * 3600, tourData.getTimeWindows().getLatestTime(0));
+    }
+
+    @Test
+    public void testNoCourier() {
+        loadMap("test/resources/loadRequests_noCourier.xml");
+        assertThrows(SyntaxException.class, requestLoader::load);
+    }
+
     @Test
     public void testNotDepotAddress() {
         loadMap("test/resources/loadRequests_notDepotAddress.xml");
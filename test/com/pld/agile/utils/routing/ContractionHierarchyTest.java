@@ -0,0 +1,101 @@
+/*
+ * ContractionHierarchyTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.Intersection;
+import com.pld.agile.model.map.MapData;
+import com.pld.agile.model.map.RoadGraph;
+import com.pld.agile.model.map.Segment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContractionHierarchyTest {
+
+    /**
+     * Builds a grid of streets with random lengths, some of them one-way.
+     */
+    private static MapData grid(int size) {
+        Intersection.resetIdCounter();
+        Random random = new Random(42);
+        List<Intersection> intersections = new ArrayList<>();
+        for (int i = 0; i < size * size; i++) {
+            intersections.add(new Intersection(45.75 + (i / size) * 0.001, 4.85 + (i % size) * 0.001));
+        }
+        List<Segment> segments = new ArrayList<>();
+        for (int i = 0; i < size * size; i++) {
+            int[] neighbours = {i % size + 1 < size ? i + 1 : -1, i + size < size * size ? i + size : -1};
+            for (int j : neighbours) {
+                if (j >= 0) {
+                    double length = 80 + random.nextInt(100);
+                    segments.add(new Segment("street", length, intersections.get(i), intersections.get(j)));
+                    if (random.nextInt(4) != 0) {
+                        segments.add(new Segment("street", length, intersections.get(j), intersections.get(i)));
+                    }
+                }
+            }
+        }
+        return new MapData(intersections, segments);
+    }
+
+    @Test
+    public void testManyToManyMatchesDijkstra() {
+        MapData map = grid(12);
+        RoadGraph graph = map.getRoadGraph();
+        ChSearch search = new ChSearch(new ContractionHierarchy(graph));
+        DijkstraSearch dijkstra = new DijkstraSearch(graph);
+        int[] nodes = {0, 5, 17, 40, 77, 100, 143, 5};
+        Route[][] routes = search.manyToMany(nodes, nodes);
+
+        for (int i = 0; i < nodes.length; i++) {
+            dijkstra.runAll(nodes[i]);
+            for (int j = 0; j < nodes.length; j++) {
+                Route route = routes[i][j];
+                if (dijkstra.getDistance(nodes[j]) == Double.MAX_VALUE) {
+                    assertNull(route);
+                    continue;
+                }
+                assertEquals(dijkstra.getDistance(nodes[j]), route.getLength(), 1e-9);
+                // The unpacked edges are edges of the graph, from the source to the target
+                int node = nodes[i];
+                double length = 0;
+                for (int edge : route.getEdges()) {
+                    assertEquals(node, graph.getOrigin(edge));
+                    node = graph.getTarget(edge);
+                    length += graph.getLength(edge);
+                }
+                assertEquals(nodes[j], node);
+                assertEquals(route.getLength(), length, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testRouterMatchesDijkstra() {
+        MapData map = grid(8);
+        Router router = RoutingMode.CONTRACTION_HIERARCHY.createRouter(map);
+        Router dijkstra = RoutingMode.DIJKSTRA.createRouter(map);
+        int n = map.getRoadGraph().getNbNodes();
+        for (int origin = 0; origin < n; origin += 5) {
+            for (int destination = 0; destination < n; destination += 3) {
+                Route expected = dijkstra.findRoute(origin, destination);
+                Route actual = router.findRoute(origin, destination);
+                if (expected == null) {
+                    assertNull(actual);
+                } else {
+                    assertEquals(expected.getLength(), actual.getLength(), 1e-9);
+                }
+            }
+        }
+        assertSame(map.getContractionHierarchy(), map.getContractionHierarchy());
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * DijkstraSearchTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.MapData;
+import com.pld.agile.model.map.RoadGraph;
+import com.pld.agile.utils.parsing.MapLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DijkstraSearchTest {
+
+    @Test
+    public void testBackwardMatchesForward() throws Exception {
+        MapData mapData = new MapData();
+        new MapLoader("test/resources/loadMap_loadRequestsBase.xml", mapData).load();
+        RoadGraph graph = mapData.getRoadGraph();
+        int n = graph.getNbNodes();
+        int[] allNodes = new int[n];
+        for (int i = 0; i < n; i++) {
+            allNodes[i] = i;
+        }
+
+        DijkstraSearch forward = new DijkstraSearch(graph);
+        DijkstraSearch backward = new DijkstraSearch(graph);
+        int target = n / 2;
+        backward.runBackward(target, allNodes);
+        for (int source = 0; source < n; source++) {
+            forward.run(source, new int[] {target});
+            assertEquals(forward.getDistance(target), backward.getDistance(source), 1e-9);
+            if (source != target && backward.getDistance(source) != Double.MAX_VALUE) {
+                // The successor is one edge closer to the target
+                int successor = backward.getSuccessor(source);
+                int edge = graph.findEdge(source, successor);
+                assertTrue(edge >= 0);
+                assertEquals(backward.getDistance(source),
+                        graph.getLength(edge) + backward.getDistance(successor), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testTreeOfStopsGoals() throws Exception {
+        MapData mapData = new MapData();
+        new MapLoader("src/resources/xml/maps/smallMap.xml", mapData).load();
+        RoadGraph graph = mapData.getRoadGraph();
+        int n = graph.getNbNodes();
+        DijkstraSearch search = new DijkstraSearch(graph);
+        DijkstraSearch reference = new DijkstraSearch(graph);
+
+        for (int source = 0; source < n; source += 37) {
+            // The same intersection may appear several times among the goals
+            int[] goals = {(source + 11) % n, (source + 150) % n, (source + 11) % n, source};
+            search.run(source, goals);
+            reference.runAll(source);
+            assertTrue(search.getNbSettledNodes() <= reference.getNbSettledNodes());
+
+            for (int goal : goals) {
+                assertEquals(reference.getDistance(goal), search.getDistance(goal), 1e-9);
+            }
+            if (Arrays.stream(goals).anyMatch(goal -> search.getDistance(goal) == Double.MAX_VALUE)) {
+                continue;
+            }
+            SearchTree tree = search.getTree(goals);
+            for (int goal : goals) {
+                int node = source;
+                double length = 0;
+                for (int edge : tree.getEdges(goal)) {
+                    assertEquals(node, graph.getOrigin(edge));
+                    node = graph.getTarget(edge);
+                    length += graph.getLength(edge);
+                }
+                assertEquals(goal, node);
+                assertEquals(search.getDistance(goal), length, 1e-9);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * IndexedHeapTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedHeapTest {
+
+    @Test
+    public void testPollOrder() {
+        IndexedHeap heap = new IndexedHeap(10);
+        double[] priorities = {5, 3, 8, 1, 9, 2, 7, 0, 6, 4};
+        for (int i = 0; i < priorities.length; i++) {
+            heap.insert(i, priorities[i]);
+        }
+        assertEquals(10, heap.size());
+        int[] expected = {7, 3, 5, 1, 9, 0, 8, 6, 2, 4};
+        for (int key : expected) {
+            assertEquals(key, heap.poll());
+        }
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testDecreaseKey() {
+        IndexedHeap heap = new IndexedHeap(5);
+        heap.insert(0, 10);
+        heap.insert(1, 20);
+        heap.insert(2, 30);
+        heap.decreaseKey(2, 5);
+        assertEquals(5, heap.getPriority(2));
+        heap.decreaseKey(0, 50); // not a decrease, ignored
+        assertEquals(10, heap.getPriority(0));
+        heap.insertOrDecrease(1, 1);
+        heap.insertOrDecrease(3, 7);
+        assertEquals(1, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(3, heap.poll());
+        assertEquals(0, heap.poll());
+        assertFalse(heap.contains(0));
+    }
+
+    @Test
+    public void testChangePriority() {
+        IndexedHeap heap = new IndexedHeap(4);
+        heap.insert(0, 1);
+        heap.insert(1, 2);
+        heap.insert(2, 3);
+        heap.changePriority(0, 10);
+        heap.changePriority(2, 0);
+        assertEquals(2, heap.poll());
+        assertEquals(1, heap.poll());
+        assertEquals(0, heap.poll());
+    }
+
+    @Test
+    public void testClearAndReuse() {
+        IndexedHeap heap = new IndexedHeap(4);
+        heap.insert(0, 1);
+        heap.insert(3, 2);
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(3));
+        heap.insert(3, 4);
+        assertEquals(3, heap.peek());
+        assertThrows(IllegalArgumentException.class, () -> heap.insert(3, 1));
+        heap.poll();
+        assertThrows(NoSuchElementException.class, heap::poll);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * LandmarksTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.MapData;
+import com.pld.agile.model.map.RoadGraph;
+import com.pld.agile.utils.parsing.MapLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LandmarksTest {
+
+    @Test
+    public void testLowerBound() throws Exception {
+        MapData mapData = new MapData();
+        new MapLoader("test/resources/loadMap_loadRequestsBase.xml", mapData).load();
+        RoadGraph graph = mapData.getRoadGraph();
+        Landmarks landmarks = Landmarks.select(graph, 3);
+        assertEquals(3, landmarks.getNbLandmarks());
+
+        DijkstraSearch search = new DijkstraSearch(graph);
+        for (int origin = 0; origin < graph.getNbNodes(); origin++) {
+            search.runAll(origin);
+            for (int destination = 0; destination < graph.getNbNodes(); destination++) {
+                assertTrue(landmarks.lowerBound(origin, destination) <= search.getDistance(destination) + 1e-9);
+            }
+        }
+        // The bound is exact from a landmark
+        int landmark = landmarks.getNode(0);
+        search.runAll(landmark);
+        for (int destination = 0; destination < graph.getNbNodes(); destination++) {
+            if (search.getDistance(destination) != Double.MAX_VALUE) {
+                assertEquals(search.getDistance(destination), landmarks.lowerBound(landmark, destination), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testPersistence(@TempDir Path directory) throws Exception {
+        Path mapFile = directory.resolve("map.xml");
+        Files.copy(new File("test/resources/loadMap_loadRequestsBase.xml").toPath(), mapFile);
+        MapData mapData = new MapData();
+        MapLoader mapLoader = new MapLoader(mapFile.toString(), mapData);
+        mapLoader.setNbLandmarks(2);
+        mapLoader.load();
+        Landmarks selected = mapData.getLandmarks();
+        File landmarksFile = new File(mapFile + Landmarks.FILE_EXTENSION);
+        assertTrue(landmarksFile.isFile());
+
+        // Loading the map again reads the stored landmarks
+        mapLoader.load();
+        Landmarks read = mapData.getLandmarks();
+        assertNotSame(selected, read);
+        assertSame(mapData.getRoadGraph(), read.getGraph());
+        assertEquals(selected.getNbLandmarks(), read.getNbLandmarks());
+        for (int i = 0; i < read.getNbLandmarks(); i++) {
+            assertEquals(selected.getNode(i), read.getNode(i));
+            for (int n = 0; n < read.getGraph().getNbNodes(); n++) {
+                assertEquals(selected.getDistanceFrom(i, n), read.getDistanceFrom(i, n));
+                assertEquals(selected.getDistanceTo(i, n), read.getDistanceTo(i, n));
+            }
+        }
+
+        // Landmarks computed on another map are not read
+        MapData otherMap = new MapData();
+        new MapLoader("test/resources/loadMap_4Inter4Seg.xml", otherMap).load();
+        assertNull(Landmarks.read(landmarksFile, otherMap.getRoadGraph()));
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * RouterTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.MapData;
+import com.pld.agile.model.map.RoadGraph;
+import com.pld.agile.utils.parsing.MapLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouterTest {
+
+    private final MapData mapData = new MapData();
+
+    @BeforeEach
+    public void load() throws Exception {
+        new MapLoader("test/resources/loadMap_loadRequestsBase.xml", mapData).load();
+    }
+
+    @Test
+    public void testBidirectionalDijkstraMatchesDijkstra() {
+        assertSameRoutes(RoutingMode.BIDIRECTIONAL_DIJKSTRA.createRouter(mapData));
+    }
+
+    @Test
+    public void testAStarMatchesDijkstra() {
+        assertSameRoutes(RoutingMode.A_STAR.createRouter(mapData));
+    }
+
+    @Test
+    public void testAltMatchesDijkstra() {
+        mapData.setLandmarks(Landmarks.select(mapData.getRoadGraph(), 2));
+        assertSameRoutes(RoutingMode.ALT.createRouter(mapData));
+    }
+
+    private void assertSameRoutes(Router router) {
+        RoadGraph graph = mapData.getRoadGraph();
+        Router dijkstra = RoutingMode.DIJKSTRA.createRouter(mapData);
+        int n = graph.getNbNodes();
+
+        for (int origin = 0; origin < n; origin++) {
+            for (int destination = 0; destination < n; destination += 3) {
+                Route expected = dijkstra.findRoute(origin, destination);
+                Route actual = router.findRoute(origin, destination);
+                if (expected == null) {
+                    assertNull(actual);
+                } else {
+                    assertEquals(expected.getLength(), actual.getLength(), 1e-9);
+                    assertTrue(router.getNbSettledNodes() <= dijkstra.getNbSettledNodes());
+                    // The edges are consecutive and add up to the length
+                    int node = origin;
+                    double length = 0;
+                    for (int edge : actual.getEdges()) {
+                        assertEquals(node, graph.getOrigin(edge));
+                        node = graph.getTarget(edge);
+                        length += graph.getLength(edge);
+                    }
+                    assertEquals(destination, node);
+                    assertEquals(actual.getLength(), length, 1e-9);
+                }
+            }
+        }
+    }
+
+}
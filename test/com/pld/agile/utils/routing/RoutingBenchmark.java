@@ -0,0 +1,113 @@
+/*
+ * RoutingBenchmark
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.MapData;
+import com.pld.agile.model.map.RoadGraph;
+import com.pld.agile.model.tour.TourData;
+import com.pld.agile.utils.parsing.MapLoader;
+import com.pld.agile.utils.parsing.RequestLoader;
+import com.pld.agile.utils.tsp.CompleteGraph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the routing modes on the bundled maps: time to fill the stops graph of a requests file
+ * and time of random point-to-point queries. Not a unit test, run its main method.
+ */
+public class RoutingBenchmark {
+
+    /**
+     * Bundled maps and the requests file used on each of them.
+     */
+    private static final String[][] CASES = {
+            {"smallMap.xml", "requestsSmall2.xml"},
+            {"mediumMap.xml", "requestsMedium5.xml"},
+            {"largeMap.xml", "requestsLarge20.xml"},
+    };
+    /**
+     * Number of timed runs, the median is reported.
+     */
+    private static final int NB_RUNS = 15;
+    /**
+     * Number of random point-to-point queries per run.
+     */
+    private static final int NB_QUERIES = 1000;
+
+    public static void main(String[] args) throws Exception {
+        for (String[] benchmarkCase : CASES) {
+            MapData map = new MapData();
+            new MapLoader("src/resources/xml/maps/" + benchmarkCase[0], map).load();
+            TourData tourData = new TourData();
+            tourData.setAssociatedMap(map);
+            new RequestLoader("src/resources/xml/requests/" + benchmarkCase[1], tourData).load();
+            RoadGraph graph = map.getRoadGraph();
+            System.out.println(benchmarkCase[0] + " (" + graph.getNbNodes() + " nodes, " + graph.getNbEdges()
+                    + " edges), " + benchmarkCase[1] + " (" + tourData.getStopsList().size() + " stops)");
+
+            long start = System.nanoTime();
+            ContractionHierarchy hierarchy = map.getContractionHierarchy();
+            System.out.printf("  contraction: %.1f ms, %d shortcuts%n", (System.nanoTime() - start) / 1e6,
+                    hierarchy.getNbShortcuts());
+
+            CompleteGraph reference = null;
+            for (RoutingMode mode : new RoutingMode[] {RoutingMode.DIJKSTRA, RoutingMode.CONTRACTION_HIERARCHY}) {
+                StopsGraphBuilder builder = new StopsGraphBuilder(map, 1, mode);
+                double[] times = new double[NB_RUNS];
+                CompleteGraph stopsGraph = null;
+                for (int run = 0; run < NB_RUNS; run++) {
+                    start = System.nanoTime();
+                    stopsGraph = builder.build(tourData.getStopsList());
+                    times[run] = (System.nanoTime() - start) / 1e6;
+                }
+                builder.shutdown();
+                if (reference == null) {
+                    reference = stopsGraph;
+                }
+                System.out.printf("  stops graph, %s: %.2f ms (max difference %.2e)%n", mode, median(times),
+                        maxDifference(reference, stopsGraph));
+            }
+
+            for (RoutingMode mode : RoutingMode.values()) {
+                Router router = mode.createRouter(map);
+                double[] times = new double[NB_RUNS];
+                long nbSettledNodes = 0;
+                for (int run = 0; run < NB_RUNS; run++) {
+                    Random random = new Random(run);
+                    start = System.nanoTime();
+                    for (int q = 0; q < NB_QUERIES; q++) {
+                        router.findRoute(random.nextInt(graph.getNbNodes()), random.nextInt(graph.getNbNodes()));
+                        nbSettledNodes += router.getNbSettledNodes();
+                    }
+                    times[run] = (System.nanoTime() - start) / 1e3 / NB_QUERIES;
+                }
+                System.out.printf("  point-to-point, %s: %.1f us, %d settled nodes%n", mode, median(times),
+                        nbSettledNodes / ((long) NB_RUNS * NB_QUERIES));
+            }
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double maxDifference(CompleteGraph expected, CompleteGraph actual) {
+        double max = 0;
+        for (int i = 0; i < expected.getNbVertices(); i++) {
+            for (int j = 0; j < expected.getNbVertices(); j++) {
+                if (i != j) {
+                    max = Math.max(max, Math.abs(expected.getCost(i, j) - actual.getCost(i, j)));
+                }
+            }
+        }
+        return max;
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * StopsGraphBuilderTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.routing;
+
+import com.pld.agile.model.map.MapData;
+import com.pld.agile.model.map.Segment;
+import com.pld.agile.model.tour.Path;
+import com.pld.agile.model.tour.Stop;
+import com.pld.agile.model.tour.TourData;
+import com.pld.agile.utils.parsing.MapLoader;
+import com.pld.agile.utils.parsing.RequestLoader;
+import com.pld.agile.utils.tsp.CancellationToken;
+import com.pld.agile.utils.tsp.CompleteGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StopsGraphBuilderTest {
+    private final MapData mapData = new MapData();
+    private final TourData tourData = new TourData();
+
+    @BeforeEach
+    public void load() throws Exception {
+        new MapLoader("test/resources/loadMap_loadRequestsBase.xml", mapData).load();
+        tourData.setAssociatedMap(mapData);
+        new RequestLoader("test/resources/computeTour_notOptimalTour.xml", tourData).load();
+    }
+
+    private static void assertSameCosts(CompleteGraph expected, CompleteGraph actual) {
+        assertEquals(expected.getNbVertices(), actual.getNbVertices());
+        for (int i = 0; i < expected.getNbVertices(); i++) {
+            for (int j = 0; j < expected.getNbVertices(); j++) {
+                if (i != j) {
+                    assertEquals(expected.getCost(i, j), actual.getCost(i, j), 1e-9);
+                    assertEquals(expected.getCost(i, j), actual.getPath(i, j).getLength(), 1e-9);
+                }
+            }
+        }
+        assertEquals(expected.getMinCost(), actual.getMinCost(), 1e-9);
+    }
+
+    @Test
+    public void testBuildCancelled() throws Exception {
+        CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        for (RoutingMode routingMode : List.of(RoutingMode.DIJKSTRA, RoutingMode.CONTRACTION_HIERARCHY)) {
+            StopsGraphBuilder builder = new StopsGraphBuilder(mapData, 2, routingMode);
+            assertThrows(CancellationException.class, () -> builder.build(tourData.getStopsList(), cancellation));
+            // A new token lets the builder compute the graph
+            assertEquals(tourData.getStopsList().size(),
+                    builder.build(tourData.getStopsList(), new CancellationToken()).getNbVertices());
+            builder.shutdown();
+        }
+    }
+
+    @Test
+    public void testUpdateAddedStops() throws Exception {
+        StopsGraphBuilder builder = new StopsGraphBuilder(mapData, 2);
+        List<Stop> stops = tourData.getStopsList();
+        int n = stops.size();
+        CompleteGraph partial = builder.build(stops.subList(0, n - 2));
+        CompleteGraph grown = new CompleteGraph(partial, n);
+        builder.update(grown, stops, n - 2, n - 1);
+        assertSameCosts(builder.build(stops), grown);
+        assertSameCosts(partial, grown.withoutVertices(n - 2, n - 1));
+        builder.shutdown();
+    }
+
+    @Test
+    public void testUpdateMovedStop() throws Exception {
+        StopsGraphBuilder builder = new StopsGraphBuilder(mapData, 2);
+        List<Stop> stops = tourData.getStopsList();
+        CompleteGraph graph = builder.build(stops);
+        Stop moved = stops.get(3);
+        moved.setAddress(mapData.getIntersections().get(0));
+        builder.update(graph, stops, 3);
+        assertSameCosts(builder.build(stops), graph);
+        builder.shutdown();
+    }
+
+    @Test
+    public void testContractionHierarchyMatchesDijkstra() throws Exception {
+        StopsGraphBuilder dijkstra = new StopsGraphBuilder(mapData, 1);
+        StopsGraphBuilder hierarchy = new StopsGraphBuilder(mapData, 1, RoutingMode.CONTRACTION_HIERARCHY);
+        List<Stop> stops = tourData.getStopsList();
+        assertSameCosts(dijkstra.build(stops), hierarchy.build(stops));
+
+        CompleteGraph graph = hierarchy.build(stops);
+        stops.get(2).setAddress(mapData.getIntersections().get(1));
+        hierarchy.update(graph, stops, 2);
+        assertSameCosts(dijkstra.build(stops), graph);
+        dijkstra.shutdown();
+        hierarchy.shutdown();
+    }
+
+    @Test
+    public void testSequentialAndParallelMatch() throws Exception {
+        StopsGraphBuilder sequential = new StopsGraphBuilder(mapData, 1);
+        StopsGraphBuilder parallel = new StopsGraphBuilder(mapData, 4);
+        CompleteGraph g1 = sequential.build(tourData.getStopsList());
+        CompleteGraph g2 = parallel.build(tourData.getStopsList());
+        sequential.shutdown();
+        parallel.shutdown();
+
+        int n = tourData.getStopsList().size();
+        assertEquals(n, g1.getNbVertices());
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) {
+                    assertEquals(g1.getCost(i, j), g2.getCost(i, j));
+                    Path path = g2.getPath(i, j);
+                    assertSame(tourData.getStopsList().get(i), path.getOrigin());
+                    assertSame(tourData.getStopsList().get(j), path.getDestination());
+                    double length = 0;
+                    for (Segment segment : path.getSegments()) {
+                        length += segment.getLength();
+                    }
+                    assertEquals(g2.getCost(i, j), length, 1e-9);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+/*
+ * CheapestInsertionTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import org.junit.jupiter.api.Test;
+
+import static com.pld.agile.utils.tsp.TSPTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheapestInsertionTest {
+
+    @Test
+    public void testBuildTour() {
+        // Vertices on a line: the pickups are on the way out, the deliveries on the way back
+        CompleteGraph graph = lineGraph(0, 1, 5, 2, 4, 3, 6);
+
+        int[] tour = new CheapestInsertion(graph).buildTour();
+        assertValidTour(tour, 7);
+        assertEquals(12, new LocalSearch(graph).getCost(tour), 1e-9);
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * CostMatrixTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.pld.agile.utils.tsp.TSPTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CostMatrixTest {
+
+    @Test
+    public void testEvaluateInsertions() {
+        CompleteGraph graph = randomGraph(9, new Random(53));
+        CostMatrix costs = new CostMatrix(graph);
+        assertEquals(0, costs.getCost(4, 4));
+        assertEquals(graph.getCost(2, 7), costs.getCost(2, 7));
+
+        // Request 3 (vertices 7 and 8) inserted in the tour of the other requests
+        int[] route = {0, 1, 3, 2, 5, 4, 6};
+        double[] positionCosts = new double[9];
+        int[] pickupPositions = new int[9];
+        costs.evaluateInsertions(route, route.length, 3, positionCosts, pickupPositions);
+        for (int j = 0; j < route.length; j++) {
+            // Every position of the pickup up to the one of the delivery
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i <= j; i++) {
+                best = Math.min(best, tourCost(graph, insert(route, i, j)) - tourCost(graph, route));
+            }
+            assertEquals(best, positionCosts[j], 1e-9);
+            assertEquals(best, tourCost(graph, insert(route, pickupPositions[j], j)) - tourCost(graph, route), 1e-9);
+        }
+        int cheapest = CostMatrix.cheapestPosition(positionCosts, route.length);
+        for (int j = 0; j < route.length; j++) {
+            assertTrue(positionCosts[cheapest] <= positionCosts[j]);
+        }
+    }
+
+    private int[] insert(int[] route, int pickupPosition, int deliveryPosition) {
+        int[] tour = new int[route.length + 2];
+        int k = 0;
+        for (int r = 0; r < route.length; r++) {
+            tour[k++] = route[r];
+            if (r == pickupPosition) {
+                tour[k++] = 7;
+            }
+            if (r == deliveryPosition) {
+                tour[k++] = 8;
+            }
+        }
+        return tour;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * FleetSolverTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.pld.agile.utils.tsp.TSPTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FleetSolverTest {
+
+    @Test
+    public void testSearchSolution() {
+        Random random = new Random(19);
+        int nbRequests = 12;
+        CompleteGraph graph = randomGraph(2 * nbRequests + 1, random);
+        for (int capacity = 0; capacity <= 5; capacity++) {
+            FleetSolver solver = new FleetSolver(graph, 3);
+            solver.setCapacity(capacity);
+            solver.setParallelism(2);
+            solver.searchSolution(5000);
+
+            // Each stop is visited once, by a tour respecting the precedences and the capacity
+            // (raised to 4 requests for the three couriers to take the twelve requests)
+            boolean[] visited = new boolean[2 * nbRequests + 1];
+            double totalCost = 0;
+            for (int courier = 0; courier < solver.getNbTours(); courier++) {
+                int[] tour = solver.getTour(courier);
+                if (capacity > 0) {
+                    assertTrue((tour.length - 1) / 2 <= Math.max(capacity, 4));
+                }
+                assertVisitsOnce(tour, visited);
+                double cost = tourCost(graph, tour);
+                assertEquals(cost, solver.getTourCost(courier), 1e-9);
+                totalCost += cost;
+            }
+            for (int vertex = 1; vertex < visited.length; vertex++) {
+                assertTrue(visited[vertex]);
+            }
+            assertEquals(totalCost, solver.getSolutionCost(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testSingleCourier() {
+        Random random = new Random(23);
+        CompleteGraph graph = randomGraph(11, random);
+        FleetSolver solver = new FleetSolver(graph, 1);
+        solver.searchSolution(1000);
+        HeldKarpTSP exact = new HeldKarpTSP();
+        exact.searchSolution(1000, graph);
+        assertEquals(exact.getSolutionCost(), solver.getSolutionCost(), 1e-9);
+    }
+
+    @Test
+    public void testMoreCouriersThanRequests() {
+        CompleteGraph graph = randomGraph(5, new Random(29));
+        FleetSolver solver = new FleetSolver(graph, 4);
+        solver.searchSolution(1000);
+        int nbEmptyTours = 0;
+        for (int courier = 0; courier < solver.getNbTours(); courier++) {
+            int[] tour = solver.getTour(courier);
+            assertTrue(tour.length == 1 || tour.length == 3);
+            if (tour.length == 1) {
+                nbEmptyTours++;
+                assertEquals(0, solver.getTourCost(courier));
+            }
+        }
+        assertEquals(2, nbEmptyTours);
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * HeldKarpTSPTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.pld.agile.utils.tsp.TSPTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeldKarpTSPTest {
+
+    @Test
+    public void testMatchesExhaustiveSearch() {
+        Random random = new Random(42);
+        for (int nbRequests = 1; nbRequests <= 4; nbRequests++) {
+            for (int instance = 0; instance < 5; instance++) {
+                int n = 2 * nbRequests + 1;
+                CompleteGraph graph = randomGraph(n, random);
+
+                HeldKarpTSP tsp = new HeldKarpTSP();
+                tsp.searchSolution(1000, graph);
+
+                // The solution is a tour respecting the precedences, of the announced cost
+                int[] tour = getTour(tsp, n);
+                assertValidTour(tour, n);
+                assertEquals(tourCost(graph, tour), tsp.getSolutionCost(), 1e-9);
+
+                // and it is the best one
+                boolean[] visited = new boolean[n];
+                visited[0] = true;
+                assertEquals(bestCost(graph, new int[n], visited, 1, 0), tsp.getSolutionCost(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testCanSolve() {
+        assertTrue(HeldKarpTSP.canSolve(21));
+        assertFalse(HeldKarpTSP.canSolve(2 * HeldKarpTSP.MAX_REQUESTS + 3));
+        assertFalse(HeldKarpTSP.canSolve(4));
+    }
+
+    private double bestCost(CompleteGraph graph, int[] tour, boolean[] visited, int depth, double cost) {
+        int n = graph.getNbVertices();
+        if (depth == n) {
+            return cost + graph.getCost(tour[n - 1], 0);
+        }
+        double best = Double.MAX_VALUE;
+        for (int v = 1; v < n; v++) {
+            if (!visited[v] && (v % 2 == 1 || visited[v - 1])) {
+                visited[v] = true;
+                tour[depth] = v;
+                best = Math.min(best, bestCost(graph, tour, visited, depth + 1, cost + graph.getCost(tour[depth - 1], v)));
+                visited[v] = false;
+            }
+        }
+        return best;
+    }
+
+}
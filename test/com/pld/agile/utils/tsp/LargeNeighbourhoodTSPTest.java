@@ -0,0 +1,41 @@
+/*
+ * LargeNeighbourhoodTSPTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.pld.agile.utils.tsp.TSPTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LargeNeighbourhoodTSPTest {
+
+    @Test
+    public void testSearchSolution() {
+        Random random = new Random(3);
+        for (int nbRequests = 1; nbRequests <= 7; nbRequests++) {
+            int n = 2 * nbRequests + 1;
+            CompleteGraph graph = randomGraph(n, random);
+
+            LargeNeighbourhoodTSP tsp = new LargeNeighbourhoodTSP();
+            tsp.setSeed(nbRequests);
+            tsp.searchSolution(10000, graph);
+
+            // The solution is a tour respecting the precedences, of the announced cost
+            int[] tour = getTour(tsp, n);
+            assertValidTour(tour, n);
+            assertEquals(tourCost(graph, tour), tsp.getSolutionCost(), 1e-9);
+
+            // and such small tours are solved to optimality
+            HeldKarpTSP exact = new HeldKarpTSP();
+            exact.searchSolution(1000, graph);
+            assertEquals(exact.getSolutionCost(), tsp.getSolutionCost(), 1e-9);
+        }
+    }
+
+}
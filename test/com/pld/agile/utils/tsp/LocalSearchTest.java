@@ -0,0 +1,112 @@
+/*
+ * LocalSearchTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.pld.agile.utils.tsp.TSPTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalSearchTest {
+
+    @Test
+    public void testImprove() {
+        Random random = new Random(7);
+        for (int nbRequests = 1; nbRequests <= 8; nbRequests++) {
+            for (int instance = 0; instance < 5; instance++) {
+                int n = 2 * nbRequests + 1;
+                CompleteGraph graph = randomGraph(n, random);
+
+                // Requests in the order of the stops list, each delivery right after its pickup
+                int[] tour = new int[n];
+                for (int i = 0; i < n; i++) {
+                    tour[i] = i;
+                }
+                LocalSearch localSearch = new LocalSearch(graph);
+                double initialCost = localSearch.getCost(tour);
+                boolean improved = localSearch.improve(tour);
+                double cost = localSearch.getCost(tour);
+
+                // The improved tour visits every vertex once, respecting the precedences
+                assertValidTour(tour, n);
+                assertEquals(improved, cost < initialCost);
+                assertTrue(cost <= initialCost);
+
+                // and it cannot be better than the optimal tour
+                HeldKarpTSP tsp = new HeldKarpTSP();
+                tsp.searchSolution(1000, graph);
+                assertTrue(cost >= tsp.getSolutionCost() - 1e-9);
+
+                // A local optimum is not improved again
+                assertFalse(localSearch.improve(tour));
+            }
+        }
+    }
+
+    @Test
+    public void testRelocatePair() {
+        // Vertices on a line, the tour going back and forth: 0 -> 3 -> 4 -> 1 -> 2 -> 0 is optimal
+        CompleteGraph graph = lineGraph(0, 3, 4, 1, 2);
+        int[] tour = {0, 1, 2, 3, 4};
+        LocalSearch localSearch = new LocalSearch(graph);
+        assertTrue(localSearch.improve(tour));
+        assertEquals(8, localSearch.getCost(tour), 1e-9);
+    }
+
+    @Test
+    public void testImproveWithTimeWindows() {
+        Random random = new Random(17);
+        int nbImproved = 0;
+        for (int instance = 0; instance < 50; instance++) {
+            int n = 2 * (2 + instance % 6) + 1;
+            CompleteGraph graph = randomGraph(n, random);
+            int[] tour = new int[n];
+            for (int i = 0; i < n; i++) {
+                tour[i] = i;
+            }
+
+            // Tight windows around the service times of the initial tour, which respects them
+            long[] earliestTimes = new long[n];
+            long[] latestTimes = new long[n];
+            long[] durations = new long[n];
+            latestTimes[0] = TimeWindows.NO_LATEST_TIME;
+            long time = 0;
+            for (int i = 1; i < n; i++) {
+                time += (long) graph.getCost(i - 1, i) + 1 + durations[i - 1];
+                durations[i] = random.nextInt(10);
+                earliestTimes[i] = random.nextBoolean() ? time + random.nextInt(20) : 0;
+                time = Math.max(time, earliestTimes[i]);
+                latestTimes[i] = random.nextBoolean() ? time + random.nextInt(100) : TimeWindows.NO_LATEST_TIME;
+            }
+            TimeWindows timeWindows = new TimeWindows(earliestTimes, latestTimes, durations, 1);
+            assertTrue(timeWindows.isFeasible(tour, graph));
+
+            LocalSearch localSearch = new LocalSearch(graph, timeWindows);
+            double initialCost = localSearch.getCost(tour);
+            if (localSearch.improve(tour)) {
+                nbImproved++;
+            }
+            assertTrue(localSearch.getCost(tour) <= initialCost);
+            assertTrue(timeWindows.isFeasible(tour, graph));
+            assertValidTour(tour, n);
+        }
+        assertTrue(nbImproved > 0);
+    }
+
+    @Test
+    public void testInfeasibleTourNotImproved() {
+        CompleteGraph graph = randomGraph(5, new Random(3));
+        long[] latestTimes = {TimeWindows.NO_LATEST_TIME, 0, 0, 0, 0};
+        TimeWindows timeWindows = new TimeWindows(new long[5], latestTimes, new long[5], 1);
+        int[] tour = {0, 1, 2, 3, 4};
+        assertFalse(new LocalSearch(graph, timeWindows).improve(tour));
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4}, tour);
+    }
+
+}
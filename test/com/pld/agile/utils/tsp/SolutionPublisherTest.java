@@ -0,0 +1,72 @@
+/*
+ * SolutionPublisherTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import com.pld.agile.utils.observer.UpdateType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SolutionPublisherTest {
+
+    @Test
+    public void testCoalescing() {
+        // The drain tasks wait in a queue, like on a busy JavaFX thread
+        List<Runnable> queue = new ArrayList<>();
+        SolutionPublisher publisher = new SolutionPublisher(queue::add);
+        List<Double> deliveredCosts = new ArrayList<>();
+        publisher.addObserver((observed, updateType) -> {
+            assertEquals(UpdateType.INTERMEDIARY_TSP, updateType);
+            deliveredCosts.add(((SolutionPublisher) observed).getCost());
+        });
+        publisher.open();
+        for (int cost = 100; cost > 0; cost--) {
+            publisher.offer(new int[] {0, cost}, cost);
+        }
+        assertEquals(1, queue.size());
+        queue.remove(0).run();
+        assertEquals(List.of(1.0), deliveredCosts);
+        assertArrayEquals(new int[] {0, 1}, publisher.getTour());
+
+        // Once closed, the pending solution is dropped
+        publisher.offer(new int[] {0, 0}, 0);
+        publisher.close();
+        publisher.offer(new int[] {0, 0}, 0);
+        while (!queue.isEmpty()) {
+            queue.remove(0).run();
+        }
+        assertEquals(List.of(1.0), deliveredCosts);
+    }
+
+    @Test
+    public void testMaxRate() throws InterruptedException {
+        SolutionPublisher publisher = new SolutionPublisher(Runnable::run);
+        publisher.setMaxRate(20);
+        assertEquals(20, publisher.getMaxRate(), 1e-6);
+        AtomicInteger nbDeliveries = new AtomicInteger();
+        publisher.addObserver((observed, updateType) -> nbDeliveries.incrementAndGet());
+        publisher.open();
+        long startTime = System.currentTimeMillis();
+        int cost = 1000000;
+        while (System.currentTimeMillis() - startTime < 500) {
+            cost--;
+            publisher.offer(new int[] {0}, cost);
+            Thread.sleep(1);
+        }
+        // The last solution is delivered at most one interval after it has been offered
+        Thread.sleep(200);
+        assertEquals(cost, publisher.getCost());
+        assertTrue(nbDeliveries.get() >= 2);
+        assertTrue(nbDeliveries.get() <= 500 / 50 + 2);
+        publisher.close();
+    }
+
+}
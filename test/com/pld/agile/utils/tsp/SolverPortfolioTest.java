@@ -0,0 +1,135 @@
+/*
+ * SolverPortfolioTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import com.pld.agile.utils.tsp.SolverPortfolio.Strategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.pld.agile.utils.tsp.TSPTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SolverPortfolioTest {
+
+    @Test
+    public void testChooseStrategies() {
+        assertEquals(List.of(Strategy.BRANCH_AND_BOUND), SolverPortfolio.chooseStrategies(11, 1000, true, 4));
+        assertEquals(List.of(Strategy.HELD_KARP), SolverPortfolio.chooseStrategies(11, 1000, false, 1));
+        assertEquals(List.of(Strategy.HELD_KARP), SolverPortfolio.chooseStrategies(25, 10000, false, 1));
+        // 12 requests do not fit in 100 ms with dynamic programming
+        assertEquals(List.of(Strategy.LARGE_NEIGHBOURHOOD), SolverPortfolio.chooseStrategies(25, 100, false, 1));
+        assertEquals(List.of(Strategy.BRANCH_AND_BOUND, Strategy.LARGE_NEIGHBOURHOOD),
+                SolverPortfolio.chooseStrategies(25, 100, false, 2));
+        assertEquals(List.of(Strategy.LARGE_NEIGHBOURHOOD), SolverPortfolio.chooseStrategies(61, 10000, false, 4));
+    }
+
+    @Test
+    public void testSearchSolutionExact() {
+        CompleteGraph graph = randomGraph(11, new Random(31));
+        SolverPortfolio portfolio = new SolverPortfolio();
+        portfolio.searchSolution(1000, graph);
+        HeldKarpTSP exact = new HeldKarpTSP();
+        exact.searchSolution(1000, graph);
+        assertEquals(List.of(Strategy.HELD_KARP), portfolio.getStrategies());
+        assertTrue(portfolio.isSolutionOptimal());
+        assertEquals(exact.getSolutionCost(), portfolio.getSolutionCost(), 1e-9);
+    }
+
+    @Test
+    public void testSearchSolutionRace() {
+        int nbVertices = 27;
+        CompleteGraph graph = randomGraph(nbVertices, new Random(37));
+        SolverPortfolio portfolio = new SolverPortfolio();
+        portfolio.setParallelism(2);
+        portfolio.searchSolution(2000, graph);
+        assertEquals(List.of(Strategy.BRANCH_AND_BOUND, Strategy.LARGE_NEIGHBOURHOOD), portfolio.getStrategies());
+
+        // The kept tour visits each stop once, pickups before deliveries, at its cost
+        int[] tour = getTour(portfolio, nbVertices);
+        assertValidTour(tour, nbVertices);
+        assertEquals(tourCost(graph, tour), portfolio.getSolutionCost(), 1e-9);
+
+        // With equal costs, the branch and bound proves its first tour optimal in milliseconds: the metaheuristic
+        // is cancelled and has returned with the search, the token of the portfolio being left as is
+        CancellationToken cancellation = new CancellationToken();
+        portfolio.setCancellationToken(cancellation);
+        portfolio.searchSolution(60000, equalCostsGraph(41));
+        assertTrue(portfolio.isSolutionOptimal());
+        assertFalse(cancellation.isCancelled());
+        for (Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+            for (StackTraceElement frame : thread.getValue()) {
+                assertNotEquals(LargeNeighbourhoodTSP.class.getName(), frame.getClassName(),
+                        thread.getKey().getName() + " is still searching");
+            }
+        }
+    }
+
+    @Test
+    public void testRaceEndsWithConvergence() {
+        // The branch and bound cannot prove a tour of 20 requests optimal: the race ends when the metaheuristic
+        // has converged, long before the deadline
+        CompleteGraph graph = randomGraph(41, new Random(53));
+        SolverPortfolio portfolio = new SolverPortfolio();
+        portfolio.setParallelism(2);
+        long startTime = System.currentTimeMillis();
+        portfolio.searchSolution(60000, graph);
+        assertTrue(System.currentTimeMillis() - startTime < 30000);
+        assertEquals(List.of(Strategy.BRANCH_AND_BOUND, Strategy.LARGE_NEIGHBOURHOOD), portfolio.getStrategies());
+        assertFalse(portfolio.isSolutionOptimal());
+        int[] tour = getTour(portfolio, 41);
+        assertValidTour(tour, 41);
+        assertEquals(tourCost(graph, tour), portfolio.getSolutionCost(), 1e-9);
+    }
+
+    @Test
+    public void testCancellation() {
+        CompleteGraph graph = randomGraph(27, new Random(47));
+        CancellationToken cancellation = new CancellationToken();
+        SolverPortfolio portfolio = new SolverPortfolio();
+        portfolio.setParallelism(2);
+        portfolio.setCancellationToken(cancellation);
+        ScheduledExecutorService canceller = Executors.newSingleThreadScheduledExecutor();
+        canceller.schedule(cancellation::cancel, 100, TimeUnit.MILLISECONDS);
+        long startTime = System.currentTimeMillis();
+        portfolio.searchSolution(60000, graph);
+        canceller.shutdown();
+
+        // Both raced solvers stop, the cheapest of their tours being kept
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+        assertEquals(List.of(Strategy.BRANCH_AND_BOUND, Strategy.LARGE_NEIGHBOURHOOD), portfolio.getStrategies());
+        assertEquals(0, portfolio.getSolution(0));
+        assertTrue(portfolio.getSolutionCost() > 0);
+    }
+
+    @Test
+    public void testSearchSolutionWithTimeWindows() {
+        int nbVertices = 9;
+        CompleteGraph graph = randomGraph(nbVertices, new Random(41));
+        long[] earliestTimes = new long[nbVertices];
+        long[] latestTimes = new long[nbVertices];
+        Arrays.fill(latestTimes, TimeWindows.NO_LATEST_TIME);
+        // The last request must be served before the others
+        latestTimes[nbVertices - 1] = 250;
+        TimeWindows timeWindows = new TimeWindows(earliestTimes, latestTimes, new long[nbVertices], 1);
+        SolverPortfolio portfolio = new SolverPortfolio();
+        portfolio.setTimeWindows(timeWindows);
+        portfolio.setParallelism(4);
+        portfolio.searchSolution(5000, graph);
+        assertEquals(List.of(Strategy.BRANCH_AND_BOUND), portfolio.getStrategies());
+
+        assertTrue(timeWindows.isFeasible(getTour(portfolio, nbVertices), graph));
+        assertTrue(portfolio.isSolutionOptimal());
+    }
+
+}
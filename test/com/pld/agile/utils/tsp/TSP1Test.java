@@ -9,8 +9,6 @@ package com.pld.agile.utils.tsp;
 import com.pld.agile.model.tour.TourData;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class TSP1Test {
@@ -18,7 +16,7 @@ public class TSP1Test {
     @Test
     public void testBound() {
         TSP1 tsp = new TSP1(new TourData());
-        assertEquals(0,tsp.bound(1, Arrays.asList(2,3,1)));
+        assertEquals(0,tsp.bound(1, new int[] {2,3,1}, 3));
     }
 
 }
\ No newline at end of file
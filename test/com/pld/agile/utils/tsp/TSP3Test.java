@@ -0,0 +1,195 @@
+/*
+ * TSP3Test
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.pld.agile.utils.tsp.TSPTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TSP3Test {
+
+    @Test
+    public void testIncrementalBound() {
+        Random random = new Random(11);
+        int n = 11;
+        CompleteGraph graph = randomGraph(n, random);
+        TSP3 tsp = new TSP3();
+        tsp.searchSolution(1000, graph);
+        IncrementalBound prototype = tsp.createIncrementalBound();
+
+        // Random descents, each vertex being unvisited in the reverse order of its visit
+        for (int descent = 0; descent < 20; descent++) {
+            boolean[] visited = new boolean[n];
+            visited[0] = true;
+            IncrementalBound bound = prototype.forState(visited);
+            int[] unvisited = new int[n - 1];
+            int nbUnvisited = n - 1;
+            for (int i = 0; i < nbUnvisited; i++) {
+                unvisited[i] = i + 1;
+            }
+            int[] tour = new int[n];
+            int depth = 0;
+            while (nbUnvisited > 0) {
+                assertEquals(tsp.bound(tour[depth], unvisited, nbUnvisited), bound.getBound(), 1e-9);
+                if (depth > 0 && random.nextInt(4) == 0) {
+                    // Unvisit the last vertex
+                    int vertex = tour[depth--];
+                    visited[vertex] = false;
+                    unvisited[nbUnvisited++] = vertex;
+                    bound.unvisit(vertex);
+                    continue;
+                }
+                int k;
+                do {
+                    k = random.nextInt(nbUnvisited);
+                } while (unvisited[k] % 2 == 0 && !visited[unvisited[k] - 1]);
+                int vertex = unvisited[k];
+                unvisited[k] = unvisited[--nbUnvisited];
+                visited[vertex] = true;
+                tour[++depth] = vertex;
+                bound.visit(vertex, unvisited, nbUnvisited);
+            }
+        }
+    }
+
+    @Test
+    public void testSearchSolution() {
+        Random random = new Random(5);
+        for (int nbRequests = 1; nbRequests <= 5; nbRequests++) {
+            CompleteGraph graph = randomGraph(2 * nbRequests + 1, random);
+            HeldKarpTSP exact = new HeldKarpTSP();
+            exact.searchSolution(1000, graph);
+            for (int parallelism = 1; parallelism <= 2; parallelism++) {
+                TSP3 tsp = new TSP3();
+                tsp.setParallelism(parallelism);
+                tsp.searchSolution(10000, graph);
+                assertEquals(exact.getSolutionCost(), tsp.getSolutionCost(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testTranspositionTableCapacity() {
+        // 3^4 visited sets of 4 requests, times 9 current vertices
+        assertEquals(729, TemplateTSP.transpositionTableCapacity(9));
+        assertEquals(9, TemplateTSP.transpositionTableCapacity(3));
+        assertEquals(1 << 18, TemplateTSP.transpositionTableCapacity(41));
+    }
+
+    @Test
+    public void testCancellation() {
+        CompleteGraph graph = randomGraph(41, new Random(43));
+        CancellationToken cancellation = new CancellationToken();
+        TSP3 tsp = new TSP3();
+        tsp.setParallelism(2);
+        tsp.setCancellationToken(cancellation);
+        ScheduledExecutorService canceller = Executors.newSingleThreadScheduledExecutor();
+        canceller.schedule(cancellation::cancel, 100, TimeUnit.MILLISECONDS);
+        long startTime = System.currentTimeMillis();
+        tsp.searchSolution(60000, graph);
+        canceller.shutdown();
+
+        // The search returns long before its time limit, with the best tour found so far
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+        assertFalse(tsp.isSolutionOptimal());
+        assertEquals(0, tsp.getSolution(0));
+        assertTrue(tsp.getSolutionCost() > 0 && tsp.getSolutionCost() < Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testSearchSolutionWithTimeWindows() {
+        Random random = new Random(13);
+        int nbFeasible = 0;
+        for (int instance = 0; instance < 40; instance++) {
+            int n = 2 * (1 + instance % 4) + 1;
+            CompleteGraph graph = shortestPaths(randomGraph(n, random));
+            TimeWindows timeWindows = randomTimeWindows(n, random);
+            double optimum = bestFeasibleCost(graph, timeWindows, new int[n], 1, new boolean[n], 0);
+            for (int parallelism = 1; parallelism <= 2; parallelism++) {
+                TSP3 tsp = new TSP3();
+                tsp.setParallelism(parallelism);
+                tsp.setTimeWindows(timeWindows);
+                tsp.searchSolution(10000, graph);
+                int[] tour = getTour(tsp, n);
+                if (optimum < Double.MAX_VALUE) {
+                    assertEquals(optimum, tsp.getSolutionCost(), 1e-9);
+                    assertTrue(timeWindows.isFeasible(tour, graph));
+                } else {
+                    // No tour respects the time windows: a tour is computed anyway
+                    assertFalse(timeWindows.isFeasible(tour, graph));
+                    assertTrue(tsp.getSolutionCost() < Integer.MAX_VALUE);
+                }
+            }
+            if (optimum < Double.MAX_VALUE) {
+                nbFeasible++;
+            }
+        }
+        assertTrue(nbFeasible > 0 && nbFeasible < 40);
+    }
+
+    /**
+     * Enumerates the tours respecting the precedences and the time windows.
+     */
+    private double bestFeasibleCost(CompleteGraph graph, TimeWindows timeWindows, int[] tour, int depth,
+                                    boolean[] visited, double cost) {
+        int n = tour.length;
+        if (depth == n) {
+            return timeWindows.isFeasible(tour, graph) ? cost + graph.getCost(tour[n - 1], 0) : Double.MAX_VALUE;
+        }
+        double best = Double.MAX_VALUE;
+        for (int vertex = 1; vertex < n; vertex++) {
+            if (!visited[vertex] && (vertex % 2 == 1 || visited[vertex - 1])) {
+                visited[vertex] = true;
+                tour[depth] = vertex;
+                best = Math.min(best, bestFeasibleCost(graph, timeWindows, tour, depth + 1, visited,
+                        cost + graph.getCost(tour[depth - 1], vertex)));
+                visited[vertex] = false;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Replaces each cost by the cost of the shortest path, as in the stopsGraph: reaching a vertex directly
+     * is then the fastest way, on which the time window cuts rely.
+     */
+    private CompleteGraph shortestPaths(CompleteGraph graph) {
+        int n = graph.getNbVertices();
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i != j && i != k && j != k
+                            && graph.getCost(i, k) + graph.getCost(k, j) < graph.getCost(i, j)) {
+                        graph.setCost(i, j, graph.getCost(i, k) + graph.getCost(k, j));
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    private static TimeWindows randomTimeWindows(int n, Random random) {
+        long[] earliestTimes = new long[n];
+        long[] latestTimes = new long[n];
+        long[] durations = new long[n];
+        latestTimes[0] = TimeWindows.NO_LATEST_TIME;
+        for (int i = 1; i < n; i++) {
+            earliestTimes[i] = random.nextBoolean() ? random.nextInt(200) : 0;
+            latestTimes[i] = random.nextBoolean() ? earliestTimes[i] + 50 + random.nextInt(400)
+                    : TimeWindows.NO_LATEST_TIME;
+            durations[i] = random.nextInt(20);
+        }
+        return new TimeWindows(earliestTimes, latestTimes, durations, 1);
+    }
+
+}
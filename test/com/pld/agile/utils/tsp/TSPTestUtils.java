@@ -0,0 +1,120 @@
+/*
+ * TSPTestUtils
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Graphs and tour checks shared by the tests of the solvers, with the vertex numbering of CostMatrix.
+ */
+final class TSPTestUtils {
+
+    private TSPTestUtils() {
+    }
+
+    /**
+     * @param n the number of vertices
+     * @param random the random generator drawing the costs
+     * @return a complete graph whose arcs cost between 1 and 100
+     */
+    static CompleteGraph randomGraph(int n, Random random) {
+        CompleteGraph graph = new CompleteGraph(n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) {
+                    graph.setCost(i, j, 1 + random.nextInt(100));
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * @param n the number of vertices
+     * @return a complete graph whose arcs all cost 1
+     */
+    static CompleteGraph equalCostsGraph(int n) {
+        CompleteGraph graph = new CompleteGraph(n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) {
+                    graph.setCost(i, j, 1);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * @param x the positions of the vertices on a line
+     * @return a complete graph whose arcs cost the distance between their vertices
+     */
+    static CompleteGraph lineGraph(double... x) {
+        CompleteGraph graph = new CompleteGraph(x.length);
+        for (int i = 0; i < x.length; i++) {
+            for (int j = 0; j < x.length; j++) {
+                if (i != j) {
+                    graph.setCost(i, j, Math.abs(x[i] - x[j]));
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * @param tsp a solver whose search is over
+     * @param n the number of vertices of the graph
+     * @return the vertices of its solution, in order of visit
+     */
+    static int[] getTour(TSP tsp, int n) {
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) {
+            tour[i] = tsp.getSolution(i);
+        }
+        return tour;
+    }
+
+    /**
+     * @param graph a graph
+     * @param tour vertices of the graph, in order of visit
+     * @return the cost of the tour, going back to its first vertex (0 for a single vertex)
+     */
+    static double tourCost(Graph graph, int[] tour) {
+        double cost = 0;
+        for (int i = 0; tour.length > 1 && i < tour.length; i++) {
+            cost += graph.getCost(tour[i], tour[(i + 1) % tour.length]);
+        }
+        return cost;
+    }
+
+    /**
+     * Checks that a tour starts at the warehouse and visits its stops once, each pickup before its delivery.
+     * @param tour the vertices of the tour, in order of visit
+     * @param visited the stops visited by the previous tours, the stops of this one being added to them
+     */
+    static void assertVisitsOnce(int[] tour, boolean[] visited) {
+        assertEquals(0, tour[0]);
+        for (int i = 1; i < tour.length; i++) {
+            assertFalse(visited[tour[i]]);
+            assertTrue(tour[i] % 2 == 1 || visited[tour[i] - 1]);
+            visited[tour[i]] = true;
+        }
+    }
+
+    /**
+     * Checks that a tour starts at the warehouse and visits every stop once, each pickup before its delivery.
+     * @param tour the vertices of the tour, in order of visit
+     * @param n the number of vertices of the graph
+     */
+    static void assertValidTour(int[] tour, int n) {
+        assertEquals(n, tour.length);
+        assertVisitsOnce(tour, new boolean[n]);
+    }
+
+}
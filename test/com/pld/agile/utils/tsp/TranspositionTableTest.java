@@ -0,0 +1,43 @@
+/*
+ * TranspositionTableTest
+ *
+ * Copyright (c) 2021. Hexanomnom
+ */
+
+package com.pld.agile.utils.tsp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void testIsDominated() {
+        TranspositionTable table = new TranspositionTable(1024);
+        assertFalse(table.isDominated(3, 0b1011, 10));
+        assertTrue(table.isDominated(3, 0b1011, 10));
+        assertTrue(table.isDominated(3, 0b1011, 12));
+        // A cheaper partial tour is searched, and becomes the reference
+        assertFalse(table.isDominated(3, 0b1011, 8));
+        assertTrue(table.isDominated(3, 0b1011, 9));
+        // Other current vertex or other visited vertices
+        assertFalse(table.isDominated(1, 0b1011, 20));
+        assertFalse(table.isDominated(3, 0b1111, 20));
+    }
+
+    @Test
+    public void testBoundedSize() {
+        // A single bucket: the least recently used state is replaced
+        TranspositionTable table = new TranspositionTable(1);
+        for (int vertex = 0; vertex < 4; vertex++) {
+            assertFalse(table.isDominated(vertex, 1, 5));
+        }
+        assertTrue(table.isDominated(0, 1, 5));
+        assertFalse(table.isDominated(4, 1, 5));
+        assertFalse(table.isDominated(1, 1, 5));
+        assertTrue(table.isDominated(0, 1, 5));
+        assertTrue(table.isDominated(4, 1, 5));
+    }
+
+}